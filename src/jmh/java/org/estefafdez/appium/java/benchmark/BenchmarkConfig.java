@@ -0,0 +1,63 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.benchmark;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.estefafdez.appium.java.config.ConstantConfig;
+import org.estefafdez.appium.java.config.PropertiesManager;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+
+/**
+ * <p>
+ * This class loads the configuration of the suite for the benchmarks, the same
+ * way the {@link org.estefafdez.appium.java.config.TestSetConfig} does before the
+ * suite.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+final class BenchmarkConfig {
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private BenchmarkConfig() {}
+
+	/**
+	 * Method to load the properties and the log level.
+	 *
+	 * @throws CustomErrorException when the properties can not be read
+	 */
+	static void load() throws CustomErrorException {
+		PropertiesManager handler = PropertiesManager.getInstance();
+		handler.loadPropertiesMatrix(ConstantConfig.CONFIG_FILE_PROP);
+		String logLevel = handler.getConfig().valueOf(ConstantConfig.LOG_LEVEL, "");
+		Level level = Level.getLevel(logLevel.toUpperCase());
+		Configurator.setRootLevel(level == null ? Level.WARN : level);
+	}
+}
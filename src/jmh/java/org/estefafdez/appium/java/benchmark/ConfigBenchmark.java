@@ -0,0 +1,114 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.estefafdez.appium.java.config.ConstantConfig;
+import org.estefafdez.appium.java.config.PropertiesManager;
+import org.estefafdez.appium.java.config.TestSetConfig;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+/**
+ * <p>
+ * Benchmarks of the configuration: the lookups of the {@link PropertiesManager}
+ * and the Desired Capabilities built by {@link TestSetConfig}.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigBenchmark {
+
+	/** Handler to access to the properties matrix */
+	private PropertiesManager handler;
+
+	/** Test set used to build the capabilities. */
+	private BenchmarkTestSet testSet;
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	@Setup(Level.Trial)
+	public void setUp() throws CustomErrorException {
+		BenchmarkConfig.load();
+		handler = PropertiesManager.getInstance();
+		testSet = new BenchmarkTestSet();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	BENCHMARKS
+	*---------------------------------------------------------------------*/
+
+	@Benchmark
+	public String getConfigValue() {
+		return handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME);
+	}
+
+	@Benchmark
+	public String getMissingConfigValue() {
+		return handler.getConfig().valueOf("config.benchmarkMissingKey", null);
+	}
+
+	@Benchmark
+	public DesiredCapabilities setUpCapabilities() throws CustomErrorException {
+		return testSet.setUpCapabilities();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	TEST SET
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Test set with access to the set up of the capabilities.
+	 */
+	static final class BenchmarkTestSet extends TestSetConfig {
+
+		@Override
+		protected DesiredCapabilities setUpCapabilities() throws CustomErrorException {
+			return super.setUpCapabilities();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.estefafdez.appium.java.config.AttributeRead;
+import org.estefafdez.appium.java.config.BasePageObjectConfig;
+import org.estefafdez.appium.java.config.ConfigSnapshot.Platform;
+import org.estefafdez.appium.java.config.DriverConfig;
+import org.estefafdez.appium.java.constant.AndroidHomeConst;
+import org.estefafdez.appium.java.pageobjects.AndroidHomePage;
+import org.estefafdez.appium.java.utils.FakeAppiumServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.remote.MobileCapabilityType;
+
+/**
+ * <p>
+ * Benchmarks of the hot paths of {@link BasePageObjectConfig}: checks, waits,
+ * actions and attribute reads, against a {@link FakeAppiumServer} without latency.
+ * The driver is built by {@link DriverConfig}, so every command goes through the
+ * same instrumented executor as the tests. Run them with <b>mvn -Pbenchmark
+ * verify</b> and the <b>-prof gc</b> columns show the allocation per operation.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class PageObjectBenchmark {
+
+	/** Fake Appium Server answering the commands. */
+	private FakeAppiumServer server;
+
+	/** Driver connected to the fake server. */
+	private AppiumDriver<MobileElement> driver;
+
+	/** Page Object used by the tests. */
+	private BenchmarkPage page;
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkConfig.load();
+		server = new FakeAppiumServer(null, 0, Collections.<String, Long>emptyMap(), 0);
+		server.start();
+		DesiredCapabilities caps = new DesiredCapabilities();
+		caps.setCapability(MobileCapabilityType.PLATFORM_NAME, Platform.ANDROID.getName());
+		driver = DriverConfig.buildInstance(caps, server.getUrl());
+		page = new BenchmarkPage(driver);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		driver.quit();
+		server.stop();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	BENCHMARKS
+	*---------------------------------------------------------------------*/
+
+	@Benchmark
+	public boolean isElementVisible() {
+		return page.checkButton1IsVisible();
+	}
+
+	@Benchmark
+	public String getAttribute() {
+		return page.getButton1Attribute("enabled");
+	}
+
+	@Benchmark
+	public void getAttributesOneByOne(Blackhole blackhole) {
+		for (AttributeRead read : BenchmarkPage.READS) {
+			blackhole.consume(page.getButtonAttribute(read.getSelector(), read.getAttribute()));
+		}
+	}
+
+	@Benchmark
+	public Map<AttributeRead, String> getAttributesBatched() {
+		return page.getButtonAttributes();
+	}
+
+	@Benchmark
+	public void clickOnElement() {
+		page.clickOnButton1();
+	}
+
+	@Benchmark
+	public void sendText() {
+		page.sendKeyToInput("benchmark");
+	}
+
+	@Benchmark
+	public boolean waitForElementIsClickable() {
+		return page.waitForButton2IsEnableAndClickable();
+	}
+
+	@Benchmark
+	public boolean waitForReadyPage() {
+		return page.waitForReadyPageByID();
+	}
+
+	@Benchmark
+	public void createPage(Blackhole blackhole) {
+		blackhole.consume(new AndroidHomePage(driver));
+	}
+
+	/*--------------------------------------------------------------------*
+	|	PAGE OBJECT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * The Android Home Page with access to the attributes of its elements.
+	 */
+	static final class BenchmarkPage extends AndroidHomePage {
+
+		BenchmarkPage(AppiumDriver<MobileElement> driver) {
+			super(driver);
+		}
+
+		/** Attributes of the buttons read by an assertion block. */
+		static final List<AttributeRead> READS = Collections.unmodifiableList(Arrays.asList(
+				AttributeRead.byId(AndroidHomeConst.BODY_BUTTON_BUTTON1, "enabled"),
+				AttributeRead.byId(AndroidHomeConst.BODY_BUTTON_BUTTON1, "text"),
+				AttributeRead.byId(AndroidHomeConst.BODY_BUTTON_BUTTON2, "enabled"),
+				AttributeRead.byId(AndroidHomeConst.BODY_BUTTON_BUTTON2, "text")));
+
+		String getButton1Attribute(String attribute) {
+			return this.getValueOfElementAttributeByID(AndroidHomeConst.BODY_BUTTON_BUTTON1, attribute);
+		}
+
+		String getButtonAttribute(String selector, String attribute) {
+			return this.getValueOfElementAttributeByID(selector, attribute);
+		}
+
+		Map<AttributeRead, String> getButtonAttributes() {
+			return this.getAttributes(READS);
+		}
+	}
+}
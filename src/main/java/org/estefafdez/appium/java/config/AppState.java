@@ -0,0 +1,61 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+/**
+ * <p>
+ * This enum defines the states of the App a test can need when it starts, from the
+ * weakest to the strongest. A stronger state always satisfies a weaker one, for
+ * example an App just reset is also just launched.
+ * </p>
+ * 
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public enum AppState {
+
+	/** Any state, the test starts where the previous one finished. */
+	ANY,
+
+	/** The App has just been launched, keeping its data. */
+	RELAUNCHED,
+
+	/** The App has just been launched without any data. */
+	NO_DATA,
+
+	/** The App has just been reset, as a new session does. */
+	RESET;
+
+	/**
+	 * Method to check if this state is enough for a test.
+	 * 
+	 * @param required the state needed by the test
+	 * @return true|false if this state satisfies the required one
+	 */
+	public boolean satisfies(AppState required) {
+		return compareTo(required) >= 0;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.Objects;
+
+import org.openqa.selenium.By;
+
+/**
+ * <p>
+ * This class is the read of an attribute of an element, by the ID or the Xpath of
+ * its selector, to read several attributes at once with
+ * {@link BasePageObjectConfig#getAttributes(java.util.Collection)}.
+ * </p>
+ *
+ * <pre>
+ * Map&lt;AttributeRead, String&gt; values = getAttributes(Arrays.asList(SWITCH_VALUE, LABEL_VALUE));
+ * </pre>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class AttributeRead {
+
+	/** Selector of the element. */
+	private final String selector;
+
+	/** Name of the attribute. */
+	private final String attribute;
+
+	/** If the selector is a Xpath, otherwise it is an ID. */
+	private final boolean xpath;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	private AttributeRead(String selector, String attribute, boolean xpath) {
+		this.selector = Objects.requireNonNull(selector, "selector");
+		this.attribute = Objects.requireNonNull(attribute, "attribute");
+		this.xpath = xpath;
+	}
+
+	/**
+	 * Method to read an attribute of an element by its ID.
+	 *
+	 * @param selector the ID of the element
+	 * @param attribute the name of the attribute
+	 * @return the read
+	 */
+	public static AttributeRead byId(String selector, String attribute) {
+		return new AttributeRead(selector, attribute, false);
+	}
+
+	/**
+	 * Method to read an attribute of an element by its Xpath.
+	 *
+	 * @param selector the Xpath of the element
+	 * @param attribute the name of the attribute
+	 * @return the read
+	 */
+	public static AttributeRead byXpath(String selector, String attribute) {
+		return new AttributeRead(selector, attribute, true);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * @return the selector of the element
+	 */
+	public String getSelector() {
+		return selector;
+	}
+
+	/**
+	 * @return the name of the attribute
+	 */
+	public String getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * @return true|false if the selector is a Xpath, otherwise it is an ID
+	 */
+	public boolean isXpath() {
+		return xpath;
+	}
+
+	/**
+	 * @return the locator of the element
+	 */
+	public By getLocator() {
+		return xpath ? By.xpath(selector) : By.id(selector);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof AttributeRead)) {
+			return false;
+		}
+		AttributeRead read = (AttributeRead) other;
+		return xpath == read.xpath && selector.equals(read.selector) && attribute.equals(read.attribute);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(selector, attribute, xpath);
+	}
+
+	@Override
+	public String toString() {
+		return (xpath ? "xpath:" : "id:") + selector + "@" + attribute;
+	}
+}
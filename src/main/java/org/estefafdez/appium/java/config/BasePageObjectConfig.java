@@ -20,16 +20,24 @@
 package org.estefafdez.appium.java.config;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.estefafdez.appium.java.utils.CustomAssertHandler;
+import org.estefafdez.appium.java.utils.CustomErrorException;
 import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
-import org.openqa.selenium.TimeoutException;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
 
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.MobileElement;
@@ -65,7 +73,7 @@ public abstract class BasePageObjectConfig {
 	protected PropertiesManager handler = PropertiesManager.getInstance();
 
 	/** Provides the ability to wait for an arbitrary condition during test execution. */
-	protected WebDriverWait wait;
+	protected WaitEngine wait = WaitEngine.fromConfig();
 	
 	/** Provides the event of the keys*/
 	protected KeyEvent keyEvent;
@@ -77,7 +85,13 @@ public abstract class BasePageObjectConfig {
 	protected String pagePropertyName = this.getClass().getSimpleName().replace("Page", "").toLowerCase();
 	
 	/** Get the Platform from the Test Capabilities */
-	String platformName = handler.getConfigValueFromMatrix("config.platformName");
+	String platformName = handler.getConfig().getPlatformName();
+	
+	/** Answer the read-only queries from a snapshot of the page source instead of asking the device */
+	protected boolean snapshotMode = handler.getConfig().isSnapshotMode();
+
+	/** Actions that forget the elements cached for the session */
+	protected SessionCache.Invalidation elementCache = handler.getConfig().getElementCache();
 
 	/*--------------------------------------------------------------------* 
 	|	CONSTRUCTOR
@@ -105,10 +119,16 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected boolean isElementVisibleByID(String selector) {
 		try {
-			LOGGER.info("Checking if the element is visible: [" + selector + "]");
-			return this.driver.findElement(By.id(selector)).isDisplayed();
+			LOGGER.info("Checking if the element is visible: [{}]", selector);
+			if (snapshotMode) {
+				return getSnapshot().isVisible(selector);
+			}
+			return onElement(By.id(selector), MobileElement::isDisplayed);
+		} catch (CustomErrorException ex) {
+			LOGGER.error("The page source could not be checked for the element: [{}]", selector, ex);
+			return false;
 		} catch (NoSuchElementException ex) {
-			LOGGER.error("The element is not visible: [" + selector + "]", ex);
+			LOGGER.error("The element is not visible: [{}]", selector, ex);
 			return false;
 		}
 	}
@@ -121,10 +141,16 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected boolean isElementVisibleByXpath(String selector) {
 		try {
-			LOGGER.info("Checking if the element is visible: [" + selector + "]");
-			return this.driver.findElement(By.xpath(selector)).isDisplayed();
+			LOGGER.info("Checking if the element is visible: [{}]", selector);
+			if (snapshotMode) {
+				return getSnapshot().isVisibleByXpath(selector);
+			}
+			return onElement(By.xpath(selector), MobileElement::isDisplayed);
+		} catch (CustomErrorException ex) {
+			LOGGER.error("The page source could not be checked for the element: [{}]", selector, ex);
+			return false;
 		} catch (NoSuchElementException ex) {
-			LOGGER.error("The element is not visible: [" + selector + "]", ex);
+			LOGGER.error("The element is not visible: [{}]", selector, ex);
 			return false;
 		}
 	}
@@ -141,23 +167,41 @@ public abstract class BasePageObjectConfig {
 	 * @return true | false if the element are visible on the Page.
 	 */
 	protected boolean waitForReadyPageByID(List<String> selectors) {
-		LOGGER.info("Waiting for the elements to be ready for: " + this.getClass().getSimpleName());
+		LOGGER.info("Waiting for the elements to be ready for: {}", this.getClass().getSimpleName());
 		return waitForElementsIsVisibleByID(selectors);
 	}
 	
 	/**
-	 * Method to wait to check if a list of elements with a selector are visible by ID
+	 * Method to wait to check if a list of elements with a selector are visible by ID.
+	 * Each poll checks the whole list with only one request to the device, the page
+	 * source, and all the list shares the same timeout.
 	 * 
 	 * @param selectors element to check
 	 * @return true|false if the elements are visible
 	 */
 	protected boolean waitForElementsIsVisibleByID(List<String> selectors) {
-		for (String string : selectors) {
-			if (!waitForElementIsVisibleByID(string, 10)) {
-				return false;
+		LOGGER.info("Waiting for the elements to be visible: {}", selectors);
+		AtomicReference<List<String>> missing = new AtomicReference<>(selectors);
+		try {
+			PageSourceSnapshot snapshot = inScope(selectors, () -> wait.until(() -> {
+				try {
+					PageSourceSnapshot current = PageSourceSnapshot.parse(this.driver.getPageSource());
+					missing.set(current.getNotVisible(selectors));
+					return missing.get().isEmpty() ? current : null;
+				} catch (CustomErrorException ex) {
+					throw new IllegalStateException(ex.getMessage(), ex);
+				}
+			}));
+			if (snapshot != null) {
+				SessionCache.of(driver).setSnapshot(snapshot);
+				return true;
 			}
+		} catch (IllegalStateException ex) {
+			LOGGER.error("The page source could not be checked for the elements: {}", selectors, ex);
+			return false;
 		}
-		return true;
+		LOGGER.error("The elements are not visible after {} seconds: {}", wait.getTimeout(), missing.get());
+		return false;
 	}
 	
 	/**
@@ -168,23 +212,33 @@ public abstract class BasePageObjectConfig {
 	 * @return true | false if the element are visible on the Page.
 	 */
 	protected boolean waitForReadyPageByXpath(List<String> selectors) {
-		LOGGER.info("Waiting for the elements to be ready for: " + this.getClass().getSimpleName());
+		LOGGER.info("Waiting for the elements to be ready for: {}", this.getClass().getSimpleName());
 		return waitForElementsIsVisibleByXpath(selectors);
 	}
 	
 	/**
-	 * Method to wait to check if a list of elements with a selector are visible by Xpath
+	 * Method to wait to check if a list of elements with a selector are visible by Xpath.
+	 * All the list shares the same timeout.
 	 * 
 	 * @param selectors element to check
 	 * @return true|false if the elements are visible
 	 */
 	protected boolean waitForElementsIsVisibleByXpath(List<String> selectors) {
-		for (String string : selectors) {
-			if (!waitForElementIsVisibleByXpath(string, 10)) {
-				return false;
+		LOGGER.info("Waiting for the elements to be visible: {}", selectors);
+		AtomicReference<String> missing = new AtomicReference<>();
+		boolean visible = Boolean.TRUE.equals(inScope(selectors, () -> wait.until(() -> {
+			for (String selector : selectors) {
+				if (findVisible(By.xpath(selector)) == null) {
+					missing.set(selector);
+					return false;
+				}
 			}
+			return true;
+		})));
+		if (!visible) {
+			LOGGER.error("The element is not visible after {} seconds: [{}]", wait.getTimeout(), missing.get());
 		}
-		return true;
+		return visible;
 	}
 
 	/**
@@ -195,14 +249,13 @@ public abstract class BasePageObjectConfig {
 	 * @return true|false if the element is visible before the timeout is finished
 	 */
 	protected boolean waitForElementIsVisibleByID(String selector, long timeout) {
-		try {
-			LOGGER.info("Waiting for the element to be visible: [" + selector + "]");
-			wait = new WebDriverWait(driver, timeout);
-			return wait.until(ExpectedConditions.visibilityOfElementLocated(By.id(selector))) != null;
-		} catch (TimeoutException ex) {
-			LOGGER.error("The element is not visible: [" + selector + "]", ex);
-			return false;
+		LOGGER.info("Waiting for the element to be visible: [{}]", selector);
+		By locator = By.id(selector);
+		if (inScope(locator, () -> wait.until(() -> findVisible(locator), timeout)) != null) {
+			return true;
 		}
+		LOGGER.error("The element is not visible after {} seconds: [{}]", timeout, selector);
+		return false;
 	}
 	
 	/**
@@ -213,32 +266,29 @@ public abstract class BasePageObjectConfig {
 	 * @return true|false if the element is visible before the timeout is finished
 	 */
 	protected boolean waitForElementIsVisibleByXpath(String selector, long timeout) {
-		try {
-			LOGGER.info("Waiting for the element to be visible: [" + selector + "]");
-			wait = new WebDriverWait(driver, timeout);
-			return wait.until(ExpectedConditions.visibilityOfElementLocated(By.xpath(selector))) != null;
-		} catch (TimeoutException ex) {
-			LOGGER.error("The element is not visible: [" + selector + "]", ex);
-			return false;
+		LOGGER.info("Waiting for the element to be visible: [{}]", selector);
+		By locator = By.xpath(selector);
+		if (inScope(locator, () -> wait.until(() -> findVisible(locator), timeout)) != null) {
+			return true;
 		}
+		LOGGER.error("The element is not visible after {} seconds: [{}]", timeout, selector);
+		return false;
 	}
 
 	/**
 	 * Method to wait until the element with a selector by ID is enabled and clickable
 	 * 
 	 * @param selector element to check
-	 * @param timeout seconds to wait.
 	 * @return true|false if the element is enabled and clickable before the timeout is finished. 
 	 */
 	protected boolean waitForElementIsEnabledAndClickableByID(String selector) {
-		try {
-			LOGGER.info("Waiting for the element to be enabled and clickable: [" + selector + "]");
-			wait = new WebDriverWait(driver, 10);
-			return wait.until(ExpectedConditions.elementToBeClickable(By.id(selector))) != null;
-		} catch (TimeoutException ex) {
-			LOGGER.error("The element is not enabled and clickable: [" + selector + "]", ex);
-			return false;
+		LOGGER.info("Waiting for the element to be enabled and clickable: [{}]", selector);
+		By locator = By.id(selector);
+		if (inScope(locator, () -> wait.until(() -> findClickable(locator))) != null) {
+			return true;
 		}
+		LOGGER.error("The element is not enabled and clickable after {} seconds: [{}]", wait.getTimeout(), selector);
+		return false;
 	}
 	
 	/**
@@ -249,14 +299,42 @@ public abstract class BasePageObjectConfig {
 	 * @return true|false if the element is enabled and clickable before the timeout is finished. 
 	 */
 	protected boolean waitForElementIsEnabledAndClickableByXpath(String selector, String text, long timeout) {
-		try {
-			LOGGER.info("Waiting for the element to be enabled and clickable: [" + selector + "]");
-			wait = new WebDriverWait(driver, 10);
-			return wait.until(ExpectedConditions.elementToBeClickable(By.id(selector))) != null;
-		} catch (TimeoutException ex) {
-			LOGGER.error("The element is not enabled and clickable: [" + selector + "]", ex);
-			return false;
+		LOGGER.info("Waiting for the element to be enabled and clickable: [{}]", selector);
+		By locator = By.xpath(selector);
+		if (inScope(locator, () -> wait.until(() -> findClickable(locator), timeout)) != null) {
+			return true;
+		}
+		LOGGER.error("The element is not enabled and clickable after {} seconds: [{}]", timeout, selector);
+		return false;
+	}
+
+	/**
+	 * Method to find the first visible element of a locator, without an exception
+	 * when there is not any element.
+	 * 
+	 * @param locator the locator of the element
+	 * @return the element or null if there is not any visible
+	 */
+	private MobileElement findVisible(By locator) {
+		List<MobileElement> elements = this.driver.findElements(locator);
+		for (MobileElement element : elements) {
+			if (element.isDisplayed()) {
+				return element;
+			}
 		}
+		return null;
+	}
+
+	/**
+	 * Method to find the first visible and enabled element of a locator, without an
+	 * exception when there is not any element.
+	 * 
+	 * @param locator the locator of the element
+	 * @return the element or null if there is not any clickable
+	 */
+	private MobileElement findClickable(By locator) {
+		MobileElement element = findVisible(locator);
+		return element != null && element.isEnabled() ? element : null;
 	}
 
 	/*--------------------------------------------------------------------* 
@@ -272,25 +350,28 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void performLongClickByID(String selector, int time) {
 		try {
-			LOGGER.info("Performing long click on the element: [" + selector + "]");
+			LOGGER.info("Performing long click on the element: [{}]", selector);
 
-			LongPressOptions longPressOptions = new LongPressOptions();
 			Duration timer = Duration.ofSeconds(time);
-			action = new TouchAction<>(driver);
-
 			if (timer.getSeconds() > 0) {
-				LOGGER.info("Pressing the button for " + timer.getSeconds() + " seconds");
-				longPressOptions.withDuration(timer).withElement(ElementOption.element(driver.findElement(By.id(selector))));
-				action.longPress(longPressOptions).release();
-				action.perform();
-			} else {
-				longPressOptions.withElement(ElementOption.element(driver.findElement(By.id(selector))));
+				LOGGER.info("Pressing the button for {} seconds", timer.getSeconds());
+			}
+			onElement(By.id(selector), element -> {
+				LongPressOptions longPressOptions = new LongPressOptions();
+				if (timer.getSeconds() > 0) {
+					longPressOptions.withDuration(timer);
+				}
+				longPressOptions.withElement(ElementOption.element(element));
+				action = new TouchAction<>(driver);
 				action.longPress(longPressOptions).release();
 				action.perform();
-			}
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError(
 					"Trying to perform a long click on the element [" + selector + "] but it was not found.", ex);
+		} finally {
+			invalidateAfterAction(true);
 		}
 	}
 	
@@ -303,25 +384,28 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void performLongClickByXpath(String selector, int time) {
 		try {
-			LOGGER.info("Performing long click on the element: [" + selector + "]");
+			LOGGER.info("Performing long click on the element: [{}]", selector);
 
-			LongPressOptions longPressOptions = new LongPressOptions();
 			Duration timer = Duration.ofSeconds(time);
-			action = new TouchAction<>(driver);
-
 			if (timer.getSeconds() > 0) {
-				LOGGER.info("Pressing the button for " + timer.getSeconds() + " seconds");
-				longPressOptions.withDuration(timer).withElement(ElementOption.element(driver.findElement(By.xpath(selector))));
-				action.longPress(longPressOptions).release();
-				action.perform();
-			} else {
-				longPressOptions.withElement(ElementOption.element(driver.findElement(By.xpath(selector))));
+				LOGGER.info("Pressing the button for {} seconds", timer.getSeconds());
+			}
+			onElement(By.xpath(selector), element -> {
+				LongPressOptions longPressOptions = new LongPressOptions();
+				if (timer.getSeconds() > 0) {
+					longPressOptions.withDuration(timer);
+				}
+				longPressOptions.withElement(ElementOption.element(element));
+				action = new TouchAction<>(driver);
 				action.longPress(longPressOptions).release();
 				action.perform();
-			}
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError(
 					"Trying to perform a long click on the element [" + selector + "] but it was not found.", ex);
+		} finally {
+			invalidateAfterAction(true);
 		}
 	}
 
@@ -336,10 +420,15 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void clickOnElementByID(String selector) {
 		try {
-			LOGGER.info("Clicking on element: [" + selector + "]");
-			this.driver.findElement(By.id(selector)).click();
+			LOGGER.info("Clicking on element: [{}]", selector);
+			onElement(By.id(selector), element -> {
+				element.click();
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError("Trying to click on the element [" + selector + "] but it was not found.", ex);
+		} finally {
+			invalidateAfterAction(true);
 		}
 	}
 	
@@ -350,10 +439,15 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void clickOnElementByXpath(String selector) {
 		try {
-			LOGGER.info("Clicking on element: [" + selector + "]");
-			this.driver.findElement(By.xpath(selector)).click();
+			LOGGER.info("Clicking on element: [{}]", selector);
+			onElement(By.xpath(selector), element -> {
+				element.click();
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError("Trying to click on the element [" + selector + "] but it was not found.", ex);
+		} finally {
+			invalidateAfterAction(true);
 		}
 	}
 
@@ -365,12 +459,17 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void sendTextToElementByID(String selector, String text) {
 		try {
-			LOGGER.info("Sending text to element: [" + selector + "]");
-			this.driver.findElement(By.id(selector)).sendKeys(text);
+			LOGGER.info("Sending text to element: [{}]", selector);
+			onElement(By.id(selector), element -> {
+				element.sendKeys(text);
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler
 					.handlerError("Is not possible to send the text into the element because this is was not found: ["
 							+ selector + "]", ex);
+		} finally {
+			invalidateAfterAction(false);
 		}
 	}
 	
@@ -382,12 +481,17 @@ public abstract class BasePageObjectConfig {
 	 */
 	protected void sendTextToElementByXpath(String selector, String text) {
 		try {
-			LOGGER.info("Sending text to element: [" + selector + "]");
-			this.driver.findElement(By.xpath(selector)).sendKeys(text);
+			LOGGER.info("Sending text to element: [{}]", selector);
+			onElement(By.xpath(selector), element -> {
+				element.sendKeys(text);
+				return null;
+			});
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler
 					.handlerError("Is not possible to send the text into the element because this is was not found: ["
 							+ selector + "]", ex);
+		} finally {
+			invalidateAfterAction(false);
 		}
 	}
 
@@ -428,8 +532,18 @@ public abstract class BasePageObjectConfig {
 	protected String getValueOfElementAttributeByID(String selector, String attribute) {
 		String value = null;
 		try {
-			LOGGER.debug("Getting attribute [" + attribute + "] from element: [" + selector + "]");
-			value = this.driver.findElement(By.id(selector)).getAttribute(attribute);
+			LOGGER.debug("Getting attribute [{}] from element: [{}]", attribute, selector);
+			if (snapshotMode) {
+				PageSourceSnapshot snapshot = getSnapshot();
+				if (!snapshot.contains(selector)) {
+					throw new NoSuchElementException("The element is not on the page source: [" + selector + "]");
+				}
+				return snapshot.getAttribute(selector, attribute);
+			}
+			value = onElement(By.id(selector), element -> element.getAttribute(attribute));
+		} catch (CustomErrorException ex) {
+			CustomAssertHandler.handlerError("Trying to get the attribute [" + attribute
+					+ "] but the page source could not be read.", ex);
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError("Trying to get the attribute [" + attribute
 					+ "] but the element does not contain this or the selector is missing.", ex);
@@ -469,8 +583,18 @@ public abstract class BasePageObjectConfig {
 	protected String getValueOfElementAttributeByXpath(String selector, String attribute) {
 		String value = null;
 		try {
-			LOGGER.debug("Getting attribute [" + attribute + "] from element: [" + selector + "]");
-			value = this.driver.findElement(By.xpath(selector)).getAttribute(attribute);
+			LOGGER.debug("Getting attribute [{}] from element: [{}]", attribute, selector);
+			if (snapshotMode) {
+				PageSourceSnapshot snapshot = getSnapshot();
+				if (!snapshot.containsByXpath(selector)) {
+					throw new NoSuchElementException("The element is not on the page source: [" + selector + "]");
+				}
+				return snapshot.getAttributeByXpath(selector, attribute);
+			}
+			value = onElement(By.xpath(selector), element -> element.getAttribute(attribute));
+		} catch (CustomErrorException ex) {
+			CustomAssertHandler.handlerError("Trying to get the attribute [" + attribute
+					+ "] but the page source could not be read.", ex);
 		} catch (NoSuchElementException ex) {
 			CustomAssertHandler.handlerError("Trying to get the attribute [" + attribute
 					+ "] but the element does not contain this or the selector is missing.", ex);
@@ -478,4 +602,164 @@ public abstract class BasePageObjectConfig {
 		return value;
 	}
 
+	/**
+	 * Method to get the value of several attributes at once, with as few requests as
+	 * possible: the attributes on the page source are read from one request for it,
+	 * and only the ones that are not there are read from their elements.
+	 * 
+	 * <pre>
+	 * Map&lt;AttributeRead, String&gt; values = getAttributes(Arrays.asList(
+	 * 		AttributeRead.byId("switch_button", "value"),
+	 * 		AttributeRead.byId("click_switch_button_text", "value")));
+	 * </pre>
+	 * 
+	 * @param reads the attributes to read
+	 * @return unmodifiable map with the value of each attribute, in the same order
+	 */
+	protected Map<AttributeRead, String> getAttributes(Collection<AttributeRead> reads) {
+		LOGGER.debug("Getting the attributes: {}", reads);
+		Map<AttributeRead, String> values = new LinkedHashMap<>();
+		List<AttributeRead> pending = new ArrayList<>();
+		PageSourceSnapshot snapshot = null;
+		if (snapshotMode || reads.size() > 1) {
+			try {
+				snapshot = snapshotMode ? getSnapshot() : PageSourceSnapshot.parse(inScope(reads, driver::getPageSource));
+			} catch (CustomErrorException | WebDriverException ex) {
+				LOGGER.warn("The page source could not be read, reading the attributes from their elements", ex);
+			}
+		}
+		for (AttributeRead read : reads) {
+			String value = snapshot == null ? null : getAttributeFromSnapshot(snapshot, read);
+			values.put(read, value);
+			if (value == null) {
+				pending.add(read);
+			}
+		}
+
+		/** The attributes that are not on the page source are read from their elements */
+		for (AttributeRead read : pending) {
+			values.put(read, getAttributeFromElement(read));
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Method to read an attribute from the page source.
+	 * 
+	 * @return the value, or null when the element or the attribute are not on it
+	 */
+	private static String getAttributeFromSnapshot(PageSourceSnapshot snapshot, AttributeRead read) {
+		try {
+			if (read.isXpath()) {
+				return snapshot.containsByXpath(read.getSelector())
+						? snapshot.getAttributeByXpath(read.getSelector(), read.getAttribute()) : null;
+			}
+			return snapshot.getAttribute(read.getSelector(), read.getAttribute());
+		} catch (CustomErrorException ex) {
+			LOGGER.debug("The attribute {} could not be read from the page source", read, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Method to read an attribute from its element, failing the test when the
+	 * element does not exist.
+	 */
+	private String getAttributeFromElement(AttributeRead read) {
+		try {
+			return onElement(read.getLocator(), element -> element.getAttribute(read.getAttribute()));
+		} catch (NoSuchElementException ex) {
+			CustomAssertHandler.handlerError("Trying to get the attribute [" + read.getAttribute()
+					+ "] but the element does not contain this or the selector is missing.", ex);
+			return null;
+		}
+	}
+
+	/*--------------------------------------------------------------------* 
+	|	LOGIC TO HANDLE THE PAGE SOURCE SNAPSHOT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the snapshot of the current screen, shared by every Page using
+	 * the same session. The page source is only read when there is not a valid one.
+	 * 
+	 * @return the snapshot of the page source
+	 * @throws CustomErrorException when the page source can not be parsed
+	 */
+	protected PageSourceSnapshot getSnapshot() throws CustomErrorException {
+		return SessionCache.of(driver).getSnapshot(driver);
+	}
+
+	/**
+	 * Method to invalidate the snapshot of the screen, after any action that can
+	 * change it.
+	 */
+	protected void invalidateSnapshot() {
+		SessionCache.of(driver).invalidateSnapshot();
+	}
+
+	/*--------------------------------------------------------------------* 
+	|	LOGIC TO MEASURE THE COMMANDS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to run some logic recording the latency of its commands under this
+	 * Page and the selector used.
+	 * 
+	 * @param selector the selector or the list of selectors used
+	 * @param logic the logic sending the commands
+	 * @return the result of the logic
+	 */
+	protected <T> T inScope(Object selector, Supplier<T> logic) {
+		CommandMetrics.Scope previous = CommandMetrics.enterScope(this.getClass(), selector);
+		try {
+			return logic.get();
+		} finally {
+			CommandMetrics.exitScope(previous);
+		}
+	}
+
+	/*--------------------------------------------------------------------* 
+	|	LOGIC TO HANDLE THE ELEMENT CACHE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to run an action on an element, using the element cached for the
+	 * session when there is one. If the element cached is stale, it is found again
+	 * and the action is repeated only once.
+	 * 
+	 * @param locator the locator of the element
+	 * @param elementAction the action to run on the element
+	 * @return the result of the action
+	 */
+	protected <T> T onElement(By locator, Function<MobileElement, T> elementAction) {
+		return inScope(locator, () -> {
+			if (elementCache == SessionCache.Invalidation.DISABLED) {
+				return elementAction.apply(this.driver.findElement(locator));
+			}
+			SessionCache cache = SessionCache.of(driver);
+			try {
+				return elementAction.apply(cache.getElement(driver, locator));
+			} catch (StaleElementReferenceException ex) {
+				LOGGER.debug("The element cached is stale, finding it again: {}", locator);
+				cache.evictStaleElement(locator);
+				return elementAction.apply(cache.getElement(driver, locator));
+			}
+		});
+	}
+
+	/**
+	 * Method to invalidate what is cached for the screen after an action. The
+	 * snapshot is always invalidated, the elements depend on the policy configured.
+	 * 
+	 * @param click true if the action was a click or a long click
+	 */
+	protected void invalidateAfterAction(boolean click) {
+		invalidateSnapshot();
+		if (elementCache == SessionCache.Invalidation.ON_ACTION
+				|| (click && elementCache == SessionCache.Invalidation.ON_CLICK)) {
+			SessionCache.of(driver).invalidateElements();
+		}
+	}
+
 }
@@ -0,0 +1,197 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.StartupProfiler.Phase;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+
+/**
+ * <p>
+ * This class runs the phases of the start of the suite as a graph: each phase
+ * starts as soon as the phases it depends on are finished, so the independent
+ * ones run at the same time and the start takes as long as the slowest path
+ * instead of the sum of every phase.
+ * </p>
+ * <p>
+ * The first phase that fails cancels the others: the phases not started are
+ * skipped, the running ones are interrupted and {@link #await()} throws its
+ * error at once, without waiting for them. A phase that waits for other graph is
+ * interrupted too, and so it cancels the phases of that graph.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class BootstrapGraph implements AutoCloseable {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(BootstrapGraph.class);
+
+	/** Executor that runs the phases. */
+	private final ExecutorService executor;
+
+	/** Phases added to the graph. */
+	private final List<CompletableFuture<Void>> phases = new CopyOnWriteArrayList<>();
+
+	/** Completed with the error of the first phase that fails. */
+	private final CompletableFuture<Void> failure = new CompletableFuture<>();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of an empty graph.
+	 *
+	 * @param name name of the threads of the phases
+	 * @param threads maximum phases running at the same time
+	 */
+	public BootstrapGraph(String name, int threads) {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO RUN THE PHASES
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to add a phase that starts when its dependencies are finished. The
+	 * phase is measured by the {@link StartupProfiler}.
+	 *
+	 * @param name name of the phase
+	 * @param phase the phase to run
+	 * @param dependencies the phases that must finish before
+	 * @return the phase added, to be used as dependency of other phases
+	 */
+	public CompletableFuture<Void> add(String name, Phase<? extends Exception> phase,
+			CompletableFuture<?>... dependencies) {
+		CompletableFuture<Void> future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+			if (failure.isDone()) {
+				throw new CompletionException(new CustomErrorException("[ Bootstrap ] - The phase " + name + " was cancelled"));
+			}
+			try {
+				StartupProfiler.time(name, phase);
+			} catch (Exception ex) {
+				if (!failure.isDone()) {
+					LOGGER.error("[ Bootstrap ] - The phase {} failed", name);
+				}
+				throw new CompletionException(ex);
+			}
+		}, executor);
+		future.whenComplete((result, ex) -> {
+			if (ex != null && failure.completeExceptionally(unwrap(ex))) {
+				cancel();
+			}
+		});
+		phases.add(future);
+		return future;
+	}
+
+	/**
+	 * Method to wait until every phase is finished or any of them fails. When the
+	 * wait is interrupted, the phases are cancelled too, so a graph that runs inside
+	 * a phase of another graph is cancelled with it.
+	 *
+	 * @throws CustomErrorException the error of the first phase that fails
+	 */
+	public void await() throws CustomErrorException {
+		CompletableFuture<Void> all = CompletableFuture.allOf(phases.toArray(new CompletableFuture<?>[0]));
+		try {
+			CompletableFuture.anyOf(all, failure).get();
+		} catch (InterruptedException ex) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new CustomErrorException("[ Bootstrap ] - The start of the suite was interrupted", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = failure.isCompletedExceptionally() ? getFailure() : unwrap(ex.getCause());
+			if (cause instanceof CustomErrorException) {
+				throw (CustomErrorException) cause;
+			}
+			throw new CustomErrorException("[ Bootstrap ] - Unexpected problem starting the suite", cause);
+		}
+	}
+
+	/**
+	 * Method to get the error of the first phase that failed.
+	 */
+	private Throwable getFailure() {
+		try {
+			failure.join();
+			return null;
+		} catch (CompletionException ex) {
+			return unwrap(ex);
+		}
+	}
+
+	/**
+	 * Method to cancel the phases not finished, interrupting the running ones.
+	 */
+	private void cancel() {
+		for (CompletableFuture<Void> phase : phases) {
+			phase.cancel(false);
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Method to get the original error of a phase.
+	 */
+	private static Throwable unwrap(Throwable ex) {
+		Throwable cause = ex;
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to release the threads of the graph once it is finished.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
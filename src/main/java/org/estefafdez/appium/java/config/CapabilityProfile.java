@@ -0,0 +1,226 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import io.appium.java_client.remote.AndroidMobileCapabilityType;
+import io.appium.java_client.remote.MobileCapabilityType;
+
+/**
+ * <p>
+ * This class is an immutable set of Desired Capabilities that describes a class
+ * of devices, read from the file <b>capabilities/&lt;profile&gt;.properties</b>.
+ * The platform and the App are taken from <b>test.properties</b>, as the values
+ * set there for the device and the App, which replace the ones of the profile.
+ * </p>
+ * <p>
+ * Each profile is checked once, when it is loaded, and cached: every session
+ * built with it only copies its capabilities.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class CapabilityProfile {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(CapabilityProfile.class);
+
+	/** Folder of the resources with the profiles. */
+	private static final String PROFILES_PATH = "capabilities/";
+
+	/** Capabilities replaced by the keys of the configuration file, when they are set. */
+	private static final Map<String, String> CONFIG_OVERRIDES = new LinkedHashMap<>();
+
+	/** Profiles already loaded and checked, by name. */
+	private static final Map<String, CapabilityProfile> PROFILES = new ConcurrentHashMap<>();
+
+	static {
+		CONFIG_OVERRIDES.put(MobileCapabilityType.DEVICE_NAME, ConstantConfig.DEVICE_NAME);
+		CONFIG_OVERRIDES.put(MobileCapabilityType.PLATFORM_VERSION, ConstantConfig.PLATFORM_VERSION);
+		CONFIG_OVERRIDES.put(MobileCapabilityType.FULL_RESET, ConstantConfig.DEVICE_FULL_RESET);
+		CONFIG_OVERRIDES.put(AndroidMobileCapabilityType.APP_PACKAGE, ConstantConfig.APP_PACKAGE);
+		CONFIG_OVERRIDES.put(AndroidMobileCapabilityType.APP_ACTIVITY, ConstantConfig.APP_ACTIVITY);
+		CONFIG_OVERRIDES.put(AndroidMobileCapabilityType.APP_WAIT_ACTIVITY, ConstantConfig.APP_WAIT_ACTIVITY);
+	}
+
+	/** Name of the profile. */
+	private final String name;
+
+	/** Value of each capability. */
+	private final Map<String, Object> capabilities;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of a profile.
+	 *
+	 * @param name name of the profile
+	 * @param capabilities value of each capability, it is not copied
+	 */
+	private CapabilityProfile(String name, Map<String, Object> capabilities) {
+		this.name = name;
+		this.capabilities = Collections.unmodifiableMap(capabilities);
+	}
+
+	/**
+	 * Method to get a profile, loading and checking it the first time.
+	 *
+	 * @param name name of the profile, the file <b>capabilities/&lt;name&gt;.properties</b>
+	 * @return the profile
+	 * @throws CustomErrorException when the file does not exist or a capability is malformed
+	 */
+	public static CapabilityProfile get(String name) throws CustomErrorException {
+		CapabilityProfile profile = PROFILES.get(name);
+		if (profile == null) {
+			synchronized (PROFILES) {
+				profile = PROFILES.get(name);
+				if (profile == null) {
+					profile = load(name, PropertiesManager.getInstance().getConfig());
+					PROFILES.put(name, profile);
+				}
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Method to read a profile and the values of the configuration that replace it.
+	 */
+	private static CapabilityProfile load(String name, ConfigSnapshot config) throws CustomErrorException {
+		LOGGER.info("[ Test Configuration ] - Loading the capability profile: {}", name);
+		PropertiesManager handler = PropertiesManager.getInstance();
+		handler.loadPropertiesMatrix(name, PROFILES_PATH);
+		Properties properties = handler.getPropertyFromMatrix(name);
+
+		Map<String, Object> capabilities = new TreeMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			capabilities.put(key, toValue(properties.getProperty(key).trim()));
+		}
+		capabilities.put(MobileCapabilityType.PLATFORM_NAME, config.getPlatformName());
+		capabilities.put(MobileCapabilityType.APP, config.getAppPath());
+		for (Entry<String, String> override : CONFIG_OVERRIDES.entrySet()) {
+			String value = config.valueOf(override.getValue(), null);
+			if (value != null) {
+				capabilities.put(override.getKey(), toValue(value));
+			}
+		}
+
+		CapabilityProfile profile = new CapabilityProfile(name, capabilities);
+		profile.check();
+		profile.print();
+		return profile;
+	}
+
+	/**
+	 * Method to get the value of a capability, the booleans are not sent as text.
+	 */
+	private static Object toValue(String value) {
+		if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+			return Boolean.valueOf(value);
+		}
+		return value;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	CHECKS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to check that the capabilities are properly defined and do not contain
+	 * Maven placeholders not replaced.
+	 */
+	private void check() throws CustomErrorException {
+		LOGGER.info(
+				"[ Test Configuration ] - Checking if the Desired Capabilities Configuration is properly defined and does not contain nulls or empty values");
+		for (Entry<String, Object> entry : capabilities.entrySet()) {
+			String key = entry.getKey();
+			String value = String.valueOf(entry.getValue());
+			if (value.contains("$")) {
+				throw new CustomErrorException(
+						"[ Test Configuration error ] - The Desired Capability " + key + " is malformed to :" + value);
+			} else if (value.isEmpty()) {
+				LOGGER.warn("[ Test Configuration ] - The Desired Capability: {} is empty", key);
+			}
+		}
+	}
+
+	/**
+	 * Method to print the capabilities of the profile on the Log.
+	 */
+	private void print() {
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		LOGGER.info("[ Test Configuration ] - Desired Capabilities of the profile {} established", name);
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		for (Entry<String, Object> entry : capabilities.entrySet()) {
+			LOGGER.info("\t{}:\t{}", entry.getKey(), entry.getValue());
+		}
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to build the Desired Capabilities of a new session. Each call returns a
+	 * new copy, so the session can add its own capabilities.
+	 *
+	 * @return the Desired Capabilities of the profile
+	 */
+	public DesiredCapabilities toCapabilities() {
+		return new DesiredCapabilities(capabilities);
+	}
+
+	/**
+	 * @param capabilityName name of the capability, for example: deviceName
+	 * @return the value of the capability or null when it is not set
+	 */
+	public Object getCapability(String capabilityName) {
+		return capabilities.get(capabilityName);
+	}
+
+	/**
+	 * @return the name of the profile
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,295 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.LatencyHistogram;
+
+/**
+ * <p>
+ * This class keeps the latency histograms of every command sent to the Appium
+ * Servers, by command and by the Page and selector that sent it. At the end of
+ * the suite they are written as JSON with the p50, p90, p99 and max of each one,
+ * in milliseconds.
+ * </p>
+ * <p>
+ * The time the run waits out of the commands, like the devices leased by other
+ * JVMs, is kept apart on the section <b>waits</b>, so it does not change the
+ * latencies of the commands.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class CommandMetrics {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(CommandMetrics.class);
+
+	/** File used when the metrics file is not configured. */
+	public static final String DEFAULT_FILE = "target/command-latencies.json";
+
+	/** Histogram of each command, for example: findElement. */
+	private static final ConcurrentMap<String, LatencyHistogram> COMMANDS = new ConcurrentHashMap<>();
+
+	/** Histogram of each wait out of the commands, for example: deviceLease. */
+	private static final ConcurrentMap<String, LatencyHistogram> WAITS = new ConcurrentHashMap<>();
+
+	/** Histograms of each command sent by a Page and selector. */
+	private static final ConcurrentMap<Scope, ConcurrentMap<String, LatencyHistogram>> SELECTORS = new ConcurrentHashMap<>();
+
+	/** Page and selector the current thread is working with, null out of a Page. */
+	private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private CommandMetrics() {}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO RECORD
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to record the latency of a command sent by the current thread.
+	 *
+	 * @param command name of the command, for example: clickElement
+	 * @param nanos the latency in nanoseconds
+	 */
+	public static void record(String command, long nanos) {
+		histogramOf(COMMANDS, command).record(nanos);
+		Scope scope = SCOPE.get();
+		if (scope != null) {
+			ConcurrentMap<String, LatencyHistogram> commands = SELECTORS.get(scope);
+			if (commands == null) {
+				commands = SELECTORS.computeIfAbsent(scope, key -> new ConcurrentHashMap<>());
+			}
+			histogramOf(commands, command).record(nanos);
+		}
+	}
+
+	/**
+	 * Method to record a time waited out of the commands.
+	 *
+	 * @param wait name of the wait, for example: deviceLease
+	 * @param nanos the time waited in nanoseconds
+	 */
+	public static void recordWait(String wait, long nanos) {
+		histogramOf(WAITS, wait).record(nanos);
+	}
+
+	/**
+	 * Method to get a histogram, creating it only the first time.
+	 */
+	private static LatencyHistogram histogramOf(ConcurrentMap<String, LatencyHistogram> histograms, String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+	}
+
+	/**
+	 * Method to set the Page and selector of the commands sent by the current thread.
+	 * The name of the scope, for example: AndroidHomePage &gt; By.id: button1, is
+	 * only built when the report is written.
+	 *
+	 * @param page the class of the Page
+	 * @param selector the selector or the list of selectors used
+	 * @return the previous scope, to be restored with {@link #exitScope(Scope)}
+	 */
+	public static Scope enterScope(Class<?> page, Object selector) {
+		Scope previous = SCOPE.get();
+		SCOPE.set(new Scope(page, selector));
+		return previous;
+	}
+
+	/**
+	 * Method to restore the previous Page and selector of the current thread.
+	 *
+	 * @param previous the scope returned by {@link #enterScope(Class, Object)}
+	 */
+	public static void exitScope(Scope previous) {
+		if (previous == null) {
+			SCOPE.remove();
+		} else {
+			SCOPE.set(previous);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO WRITE THE REPORT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to write the percentiles of every histogram as JSON.
+	 *
+	 * @param file the file to write
+	 */
+	public static void dump(Path file) {
+		if (COMMANDS.isEmpty() && WAITS.isEmpty()) {
+			return;
+		}
+		StringBuilder json = new StringBuilder("{\n  \"commands\": ");
+		appendHistograms(json, COMMANDS, "  ");
+		json.append(",\n  \"waits\": ");
+		appendHistograms(json, WAITS, "  ");
+		json.append(",\n  \"selectors\": {");
+		String separator = "\n";
+		for (Map.Entry<String, Map<String, LatencyHistogram>> entry : selectorsByName().entrySet()) {
+			json.append(separator).append("    ").append(quote(entry.getKey())).append(": ");
+			appendHistograms(json, entry.getValue(), "    ");
+			separator = ",\n";
+		}
+		json.append("\n  }\n}\n");
+
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				writer.write(json.toString());
+			}
+			LOGGER.info("[ Command Metrics ] - Latencies of {} commands written on: {}", COMMANDS.size(), file);
+		} catch (IOException ex) {
+			LOGGER.error("[ Command Metrics ] - The latencies could not be written on: {}", file, ex);
+		}
+	}
+
+	/**
+	 * Method to group the histograms of the selectors by the name of their scope.
+	 * Two scopes with the same name, like Pages with the same name on different
+	 * packages, are added together.
+	 */
+	private static Map<String, Map<String, LatencyHistogram>> selectorsByName() {
+		Map<String, Map<String, LatencyHistogram>> selectors = new TreeMap<>();
+		for (Map.Entry<Scope, ConcurrentMap<String, LatencyHistogram>> entry : SELECTORS.entrySet()) {
+			Map<String, LatencyHistogram> commands = selectors.computeIfAbsent(entry.getKey().toString(),
+					key -> new TreeMap<>());
+			for (Map.Entry<String, LatencyHistogram> command : entry.getValue().entrySet()) {
+				commands.computeIfAbsent(command.getKey(), key -> new LatencyHistogram()).add(command.getValue());
+			}
+		}
+		return selectors;
+	}
+
+	/**
+	 * Method to append a group of histograms as a JSON object.
+	 */
+	private static void appendHistograms(StringBuilder json, Map<String, LatencyHistogram> histograms, String indent) {
+		json.append('{');
+		String separator = "\n";
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			json.append(separator).append(indent).append("  ").append(quote(entry.getKey()))
+					.append(": {\"count\": ").append(histogram.getCount())
+					.append(", \"p50\": ").append(millis(histogram.getPercentile(50)))
+					.append(", \"p90\": ").append(millis(histogram.getPercentile(90)))
+					.append(", \"p99\": ").append(millis(histogram.getPercentile(99)))
+					.append(", \"max\": ").append(millis(histogram.getMax()))
+					.append('}');
+			separator = ",\n";
+		}
+		json.append('\n').append(indent).append('}');
+	}
+
+	/**
+	 * Method to format microseconds as milliseconds with 3 decimals.
+	 */
+	private static String millis(long micros) {
+		return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+	}
+
+	/**
+	 * Method to quote a text as a JSON string.
+	 */
+	static String quote(String text) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : text.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	SCOPE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Page and selector sending the commands of a thread.
+	 */
+	public static final class Scope {
+
+		/** Class of the Page. */
+		private final Class<?> page;
+
+		/** Selector or list of selectors used. */
+		private final Object selector;
+
+		private Scope(Class<?> page, Object selector) {
+			this.page = page;
+			this.selector = selector;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Scope)) {
+				return false;
+			}
+			Scope scope = (Scope) other;
+			return page == scope.page && Objects.equals(selector, scope.selector);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * page.hashCode() + Objects.hashCode(selector);
+		}
+
+		@Override
+		public String toString() {
+			return page.getSimpleName() + " > " + selector;
+		}
+	}
+}
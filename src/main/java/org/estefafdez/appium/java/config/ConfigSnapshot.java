@@ -0,0 +1,362 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.appium.java_client.remote.MobilePlatform;
+
+/**
+ * <p>
+ * This class is an immutable copy of the configuration file
+ * <b>test.properties</b>. It is built once when the file is loaded and it is
+ * shared by every worker without any lock. The values used on each test are
+ * parsed only once, and the keys of {@link ConstantConfig} missing on the file
+ * are reported only once, when it is loaded.
+ * </p>
+ * <p>
+ * The typed getters return the default value when the property is empty or its
+ * Maven placeholder was not replaced.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class ConfigSnapshot {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ConfigSnapshot.class);
+
+	/** Configuration without any property, used until the file is loaded. */
+	static final ConfigSnapshot EMPTY = new ConfigSnapshot(Collections.<String, String> emptyMap());
+
+	/** Value of each key of the file. */
+	private final Map<String, String> values;
+
+	/** Platform of the tests, null when it is not valid. */
+	private final Platform platform;
+
+	/** Path of the App under test. */
+	private final String appPath;
+
+	/** Seconds to wait for the elements. */
+	private final int waitElementTimeout;
+
+	/** Level of the Log, empty when it is not set. */
+	private final String logLevel;
+
+	/** State of the App needed by the tests without annotation. */
+	private final ResetPolicy resetPolicy;
+
+	/** If the read-only checks are answered from a snapshot of the page source. */
+	private final boolean snapshotMode;
+
+	/** Actions that forget the elements cached. */
+	private final SessionCache.Invalidation elementCache;
+
+	/** File of the latencies of the commands. */
+	private final String commandMetricsFile;
+
+	/** Chrome trace file of the start of the suite. */
+	private final String startupTraceFile;
+
+	/** If the changes of the file are applied during the suite. */
+	private final boolean watchConfig;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor that parses the values used on each test.
+	 *
+	 * @param values value of each key, it is not copied
+	 */
+	private ConfigSnapshot(Map<String, String> values) {
+		this.values = values;
+		this.platform = Platform.fromValue(values.get(ConstantConfig.PLATFORM_NAME));
+		this.appPath = values.getOrDefault(ConstantConfig.APP, StringUtils.EMPTY);
+		this.waitElementTimeout = (int) WaitEngine.parseTimeout(values.get(ConstantConfig.WAIT_ELEMENT_TIMEOUT));
+		this.logLevel = valueOf(ConstantConfig.LOG_LEVEL, StringUtils.EMPTY);
+		this.resetPolicy = ResetPolicy.fromValue(values.get(ConstantConfig.RESET_POLICY));
+		this.snapshotMode = Boolean.parseBoolean(values.get(ConstantConfig.SNAPSHOT_MODE));
+		this.elementCache = SessionCache.Invalidation.fromValue(values.get(ConstantConfig.ELEMENT_CACHE));
+		this.commandMetricsFile = valueOf(ConstantConfig.COMMAND_METRICS_FILE, CommandMetrics.DEFAULT_FILE);
+		this.startupTraceFile = valueOf(ConstantConfig.STARTUP_TRACE_FILE, StartupProfiler.DEFAULT_FILE);
+		this.watchConfig = Boolean.parseBoolean(values.get(ConstantConfig.WATCH_CONFIG));
+	}
+
+	/**
+	 * Method to build the configuration from the properties of the file, reporting
+	 * the keys of {@link ConstantConfig} missing on it.
+	 *
+	 * @param properties the properties of <b>test.properties</b>
+	 * @return the configuration
+	 */
+	static ConfigSnapshot of(Properties properties) {
+		Map<String, String> values = new HashMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			values.put(key, properties.getProperty(key));
+		}
+		List<String> missing = new ArrayList<>();
+		for (String key : getConfigKeys()) {
+			if (!values.containsKey(key)) {
+				missing.add(key);
+			}
+		}
+		if (!missing.isEmpty()) {
+			LOGGER.warn("[ Properties Configuration ] - The keys {} do not exist in the property: {}", missing,
+					ConstantConfig.CONFIG_FILE_PROP);
+		}
+		ConfigSnapshot snapshot = new ConfigSnapshot(Collections.unmodifiableMap(values));
+		if (snapshot.platform == null) {
+			LOGGER.warn("[ Properties Configuration ] - The platform [{}] is not valid",
+					values.get(ConstantConfig.PLATFORM_NAME));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Method to get the keys of the configuration declared on {@link ConstantConfig}.
+	 */
+	private static List<String> getConfigKeys() {
+		List<String> keys = new ArrayList<>();
+		for (Field field : ConstantConfig.class.getFields()) {
+			if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+				try {
+					String value = (String) field.get(null);
+					if (value.startsWith("config.")) {
+						keys.add(value);
+					}
+				} catch (IllegalAccessException ex) {
+					// the public constants are always accessible
+				}
+			}
+		}
+		return keys;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the value of a key as it is on the file.
+	 *
+	 * @param key the key, for example: config.platformName
+	 * @return the value or null when the key does not exist
+	 */
+	public String get(String key) {
+		return values.get(key);
+	}
+
+	/**
+	 * Method to get the value of a key when it is set.
+	 *
+	 * @param key the key
+	 * @param defaultValue the value when the key is empty, does not exist or its
+	 *            placeholder was not replaced
+	 * @return the value trimmed or the default value
+	 */
+	public String valueOf(String key, String defaultValue) {
+		String value = values.get(key);
+		return isSet(value) ? value.trim() : defaultValue;
+	}
+
+	/**
+	 * @return the platform of the tests, null when it is not valid
+	 */
+	public Platform getPlatform() {
+		return platform;
+	}
+
+	/**
+	 * @return the name of the platform as the Appium capability, for example: Android
+	 */
+	public String getPlatformName() {
+		return platform == null ? values.getOrDefault(ConstantConfig.PLATFORM_NAME, StringUtils.EMPTY)
+				: platform.getName();
+	}
+
+	/**
+	 * @return the path of the App under test, as it is on the file
+	 */
+	public String getAppPath() {
+		return appPath;
+	}
+
+	/**
+	 * @return the name of the capability profile, by default the one of the platform
+	 */
+	public String getCapabilityProfile() {
+		return valueOf(ConstantConfig.CAPABILITY_PROFILE,
+				platform == null ? StringUtils.EMPTY : platform.name().toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * @return the seconds to wait for the elements
+	 */
+	public int getWaitElementTimeout() {
+		return waitElementTimeout;
+	}
+
+	/**
+	 * @return the level of the Log, empty when it is not set
+	 */
+	public String getLogLevel() {
+		return logLevel;
+	}
+
+	/**
+	 * @return the policy that guarantees the state of the App needed by the tests
+	 *         without annotation
+	 */
+	public ResetPolicy getResetPolicy() {
+		return resetPolicy;
+	}
+
+	/**
+	 * @return true|false if the read-only checks are answered from a snapshot of the
+	 *         page source
+	 */
+	public boolean isSnapshotMode() {
+		return snapshotMode;
+	}
+
+	/**
+	 * @return the actions that forget the elements cached
+	 */
+	public SessionCache.Invalidation getElementCache() {
+		return elementCache;
+	}
+
+	/**
+	 * @return the file of the latencies of the commands
+	 */
+	public String getCommandMetricsFile() {
+		return commandMetricsFile;
+	}
+
+	/**
+	 * @return the Chrome trace file of the start of the suite
+	 */
+	public String getStartupTraceFile() {
+		return startupTraceFile;
+	}
+
+	/**
+	 * @return true|false if the changes of the file are applied during the suite
+	 */
+	public boolean isWatchConfig() {
+		return watchConfig;
+	}
+
+	/**
+	 * Method to get the keys whose value is different on other configuration.
+	 *
+	 * @param other the configuration to compare with
+	 * @return the keys added, removed or changed, sorted
+	 */
+	public Set<String> changedKeys(ConfigSnapshot other) {
+		Set<String> keys = new HashSet<>(values.keySet());
+		keys.addAll(other.values.keySet());
+		Set<String> changed = new TreeSet<>();
+		for (String key : keys) {
+			String value = values.get(key);
+			if (value == null ? other.values.get(key) != null : !value.equals(other.values.get(key))) {
+				changed.add(key);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Method to check if a value of the file is set.
+	 */
+	private static boolean isSet(String value) {
+		return value != null && !value.trim().isEmpty() && !value.contains("$");
+	}
+
+	/*--------------------------------------------------------------------*
+	|	PLATFORM
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Platforms supported by the framework.
+	 */
+	public enum Platform {
+
+		/** Android devices and emulators. */
+		ANDROID(MobilePlatform.ANDROID),
+
+		/** iOS devices and simulators. */
+		IOS(MobilePlatform.IOS);
+
+		/** Name of the platform as the Appium capability. */
+		private final String name;
+
+		Platform(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the name of the platform as the Appium capability, for example: Android
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Method to get the platform from its name on the configuration.
+		 *
+		 * @param value name of the platform, for example: Android
+		 * @return the platform or null when the value is not valid
+		 */
+		public static Platform fromValue(String value) {
+			for (Platform platform : values()) {
+				if (platform.name.equalsIgnoreCase(StringUtils.trim(value))) {
+					return platform;
+				}
+			}
+			return null;
+		}
+	}
+}
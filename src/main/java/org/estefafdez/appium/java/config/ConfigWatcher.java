@@ -0,0 +1,168 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>
+ * This class watches a file in background with a {@link WatchService} and runs an
+ * action each time it is saved. The events of the same save are joined, so the
+ * action runs once when the file is complete.
+ * </p>
+ * 
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+final class ConfigWatcher {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ConfigWatcher.class);
+
+	/** Milliseconds to wait for more events of the same save. */
+	private static final long SETTLE_TIME = 200;
+
+	/** File watched. */
+	private final Path file;
+
+	/** Action to run when the file changes. */
+	private final Runnable onChange;
+
+	/** Service notified by the file system. */
+	private final WatchService service;
+
+	/** Thread waiting for the events. */
+	private final Thread thread;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor that starts watching the file.
+	 * 
+	 * @param file the file to watch
+	 * @param onChange action to run when the file changes
+	 * @throws IOException when the folder of the file can not be watched
+	 */
+	ConfigWatcher(Path file, Runnable onChange) throws IOException {
+		this.file = file.toAbsolutePath().normalize();
+		this.onChange = onChange;
+		this.service = FileSystems.getDefault().newWatchService();
+		this.file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this::watch, "config-watcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO WATCH
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to wait for the events of the folder until the watcher is closed.
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				boolean changed = isFileChanged(key);
+				Thread.sleep(SETTLE_TIME);
+				WatchKey next;
+				while ((next = service.poll()) != null) {
+					changed |= isFileChanged(next);
+				}
+				if (changed) {
+					runAction();
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException ex) {
+			// the watcher was closed
+		}
+	}
+
+	/**
+	 * Method to check the events of a key, leaving it ready for new events.
+	 */
+	private boolean isFileChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (context instanceof Path && file.getFileName().equals(context)) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Method to run the action, so an error does not stop the watcher.
+	 */
+	private void runAction() {
+		try {
+			onChange.run();
+		} catch (RuntimeException ex) {
+			LOGGER.error("[ Config Watcher ] - The changes of {} could not be applied", file, ex);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to stop watching the file.
+	 */
+	void close() {
+		try {
+			service.close();
+		} catch (IOException ex) {
+			LOGGER.debug("[ Config Watcher ] - The watcher could not be closed: {}", ex.getMessage());
+		}
+		thread.interrupt();
+	}
+
+	/**
+	 * @return the file watched
+	 */
+	Path getFile() {
+		return file;
+	}
+}
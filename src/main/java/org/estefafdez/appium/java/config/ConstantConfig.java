@@ -74,6 +74,227 @@ public final class ConstantConfig {
 	 */
 	public static final String APP = "config.app";
 	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the name of the capability profile: the file of the folder
+	 * <b>capabilities</b> with the Desired Capabilities of a class of devices.
+	 * Each profile is checked and cached once for every session built with it.
+	 * This value <b> is not mandatory </b>, by default it is the one of the platform
+	 * 
+	 * <pre>
+	 * Example of value: android | ios
+	 * </pre>
+	 */
+	public static final String CAPABILITY_PROFILE = "config.capabilityProfile";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the kind of mobile device or emulator to use.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: emulator_27 | iPhone 7
+	 * </pre>
+	 */
+	public static final String DEVICE_NAME = "config.deviceName";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the version of the O.S. of the device.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: 8.1.0 | 11.3
+	 * </pre>
+	 */
+	public static final String PLATFORM_VERSION = "config.platformVersion";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define if the device is reset before the session starts.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: true | false
+	 * </pre>
+	 */
+	public static final String DEVICE_FULL_RESET = "config.deviceFullReset";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the Java package of the Android App under test.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: com.example.estefafdez.myfirstandroidapp
+	 * </pre>
+	 */
+	public static final String APP_PACKAGE = "config.appPackage";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the Android activity to launch from the package.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: .MainActivity
+	 * </pre>
+	 */
+	public static final String APP_ACTIVITY = "config.androidAppActivity";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the Android activity to wait for after the launch.
+	 * This value <b> is not mandatory </b>, by default it is the one of the profile
+	 * 
+	 * <pre>
+	 * Example of value: .MainActivity
+	 * </pre>
+	 */
+	public static final String APP_WAIT_ACTIVITY = "config.androidAppWaitActivity";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the list of devices, separated by commas, used to run the
+	 * tests in parallel. Each worker of the suite takes one of them.
+	 * This value <b> is not mandatory </b>
+	 * 
+	 * <pre>
+	 * Example of value: emulator-5554,emulator-5556
+	 * </pre>
+	 */
+	public static final String DEVICE_UDIDS = "config.deviceUdids";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the Appium Server used by the tests. When it is empty a local
+	 * server is launched for each device, <b>fake</b> starts the in-process fake
+	 * server, and any other value is the URL of a server already running.
+	 * This value <b> is not mandatory </b>
+	 * 
+	 * <pre>
+	 * Example of value: http://127.0.0.1:4723/wd/hub | fake
+	 * </pre>
+	 */
+	public static final String APPIUM_SERVER = "config.appiumServer";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define if the local Appium Servers are kept running after the
+	 * run, so the next runs attach to them instead of starting new ones.
+	 * This value <b> is not mandatory </b>, by default it is false.
+	 * 
+	 * <pre>
+	 * Example of value: true | false
+	 * </pre>
+	 */
+	public static final String APPIUM_SERVER_DAEMON = "config.appiumServerDaemon";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the port of the local Appium Server of the first device. The
+	 * server of each device listens on this port plus the position of the device
+	 * on <b>config.deviceUdids</b>, or on any free port when it is busy.
+	 * This value <b> is not mandatory </b>, by default it is 4723.
+	 * 
+	 * <pre>
+	 * Example of value: 4723
+	 * </pre>
+	 */
+	public static final String APPIUM_SERVER_BASE_PORT = "config.appiumServerBasePort";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the maximum number of devices leased by each JVM, so several
+	 * forks of surefire share the devices of <b>config.deviceUdids</b>.
+	 * This value <b> is not mandatory </b>, by default each JVM leases every free device.
+	 * 
+	 * <pre>
+	 * Example of value: 2
+	 * </pre>
+	 */
+	public static final String DEVICES_PER_FORK = "config.devicesPerFork";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the maximum seconds to wait for a device leased by another
+	 * JVM.
+	 * This value <b> is not mandatory </b>, by default it is 600.
+	 * 
+	 * <pre>
+	 * Example of value: 600
+	 * </pre>
+	 */
+	public static final String DEVICE_LEASE_TIMEOUT = "config.deviceLeaseTimeout";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the classpath folder with the screens of the App used by the
+	 * fake Appium Server. By default it is fake/ and the platform name.
+	 * This value <b> is not mandatory </b>
+	 * 
+	 * <pre>
+	 * Example of value: fake/android
+	 * </pre>
+	 */
+	public static final String FAKE_SERVER_MODEL = "config.fakeServerModel";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the latency in milliseconds of the commands of the fake Appium
+	 * Server: a default value and the value of some commands.
+	 * This value <b> is not mandatory </b>
+	 * 
+	 * <pre>
+	 * Example of value: 80,findElement=150,source=400,screenshot=300
+	 * </pre>
+	 */
+	public static final String FAKE_SERVER_LATENCY = "config.fakeServerLatency";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the maximum random milliseconds added to the latency of each
+	 * command of the fake Appium Server.
+	 * This value <b> is not mandatory </b>
+	 * 
+	 * <pre>
+	 * Example of value: 40
+	 * </pre>
+	 */
+	public static final String FAKE_SERVER_JITTER = "config.fakeServerJitter";
+	
 	/*--------------------------------------------------------------------* 
 	|							CUSTOM ERRORS
 	*---------------------------------------------------------------------*/
@@ -170,6 +391,156 @@ public final class ConstantConfig {
      */
 	public static final String WAIT_ELEMENT_TIMEOUT="config.waitElementTimeout";
 	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define the state of the App needed by the tests without a
+	 * {@link StartState}: the one guaranteed by this {@link ResetPolicy}. Before each
+	 * test the cheapest policy that guarantees it is applied.
+	 * This value <b> is not mandatory </b>, by default the App is reset.
+	 * 
+	 * <pre>
+	 * Example of value: RESET_APP | CLEAR_APP_DATA | TERMINATE_ACTIVATE | NONE
+	 * </pre>
+     * 
+     */
+	public static final String RESET_POLICY = "config.resetPolicy";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant enables the snapshot mode: the visibility and attribute checks
+	 * are answered from one read of the page source until an action changes the
+	 * screen, instead of asking the device for each one.
+	 * This value <b> is not mandatory </b>, by default it is disabled.
+	 * 
+	 * <pre>
+	 * Example of value: true | false
+	 * </pre>
+     * 
+     */
+	public static final String SNAPSHOT_MODE = "config.snapshotMode";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant defines which actions forget the elements cached for the
+	 * session. The stale elements are always found again.
+	 * This value <b> is not mandatory </b>, by default it is ON_CLICK.
+	 * 
+	 * <pre>
+	 * Example of value: DISABLED | ON_ACTION | ON_CLICK | NEVER
+	 * </pre>
+     * 
+     */
+	public static final String ELEMENT_CACHE = "config.elementCache";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define the JSON file where the latencies of the commands sent
+	 * to the Appium Servers are written at the end of the suite.
+	 * This value <b> is not mandatory </b>, by default it is target/command-latencies.json.
+	 * 
+	 * <pre>
+	 * Example of value: target/command-latencies.json
+	 * </pre>
+     * 
+     */
+	public static final String COMMAND_METRICS_FILE = "config.commandMetricsFile";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the Chrome trace file with the time of each phase of the
+	 * start of the suite: the configuration, the Appium Servers and the sessions.
+	 * This value <b> is not mandatory </b>, by default it is target/startup-trace.json
+	 * 
+	 * <pre>
+	 * Example of value: target/startup-trace.json
+	 * </pre>
+	 */
+	public static final String STARTUP_TRACE_FILE = "config.startupTraceFile";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant is the file with the duration of each test on the last runs,
+	 * used to start the suite with the longest tests. It should be kept between
+	 * the runs, out of the target folder.
+	 * This value <b> is not mandatory </b>, by default it is test-durations.tsv
+	 * 
+	 * <pre>
+	 * Example of value: test-durations.tsv
+	 * </pre>
+	 */
+	public static final String DURATION_HISTORY_FILE = "config.durationHistoryFile";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define the folder of the screenshots of the failed tests.
+	 * This value <b> is not mandatory </b>, by default it is screenshot.
+	 * 
+	 * <pre>
+	 * Example of value: target/screenshot
+	 * </pre>
+     * 
+     */
+	public static final String SCREENSHOT_FOLDER = "config.screenshotFolder";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define the maximum megabytes of the screenshot folder. The
+	 * screenshots used less recently are removed first.
+	 * This value <b> is not mandatory </b>, by default it is 500.
+	 * 
+	 * <pre>
+	 * Example of value: 500
+	 * </pre>
+     * 
+     */
+	public static final String SCREENSHOT_MAX_SIZE = "config.screenshotMaxSize";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define the days a screenshot is kept since it was last used.
+	 * This value <b> is not mandatory </b>, by default it is 14.
+	 * 
+	 * <pre>
+	 * Example of value: 14
+	 * </pre>
+     * 
+     */
+	public static final String SCREENSHOT_MAX_AGE = "config.screenshotMaxAge";
+	
+	/**
+	 * Key to be used in the {@link PropertiesManager} to get the value of 
+	 * the pom.xml.
+	 * <p>
+	 * This constant define if the configuration file is watched during the suite,
+	 * so its changes are applied without restarting it: the log level, the wait
+	 * timeout, the reset policy and the values read by the new Pages.
+	 * This value <b> is not mandatory </b>, by default it is false.
+	 * 
+	 * <pre>
+	 * Example of value: true | false
+	 * </pre>
+     * 
+     */
+	public static final String WATCH_CONFIG = "config.watchConfig";
+	
 	/*--------------------------------------------------------------------* 
 	|							SERVER LEVEL LOG
 	*---------------------------------------------------------------------*/
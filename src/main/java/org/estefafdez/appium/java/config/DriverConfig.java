@@ -24,6 +24,7 @@ import java.net.URL;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.ConfigSnapshot.Platform;
 import org.estefafdez.appium.java.utils.AppiumServerHandler;
 import org.estefafdez.appium.java.utils.CustomErrorException;
 import org.openqa.selenium.remote.DesiredCapabilities;
@@ -32,7 +33,6 @@ import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.ios.IOSDriver;
-import io.appium.java_client.remote.MobilePlatform;
 
 /**
  * <p>
@@ -66,26 +66,28 @@ public class DriverConfig {
 	 * @throws CustomErrorException custom error exception
 	 */
 	public static AppiumDriver<MobileElement> buildInstance(DesiredCapabilities caps) throws CustomErrorException {	
-		/** Generic Driver to build the selected platform */
-		AppiumDriver<MobileElement> driver = null;
-		
+		return buildInstance(caps, AppiumServerHandler.getAppiumServerUrl());
+	}
+
+	/**
+	 * Method to build a new Appium Driver instance on the given Appium Server URL with the Desired
+	 * @param caps the desiredCapabilities. 
+	 * @param appiumServerUrl the URL of the Appium Server. 
+	 * @return the instance of the Driver
+	 * @throws CustomErrorException custom error exception
+	 */
+	public static AppiumDriver<MobileElement> buildInstance(DesiredCapabilities caps, String appiumServerUrl) throws CustomErrorException {	
 		try {
 			/** Set the server URL */
-			URL serverUrl = new URL(AppiumServerHandler.getAppiumServerUrl());
+			URL serverUrl = new URL(appiumServerUrl);
 
 			LOGGER.info("[ Driver Configuration ] - Set Up the Driver intance");
-			/** Check the platform selected  */
-			if((MobilePlatform.IOS).equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-				/** Build Android Driver */
-				driver = new IOSDriver<>(serverUrl, caps);
-			} else if((MobilePlatform.ANDROID).equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-				/** Build IOS Driver */
-				driver = new AndroidDriver<>(serverUrl, caps);
-			} else {
-				throw new CustomErrorException(ConstantConfig.DRIVER_TYPE_NOT_CORRECT_EXCEPTION);
-			}
-			
-			return driver;
+			/** Build the executor that sends the commands */
+			InstrumentedCommandExecutor executor = StartupProfiler.time("buildInstance: commandExecutor",
+					() -> new InstrumentedCommandExecutor(serverUrl));
+
+			/** Check the platform selected and create the session */
+			return StartupProfiler.time("buildInstance: newSession", () -> newDriver(executor, caps));
 			
 		} catch (MalformedURLException ex) {
 			throw new CustomErrorException("The server URL is malformed", ex);
@@ -96,4 +98,24 @@ public class DriverConfig {
 			throw new CustomErrorException("Unexpected problem", ex);
 		}
 	}
+
+	/**
+	 * Method to create the session of the selected platform.
+	 * @param executor the executor that sends the commands. 
+	 * @param caps the desiredCapabilities. 
+	 * @return the instance of the Driver
+	 * @throws CustomErrorException when the platform is not valid
+	 */
+	private static AppiumDriver<MobileElement> newDriver(InstrumentedCommandExecutor executor, DesiredCapabilities caps)
+			throws CustomErrorException {
+		if (handler.getConfig().getPlatform() == Platform.IOS) {
+			/** Build IOS Driver */
+			return new IOSDriver<>(executor, caps);
+		} else if (handler.getConfig().getPlatform() == Platform.ANDROID) {
+			/** Build Android Driver */
+			return new AndroidDriver<>(executor, caps);
+		} else {
+			throw new CustomErrorException(ConstantConfig.DRIVER_TYPE_NOT_CORRECT_EXCEPTION);
+		}
+	}
 }
@@ -0,0 +1,104 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.AppiumServerHandler;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+
+/**
+ * <p>
+ * This class keeps the Appium session used by each TestNG worker thread, so the
+ * test methods can run in parallel, each one against its own device. The sessions
+ * are borrowed from the {@link SessionPool}.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class DriverManager {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(DriverManager.class);
+
+	/** Session borrowed by the current worker thread. */
+	private static final ThreadLocal<PooledSession> SESSION = new ThreadLocal<>();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private DriverManager() {}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO HANDLE THE DRIVERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the driver of the current worker thread.
+	 *
+	 * @return the driver of the worker or null if it has not borrowed any session.
+	 */
+	public static AppiumDriver<MobileElement> getDriver() {
+		PooledSession session = SESSION.get();
+		return session == null ? null : session.getDriver();
+	}
+
+	/**
+	 * Method to borrow a session from the pool for the current worker thread. The
+	 * Appium Server of the session is bound to the worker too.
+	 *
+	 * @param required the state of the App needed by the test
+	 * @return the driver of the worker.
+	 * @throws CustomErrorException when there is not any session available
+	 */
+	public static AppiumDriver<MobileElement> borrowDriver(AppState required) throws CustomErrorException {
+		PooledSession session = SESSION.get();
+		if (session == null) {
+			session = SessionPool.borrow(required);
+			LOGGER.info("[ Driver Configuration ] - The thread {} is using the session of the server {}",
+					Thread.currentThread().getName(), session.getServer().getIndex());
+			SESSION.set(session);
+			AppiumServerHandler.bindAppiumServer(session.getServer());
+		}
+		return session.getDriver();
+	}
+
+	/**
+	 * Method to give back the session of the current worker thread to the pool.
+	 */
+	public static void releaseDriver() {
+		PooledSession session = SESSION.get();
+		if (session != null) {
+			SESSION.remove();
+			AppiumServerHandler.unbindAppiumServer();
+			SessionPool.release(session);
+		}
+	}
+}
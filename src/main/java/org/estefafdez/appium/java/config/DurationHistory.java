@@ -0,0 +1,242 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.ArtifactWriter;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+
+/**
+ * <p>
+ * This class keeps the duration of each test on each capability profile, so the
+ * next runs can start with the longest tests. Each execution adds a line to a
+ * file, written in background:
+ * </p>
+ *
+ * <pre>
+ * 2018-05-02T10:15:30Z	android	org.estefafdez.appium.java.AndroidHomeTestSet#testAndroidExample	41250
+ * </pre>
+ * <p>
+ * The lines are joined on an estimate per test that gives more weight to the last
+ * executions, and the file is rewritten with one line per test by the
+ * {@link ShardPlanner} or the {@link TestCoordinator} when most of its lines are
+ * old, before any worker writes on it.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class DurationHistory {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(DurationHistory.class);
+
+	/** File used when the history file is not configured. */
+	public static final String DEFAULT_FILE = "test-durations.tsv";
+
+	/** Weight of the last execution on the estimate of a test. */
+	private static final double LAST_WEIGHT = 0.3;
+
+	/** Lines per test from which the file is rewritten. */
+	private static final int COMPACT_RATIO = 4;
+
+	/** History of the configuration, null until it is used. */
+	private static DurationHistory instance;
+
+	/** File of the history. */
+	private final Path file;
+
+	/** Estimated milliseconds of each test, by profile and test. */
+	private final Map<String, Long> estimates = new ConcurrentHashMap<>();
+
+	/** Lines of the file when it was read. */
+	private final int lines;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor that reads the history.
+	 *
+	 * @param file file of the history, it does not need to exist
+	 */
+	public DurationHistory(Path file) {
+		this.file = file;
+		this.lines = load();
+		LOGGER.info("[ Duration History ] - History of {} tests read from: {}", estimates.size(), file);
+	}
+
+	/**
+	 * Method to get the history of the configuration, reading it the first time.
+	 *
+	 * @return the history
+	 */
+	public static synchronized DurationHistory getInstance() {
+		if (instance == null) {
+			PropertiesManager handler = PropertiesManager.getInstance();
+			try {
+				handler.loadPropertiesMatrix(ConstantConfig.CONFIG_FILE_PROP);
+			} catch (CustomErrorException ex) {
+				LOGGER.warn("[ Duration History ] - The configuration can not be read: {}", ex.getMessage());
+			}
+			instance = new DurationHistory(
+					Paths.get(handler.getConfig().valueOf(ConstantConfig.DURATION_HISTORY_FILE, DEFAULT_FILE)));
+		}
+		return instance;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO RECORD
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to record the duration of an execution of a test on the current
+	 * capability profile.
+	 *
+	 * @param test the test, for example: org.estefafdez.appium.java.AndroidHomeTestSet#testAndroidExample
+	 * @param millis the duration of the execution
+	 */
+	public void record(String test, long millis) {
+		String profile = getProfile();
+		estimates.merge(key(profile, test), millis, DurationHistory::estimate);
+		String line = Instant.now() + "\t" + key(profile, test) + "\t" + millis + "\n";
+		ArtifactWriter.append(file, line.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Method to get the estimated duration of a test on the current capability
+	 * profile.
+	 *
+	 * @param test the test
+	 * @return the estimated milliseconds, -1 when the test was never executed
+	 */
+	public long getEstimate(String test) {
+		Long estimate = estimates.get(key(getProfile(), test));
+		return estimate == null ? -1 : estimate;
+	}
+
+	/**
+	 * Method to join the estimate of a test with a new execution.
+	 */
+	private static Long estimate(Long previous, Long last) {
+		return Math.round(previous * (1 - LAST_WEIGHT) + last * LAST_WEIGHT);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO READ THE FILE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to read the lines of the file.
+	 *
+	 * @return the number of lines
+	 */
+	private int load() {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		try {
+			List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			for (String line : lines) {
+				String[] fields = line.split("\t");
+				if (fields.length == 4) {
+					try {
+						estimates.merge(key(fields[1], fields[2]), Long.parseLong(fields[3]), DurationHistory::estimate);
+					} catch (NumberFormatException ex) {
+						// a line cut by a crashed run
+					}
+				}
+			}
+			return lines.size();
+		} catch (IOException ex) {
+			LOGGER.warn("[ Duration History ] - The history could not be read: {}", file, ex);
+			return 0;
+		}
+	}
+
+	/**
+	 * Method to rewrite the file with one line per test and profile when most of its
+	 * lines are old. The lines appended by other JVM while the file is rewritten are
+	 * lost, so it must be called only when no worker is running, as the
+	 * {@link ShardPlanner} and the {@link TestCoordinator} do before starting them.
+	 */
+	public void compact() {
+		if (lines <= COMPACT_RATIO * estimates.size()) {
+			return;
+		}
+		String now = Instant.now().toString();
+		List<String> lines = new ArrayList<>(estimates.size());
+		for (Map.Entry<String, Long> entry : estimates.entrySet()) {
+			lines.add(now + "\t" + entry.getKey() + "\t" + entry.getValue());
+		}
+		try {
+			Path temporal = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.write(temporal, lines, StandardCharsets.UTF_8);
+			Files.move(temporal, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			LOGGER.warn("[ Duration History ] - The history could not be compacted: {}", file, ex);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	UTILS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the capability profile of the configuration.
+	 */
+	private static String getProfile() {
+		return PropertiesManager.getInstance().getConfig().getCapabilityProfile();
+	}
+
+	/**
+	 * Method to get the key of a test on a profile, as it is written on the file.
+	 */
+	private static String key(String profile, String test) {
+		return clean(profile) + "\t" + clean(test);
+	}
+
+	/**
+	 * Method to remove the tabs and line breaks of a field of the file.
+	 */
+	private static String clean(String field) {
+		return field == null ? "" : field.replaceAll("[\\t\\r\\n]", " ");
+	}
+}
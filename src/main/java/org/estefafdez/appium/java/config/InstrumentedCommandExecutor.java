@@ -0,0 +1,66 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.net.URL;
+
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Response;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+
+/**
+ * <p>
+ * This class sends the commands of a driver to its Appium Server as usual, and
+ * records the latency of each one on the {@link CommandMetrics}. The latency is
+ * the whole round trip: our client, the Appium Server and the device.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class InstrumentedCommandExecutor extends AppiumCommandExecutor {
+
+	/**
+	 * Constructor of the executor of an Appium Server.
+	 *
+	 * @param appiumServerUrl the URL of the Appium Server
+	 */
+	public InstrumentedCommandExecutor(URL appiumServerUrl) {
+		super(MobileCommand.commandRepository, appiumServerUrl);
+	}
+
+	@Override
+	public Response execute(Command command) {
+		long start = System.nanoTime();
+		try {
+			return super.execute(command);
+		} finally {
+			CommandMetrics.record(command.getName(), System.nanoTime() - start);
+		}
+	}
+}
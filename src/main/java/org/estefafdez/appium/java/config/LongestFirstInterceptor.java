@@ -0,0 +1,113 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+
+/**
+ * <p>
+ * This interceptor sorts the tests by their duration on the last runs, the
+ * longest first, read from the {@link DurationHistory}. The workers of the suite
+ * take the next test as soon as they finish the previous one, so the short tests
+ * fill the gaps at the end of the run instead of one long test keeping a device
+ * busy while the others are idle.
+ * </p>
+ * <p>
+ * The tests without history get the average duration of the others. The order of
+ * the suite is kept when any test depends on another one.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class LongestFirstInterceptor implements IMethodInterceptor {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(LongestFirstInterceptor.class);
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		for (IMethodInstance method : methods) {
+			ITestNGMethod testMethod = method.getMethod();
+			if (testMethod.getMethodsDependedUpon().length > 0 || testMethod.getGroupsDependedUpon().length > 0) {
+				LOGGER.info("[ Test Scheduler ] - The tests of {} have dependencies, keeping the order of the suite",
+						context.getName());
+				return methods;
+			}
+		}
+
+		DurationHistory history = DurationHistory.getInstance();
+		Map<IMethodInstance, Long> estimates = new HashMap<>();
+		long total = 0;
+		int known = 0;
+		for (IMethodInstance method : methods) {
+			long estimate = history.getEstimate(getTestName(method.getMethod()));
+			estimates.put(method, estimate);
+			if (estimate >= 0) {
+				total += estimate;
+				known++;
+			}
+		}
+		long average = known == 0 ? 0 : total / known;
+		for (Map.Entry<IMethodInstance, Long> entry : estimates.entrySet()) {
+			if (entry.getValue() < 0) {
+				entry.setValue(average);
+			}
+		}
+
+		List<IMethodInstance> sorted = new ArrayList<>(methods);
+		sorted.sort(Comparator.comparing((IMethodInstance method) -> estimates.get(method)).reversed());
+		LOGGER.info("[ Test Scheduler ] - {} tests of {} sorted by duration, {} without history", sorted.size(),
+				context.getName(), sorted.size() - known);
+		if (LOGGER.isDebugEnabled()) {
+			for (IMethodInstance method : sorted) {
+				LOGGER.debug("\t{} ms\t{}", estimates.get(method), getTestName(method.getMethod()));
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * Method to get the name of a test on the {@link DurationHistory}.
+	 *
+	 * @param method the test method
+	 * @return the name, for example: org.estefafdez.appium.java.AndroidHomeTestSet#testAndroidExample
+	 */
+	public static String getTestName(ITestNGMethod method) {
+		return method.getRealClass().getName() + "#" + method.getMethodName();
+	}
+}
@@ -0,0 +1,412 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>
+ * This class is a snapshot of the screen built from one call to the page source
+ * of the session. It answers which elements are on the screen and the value of
+ * their attributes, by the same ID or Xpath used on the selectors, without more
+ * requests to the device.
+ * </p>
+ * <p>
+ * The IDs are indexed while the page source is read, keeping only the attributes
+ * of the elements with an ID: the resource-id on Android and the name on iOS, the
+ * same matched by {@code By.id}. The accessibility IDs, the content-desc on Android
+ * and the name on iOS, have their own index. The Xpath queries need the whole tree, so it is only
+ * built the first time one of them is asked.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class PageSourceSnapshot {
+
+	/** Separator between the package and the ID on the Android resource-id. */
+	private static final String ANDROID_ID_SEPARATOR = ":id/";
+
+	/** Parser for each thread, the parsers are not thread safe. */
+	private static final ThreadLocal<SAXParser> PARSER = new ThreadLocal<>();
+
+	/** Names used by the driver for some attributes and their name on the page source. */
+	private static final Map<String, String> ATTRIBUTE_ALIASES = new HashMap<>();
+
+	static {
+		ATTRIBUTE_ALIASES.put("resourceId", "resource-id");
+		ATTRIBUTE_ALIASES.put("contentDescription", "content-desc");
+		ATTRIBUTE_ALIASES.put("className", "class");
+		ATTRIBUTE_ALIASES.put("longClickable", "long-clickable");
+	}
+
+	/** Page source the snapshot was built from, needed for the Xpath queries. */
+	private final String pageSource;
+
+	/** First element with each ID, in the same order as the page source. */
+	private final Map<String, SnapshotElement> elements;
+
+	/** First element with each accessibility ID. */
+	private final Map<String, SnapshotElement> accessibilityElements;
+
+	/** Tree of the page source, built on the first Xpath query. */
+	private Document document;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	private PageSourceSnapshot(String pageSource, Map<String, SnapshotElement> elements,
+			Map<String, SnapshotElement> accessibilityElements) {
+		this.pageSource = pageSource;
+		this.elements = elements;
+		this.accessibilityElements = accessibilityElements;
+	}
+
+	/**
+	 * Method to build the snapshot from the page source.
+	 *
+	 * @param pageSource XML of the page source of the session
+	 * @return the snapshot
+	 * @throws CustomErrorException when the page source is not a valid XML
+	 */
+	public static PageSourceSnapshot parse(String pageSource) throws CustomErrorException {
+		final Map<String, SnapshotElement> elements = new HashMap<>(256);
+		final Map<String, SnapshotElement> accessibilityElements = new HashMap<>(256);
+		try {
+			getParser().parse(new InputSource(new StringReader(pageSource)), new DefaultHandler() {
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes attributes) {
+					String resourceId = attributes.getValue("resource-id");
+					String contentDesc = attributes.getValue("content-desc");
+					String name = attributes.getValue("name");
+					if (isEmpty(resourceId) && isEmpty(contentDesc) && isEmpty(name)) {
+						return;
+					}
+					SnapshotElement element = SnapshotElement.of(attributes);
+					/** iOS has not resource-id nor content-desc, the name is both */
+					putId(elements, isEmpty(resourceId) ? name : resourceId, element);
+					putId(accessibilityElements, isEmpty(contentDesc) ? name : contentDesc, element);
+				}
+			});
+		} catch (SAXException | IOException | ParserConfigurationException ex) {
+			throw new CustomErrorException("[ Page Source error ] - The page source could not be parsed", ex);
+		}
+		return new PageSourceSnapshot(pageSource, elements, accessibilityElements);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	QUERIES BY ID
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to check if there is an element with the given ID.
+	 *
+	 * @param id ID of the element, the same used on {@code By.id}
+	 * @return true|false if the element is on the page source
+	 */
+	public boolean contains(String id) {
+		return elements.containsKey(id);
+	}
+
+	/**
+	 * Method to check if the first element with the given ID is visible.
+	 *
+	 * @param id ID of the element, the same used on {@code By.id}
+	 * @return true|false if the element is visible
+	 */
+	public boolean isVisible(String id) {
+		SnapshotElement element = elements.get(id);
+		return element != null && element.isVisible();
+	}
+
+	/**
+	 * Method to get the IDs of the list that are not visible.
+	 *
+	 * @param ids IDs of the elements to check
+	 * @return the IDs not visible, empty if all of them are
+	 */
+	public List<String> getNotVisible(Collection<String> ids) {
+		List<String> missing = new ArrayList<>();
+		for (String id : ids) {
+			if (!isVisible(id)) {
+				missing.add(id);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Method to get the value of an attribute of the first element with the given ID.
+	 *
+	 * @param id ID of the element, the same used on {@code By.id}
+	 * @param attribute name of the attribute
+	 * @return the value of the attribute, null if the element or the attribute do not exist
+	 */
+	public String getAttribute(String id, String attribute) {
+		SnapshotElement element = elements.get(id);
+		return element == null ? null : element.getAttribute(toSourceName(attribute));
+	}
+
+	/*--------------------------------------------------------------------*
+	|	QUERIES BY ACCESSIBILITY ID
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to check if there is an element with the given accessibility ID.
+	 *
+	 * @param accessibilityId accessibility ID of the element, the same used on
+	 *            {@code MobileBy.AccessibilityId}
+	 * @return true|false if the element is on the page source
+	 */
+	public boolean containsByAccessibilityId(String accessibilityId) {
+		return accessibilityElements.containsKey(accessibilityId);
+	}
+
+	/**
+	 * Method to check if the first element with the given accessibility ID is visible.
+	 *
+	 * @param accessibilityId accessibility ID of the element
+	 * @return true|false if the element is visible
+	 */
+	public boolean isVisibleByAccessibilityId(String accessibilityId) {
+		SnapshotElement element = accessibilityElements.get(accessibilityId);
+		return element != null && element.isVisible();
+	}
+
+	/**
+	 * Method to get the value of an attribute of the first element with the given
+	 * accessibility ID.
+	 *
+	 * @param accessibilityId accessibility ID of the element
+	 * @param attribute name of the attribute
+	 * @return the value of the attribute, null if the element or the attribute do not exist
+	 */
+	public String getAttributeByAccessibilityId(String accessibilityId, String attribute) {
+		SnapshotElement element = accessibilityElements.get(accessibilityId);
+		return element == null ? null : element.getAttribute(toSourceName(attribute));
+	}
+
+	/*--------------------------------------------------------------------*
+	|	QUERIES BY XPATH
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to check if there is an element for the given Xpath.
+	 *
+	 * @param xpath Xpath of the element
+	 * @return true|false if the element is on the page source
+	 * @throws CustomErrorException when the Xpath is not valid
+	 */
+	public boolean containsByXpath(String xpath) throws CustomErrorException {
+		return findByXpath(xpath) != null;
+	}
+
+	/**
+	 * Method to check if the first element for the given Xpath is visible.
+	 *
+	 * @param xpath Xpath of the element
+	 * @return true|false if the element is visible
+	 * @throws CustomErrorException when the Xpath is not valid
+	 */
+	public boolean isVisibleByXpath(String xpath) throws CustomErrorException {
+		Element element = findByXpath(xpath);
+		return element != null && isVisible(element.getAttribute("displayed"), element.getAttribute("visible"));
+	}
+
+	/**
+	 * Method to get the value of an attribute of the first element for the given Xpath.
+	 *
+	 * @param xpath Xpath of the element
+	 * @param attribute name of the attribute
+	 * @return the value of the attribute, null if the element or the attribute do not exist
+	 * @throws CustomErrorException when the Xpath is not valid
+	 */
+	public String getAttributeByXpath(String xpath, String attribute) throws CustomErrorException {
+		Element element = findByXpath(xpath);
+		String name = toSourceName(attribute);
+		return element == null || !element.hasAttribute(name) ? null : element.getAttribute(name);
+	}
+
+	/**
+	 * Method to find the first element for the Xpath on the tree of the page source.
+	 *
+	 * @param xpath Xpath of the element
+	 * @return the element or null if there is not any
+	 * @throws CustomErrorException when the Xpath is not valid
+	 */
+	private synchronized Element findByXpath(String xpath) throws CustomErrorException {
+		try {
+			if (document == null) {
+				DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+				factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+				factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+				document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(pageSource)));
+			}
+			Object node = XPathFactory.newInstance().newXPath().evaluate(xpath, document, XPathConstants.NODE);
+			return node instanceof Element ? (Element) node : null;
+		} catch (XPathExpressionException ex) {
+			throw new CustomErrorException("[ Page Source error ] - The Xpath is not valid: " + xpath, ex);
+		} catch (SAXException | IOException | ParserConfigurationException ex) {
+			throw new CustomErrorException("[ Page Source error ] - The page source could not be parsed", ex);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	PARSING
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to check the visibility attribute, <b>displayed</b> on Android and
+	 * <b>visible</b> on iOS. Elements without it are visible.
+	 *
+	 * @param displayed value of the Android attribute
+	 * @param visible value of the iOS attribute
+	 * @return true|false if the element is visible
+	 */
+	static boolean isVisible(String displayed, String visible) {
+		String value = isEmpty(displayed) ? visible : displayed;
+		return isEmpty(value) || Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Method to add an ID to the index, keeping the first element with it. The
+	 * Android resource-id is added with and without its package, both are valid on
+	 * {@code By.id}.
+	 *
+	 * @param elements the index
+	 * @param id the ID, null or empty are ignored
+	 * @param element the element with the ID
+	 */
+	private static void putId(Map<String, SnapshotElement> elements, String id, SnapshotElement element) {
+		if (isEmpty(id)) {
+			return;
+		}
+		elements.putIfAbsent(id, element);
+		int separator = id.indexOf(ANDROID_ID_SEPARATOR);
+		if (separator > 0) {
+			elements.putIfAbsent(id.substring(separator + ANDROID_ID_SEPARATOR.length()), element);
+		}
+	}
+
+	private static String toSourceName(String attribute) {
+		String name = ATTRIBUTE_ALIASES.get(attribute);
+		return name == null ? attribute : name;
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	/**
+	 * Method to get the parser of the current thread. External entities are disabled.
+	 *
+	 * @return the parser
+	 * @throws ParserConfigurationException when the parser can not be created
+	 * @throws SAXException when the parser can not be created
+	 */
+	private static SAXParser getParser() throws ParserConfigurationException, SAXException {
+		SAXParser parser = PARSER.get();
+		if (parser == null) {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			parser = factory.newSAXParser();
+			PARSER.set(parser);
+		} else {
+			parser.reset();
+		}
+		return parser;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	ELEMENT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Attributes of one element of the page source, stored as a flat array of
+	 * names and values to keep the snapshot small.
+	 */
+	private static final class SnapshotElement {
+
+		/** Names and values: name, value, name, value... */
+		private final String[] attributes;
+
+		/** Visibility of the element. */
+		private final boolean visible;
+
+		private SnapshotElement(String[] attributes, boolean visible) {
+			this.attributes = attributes;
+			this.visible = visible;
+		}
+
+		private static SnapshotElement of(Attributes source) {
+			String[] attributes = new String[source.getLength() * 2];
+			for (int i = 0; i < source.getLength(); i++) {
+				attributes[i * 2] = source.getQName(i);
+				attributes[i * 2 + 1] = source.getValue(i);
+			}
+			return new SnapshotElement(attributes,
+					PageSourceSnapshot.isVisible(source.getValue("displayed"), source.getValue("visible")));
+		}
+
+		private boolean isVisible() {
+			return visible;
+		}
+
+		private String getAttribute(String name) {
+			for (int i = 0; i < attributes.length; i += 2) {
+				if (attributes[i].equals(name)) {
+					return attributes[i + 1];
+				}
+			}
+			return null;
+		}
+	}
+}
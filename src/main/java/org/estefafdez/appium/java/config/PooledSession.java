@@ -0,0 +1,121 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import org.estefafdez.appium.java.utils.AppiumServer;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+
+/**
+ * <p>
+ * This class is one session of the {@link SessionPool}: the driver and the
+ * Appium Server, and so the device, where it was created.
+ * </p>
+ * 
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class PooledSession {
+
+	/** Appium Server where the session was created. */
+	private final AppiumServer server;
+
+	/** Driver of the session. */
+	private final AppiumDriver<MobileElement> driver;
+
+	/** Number of times the session was borrowed. */
+	private int borrows;
+
+	/** State of the App, a new session starts with the App just reset. */
+	private AppState appState = AppState.RESET;
+
+	/** If the Appium Server was restarted after the session was created. */
+	private volatile boolean stale;
+
+	/**
+	 * Constructor of a new session.
+	 * 
+	 * @param server the Appium Server of the session
+	 * @param driver the driver of the session
+	 */
+	PooledSession(AppiumServer server, AppiumDriver<MobileElement> driver) {
+		this.server = server;
+		this.driver = driver;
+	}
+
+	/**
+	 * Method to count a new borrow of the session. Only the worker that borrows the
+	 * session calls it.
+	 * 
+	 * @return true|false if the session was already used by a previous test
+	 */
+	synchronized boolean borrow() {
+		return borrows++ > 0;
+	}
+
+	/**
+	 * @return the state of the App of the session
+	 */
+	synchronized AppState getAppState() {
+		return appState;
+	}
+
+	/**
+	 * @param appState the new state of the App of the session
+	 */
+	synchronized void setAppState(AppState appState) {
+		this.appState = appState;
+	}
+
+	/**
+	 * Method to mark the session as lost, because its Appium Server was restarted.
+	 */
+	void markStale() {
+		stale = true;
+	}
+
+	/**
+	 * @return true|false if the Appium Server was restarted after the session was created
+	 */
+	boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * @return the Appium Server of the session
+	 */
+	public AppiumServer getServer() {
+		return server;
+	}
+
+	/**
+	 * @return the driver of the session
+	 */
+	public AppiumDriver<MobileElement> getDriver() {
+		return driver;
+	}
+}
@@ -22,14 +22,22 @@ package org.estefafdez.appium.java.config;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -56,14 +64,28 @@ public class PropertiesManager {
 	private static final Logger LOGGER = LogManager.getLogger(PropertiesManager.class);
 
 	/** Properties matrix. */
-	private Map<String, Properties> propertiesMatrix;
+	private final Map<String, Properties> propertiesMatrix;
 
-	/** Instance of the PropertiesHandler class. */
-	private static PropertiesManager instance = null;
+	/** Immutable copy of the configuration file, published when it is loaded. */
+	private volatile ConfigSnapshot config = ConfigSnapshot.EMPTY;
+
+	/** Listeners of the changes of the configuration file. */
+	private final CopyOnWriteArrayList<ConfigListener> listeners;
+
+	/** Watcher of the configuration file, null while it is not watched. */
+	private ConfigWatcher watcher;
 
 	/** Default constructor. */
 	private PropertiesManager() {
-		this.propertiesMatrix = new HashMap<>();
+		this.propertiesMatrix = new ConcurrentHashMap<>();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Holder of the instance, created by the JVM the first time it is used.
+	 */
+	private static final class InstanceHolder {
+		private static final PropertiesManager INSTANCE = new PropertiesManager();
 	}
 
 	/**
@@ -72,11 +94,17 @@ public class PropertiesManager {
 	 * @return PropertiesHandler instance.
 	 */
 	public static PropertiesManager getInstance() {
-		// singleton pattern
-		if (instance == null) {
-			instance = new PropertiesManager();
-		}
-		return instance;
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Method to get the configuration file <b>test.properties</b>. It is safe to
+	 * call it from any worker without any lock.
+	 *
+	 * @return the configuration, without any property until the file is loaded
+	 */
+	public ConfigSnapshot getConfig() {
+		return config;
 	}
 
 	/**
@@ -101,7 +129,7 @@ public class PropertiesManager {
 	 *            The path to the file.
 	 * @throws CustomErrorException error exception
 	 */
-	public void loadPropertiesMatrix(String propertyFileName, String filePath) throws CustomErrorException {
+	public synchronized void loadPropertiesMatrix(String propertyFileName, String filePath) throws CustomErrorException {
 
 		String completeFilePath;
 
@@ -118,9 +146,10 @@ public class PropertiesManager {
 
 		if (!this.propertiesMatrix.containsKey(propertyFileName)) {
 			this.putOnMatrix(propertyFileName, completeFilePath);
-			LOGGER.info("[ Properties Configuration ] - Setting properties from: " + propertyFileName + prop);
+			LOGGER.info("[ Properties Configuration ] - Setting properties from: {}{}", propertyFileName, prop);
 		} else {
-			LOGGER.info("[ Properties Configuration ] - The properties " + propertyFileName + " were cached, so we do not have to read anything");
+			LOGGER.info("[ Properties Configuration ] - The properties {} were cached, so we do not have to read anything",
+					propertyFileName);
 		}
 
 	}
@@ -155,11 +184,131 @@ public class PropertiesManager {
 		try (InputStreamReader isr = new InputStreamReader(this.getInputStream(filePath), StandardCharsets.UTF_8)) {
 			propertiesFile.load(isr);
 			this.propertiesMatrix.put(propertyFileName, propertiesFile);
+			if (ConstantConfig.CONFIG_FILE_PROP.equals(propertyFileName)) {
+				this.config = ConfigSnapshot.of(propertiesFile);
+			}
 		} catch (IOException ex) {
 			throw new CustomErrorException("An error occured reading properties from " + filePath, ex);
 		}
 	}
 
+	/*--------------------------------------------------------------------* 
+	|	RELOADING THE CONFIGURATION FILE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to add a listener of the changes of the configuration file. It is
+	 * notified only when the file is watched, see {@link #startWatching()}, and a
+	 * listener already added is not added again.
+	 * 
+	 * @param listener the listener
+	 */
+	public void addConfigListener(ConfigListener listener) {
+		this.listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Method to remove a listener of the changes of the configuration file.
+	 * 
+	 * @param listener the listener
+	 */
+	public void removeConfigListener(ConfigListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Method to start applying the changes of the configuration file during the
+	 * suite. The file watched is the one loaded, usually on <b>target/test-classes</b>,
+	 * so the changes must be saved there or copied with <b>mvn process-test-resources</b>.
+	 */
+	public void startWatching() {
+		Path file = getConfigFile();
+		if (file == null) {
+			LOGGER.warn("[ Properties Configuration ] - The file {}.properties is not on a folder, it can not be watched",
+					ConstantConfig.CONFIG_FILE_PROP);
+			return;
+		}
+		startWatching(file);
+	}
+
+	/**
+	 * Method to start applying the changes of the given configuration file.
+	 * 
+	 * @param file the configuration file on the disk
+	 */
+	synchronized void startWatching(Path file) {
+		if (this.watcher != null) {
+			return;
+		}
+		try {
+			this.watcher = new ConfigWatcher(file, this::reloadConfig);
+			LOGGER.info("[ Properties Configuration ] - Watching the changes of: {}", file);
+		} catch (IOException ex) {
+			LOGGER.warn("[ Properties Configuration ] - The file {} can not be watched: {}", file, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Method to stop applying the changes of the configuration file.
+	 */
+	public synchronized void stopWatching() {
+		if (this.watcher != null) {
+			this.watcher.close();
+			this.watcher = null;
+		}
+	}
+
+	/**
+	 * Method to read the configuration file again and publish it when any value has
+	 * changed. The workers keep the configuration they have already read and get the
+	 * new one on their next read, and the listeners are notified with the keys
+	 * changed.
+	 */
+	synchronized void reloadConfig() {
+		if (this.watcher == null) {
+			return;
+		}
+		Properties propertiesFile = new Properties();
+		try (Reader reader = Files.newBufferedReader(this.watcher.getFile(), StandardCharsets.UTF_8)) {
+			propertiesFile.load(reader);
+		} catch (IOException ex) {
+			LOGGER.warn("[ Properties Configuration ] - The file {} could not be read again: {}", this.watcher.getFile(),
+					ex.getMessage());
+			return;
+		}
+		ConfigSnapshot current = ConfigSnapshot.of(propertiesFile);
+		Set<String> changedKeys = this.config.changedKeys(current);
+		if (changedKeys.isEmpty()) {
+			return;
+		}
+		this.propertiesMatrix.put(ConstantConfig.CONFIG_FILE_PROP, propertiesFile);
+		this.config = current;
+		LOGGER.info("[ Properties Configuration ] - The configuration has changed: {}", changedKeys);
+		for (ConfigListener listener : this.listeners) {
+			try {
+				listener.onConfigChange(current, changedKeys);
+			} catch (RuntimeException ex) {
+				LOGGER.error("[ Properties Configuration ] - The change could not be applied by {}", listener, ex);
+			}
+		}
+	}
+
+	/**
+	 * Method to get the configuration file on the disk, null when it is inside a jar.
+	 */
+	private Path getConfigFile() {
+		URL url = Thread.currentThread().getContextClassLoader()
+				.getResource(ConstantConfig.CONFIG_FILE_PROP + ".properties");
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return Paths.get(url.toURI());
+		} catch (URISyntaxException ex) {
+			return null;
+		}
+	}
+
 	/**
 	 * Method to check if a given byte array is valid UTF-8 encoded.
 	 * 
@@ -192,17 +341,17 @@ public class PropertiesManager {
 		Properties prop = new Properties();
 		try (InputStream input = getClass().getClassLoader().getResourceAsStream(propertyFilePath)) {
 			if (input == null) {
-				LOGGER.error("[ ERROR ] - Unable to find " + propertyFilePath);
+				LOGGER.error("[ ERROR ] - Unable to find {}", propertyFilePath);
 				return;
 			}
-			LOGGER.info("Getting properties from: " + propertyFilePath);
+			LOGGER.info("Getting properties from: {}", propertyFilePath);
 			prop.load(input);
 
 			Enumeration<?> e = prop.propertyNames();
 			while (e.hasMoreElements()) {
 				String key = (String) e.nextElement();
 				String value = prop.getProperty(key);
-				LOGGER.debug("Key : " + key + ", Value : " + value);
+				LOGGER.debug("Key : {}, Value : {}", key, value);
 			}
 		} catch (IOException ex) {
 			throw new CustomErrorException("An error occured while reading the properties from " + propertyFilePath, ex);
@@ -257,7 +406,7 @@ public class PropertiesManager {
 		if (this.isPropertyOnMatrix(propertyName)) {
 			return this.propertiesMatrix.get(propertyName);
 		} else {
-			LOGGER.error("The property does not exist in the matrix: " + propertyName);
+			LOGGER.error("The property does not exist in the matrix: {}", propertyName);
 		}
 		return null;
 	}
@@ -276,26 +425,26 @@ public class PropertiesManager {
 		if (this.isKeyOnProperty(propertyName, propertyKey)) {
 			return this.propertiesMatrix.get(propertyName).getProperty(propertyKey);
 		} else {
-			LOGGER.error("The key [" + propertyKey + "] does not exist in the property: " + propertyName);
+			LOGGER.error("The key [{}] does not exist in the property: {}", propertyKey, propertyName);
 		}
 		return null;
 	}
 
 	/**
-	 * Get value of the key from the configuration file <b>test.properties</b> in
-	 * the matrix.
+	 * Get value of the key from the configuration file <b>test.properties</b>. The
+	 * value is read from the {@link ConfigSnapshot}, without any lock.
 	 * 
 	 * @param propertyKey
 	 *            The key in the property searched
-	 * @return the configuration value from the properties matrix from a key. 
+	 * @return the configuration value from a key or empty if it does not exist.
 	 */
 	public String getConfigValueFromMatrix(String propertyKey) {
-		if (this.isKeyOnProperty(ConstantConfig.CONFIG_FILE_PROP, propertyKey)) {
-			return this.propertiesMatrix.get(ConstantConfig.CONFIG_FILE_PROP).getProperty(propertyKey);
-		} else {
-			LOGGER.error("The key [" + propertyKey + "] does not exist in the property: " + ConstantConfig.CONFIG_FILE_PROP);
+		String value = this.config.get(propertyKey);
+		if (value == null) {
+			LOGGER.error("The key [{}] does not exist in the property: {}", propertyKey, ConstantConfig.CONFIG_FILE_PROP);
+			return StringUtils.EMPTY;
 		}
-		return StringUtils.EMPTY;
+		return value;
 	}
 
 }
@@ -0,0 +1,283 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.LatencyHistogram;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.remote.AndroidMobileCapabilityType;
+import io.appium.java_client.remote.IOSMobileCapabilityType;
+import io.appium.java_client.remote.MobileCapabilityType;
+import io.appium.java_client.remote.MobilePlatform;
+
+/**
+ * <p>
+ * This enum defines what to do with the App of a session before a test, so it
+ * starts on the {@link AppState} it needs. The time of each policy is measured,
+ * and {@link #cheapestFor(AppState, String)} chooses the fastest one that
+ * guarantees the state.
+ * </p>
+ * 
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public enum ResetPolicy {
+
+	/** Nothing is done, the next test starts where the previous one finished. */
+	NONE(AppState.ANY, 0) {
+		@Override
+		void apply(AppiumDriver<MobileElement> driver) {
+			// Nothing to reset
+		}
+	},
+
+	/** Close the App and launch it again, keeping its data. */
+	TERMINATE_ACTIVATE(AppState.RELAUNCHED, 1500) {
+		@Override
+		void apply(AppiumDriver<MobileElement> driver) {
+			String appId = appIdOf(driver);
+			driver.terminateApp(appId);
+			driver.activateApp(appId);
+		}
+	},
+
+	/** Remove the data of the App and launch it again. Only on Android. */
+	CLEAR_APP_DATA(AppState.NO_DATA, 3000) {
+		@Override
+		void apply(AppiumDriver<MobileElement> driver) {
+			String appId = appIdOf(driver);
+			driver.executeScript("mobile: clearApp", Collections.singletonMap("appId", appId));
+			driver.activateApp(appId);
+		}
+
+		@Override
+		boolean supports(String platformName) {
+			return MobilePlatform.ANDROID.equalsIgnoreCase(platformName);
+		}
+	},
+
+	/** Reset the currently running App for the session. */
+	RESET_APP(AppState.RESET, 8000) {
+		@Override
+		void apply(AppiumDriver<MobileElement> driver) {
+			driver.resetApp();
+		}
+	};
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ResetPolicy.class);
+
+	/** Times a policy has to be measured before its measures replace its estimated time. */
+	private static final int MIN_SAMPLES = 3;
+
+	/** State of the App after applying the policy. */
+	private final AppState guarantee;
+
+	/** Milliseconds the policy is expected to take while it is not measured. */
+	private final long estimatedTime;
+
+	/** Times of the policy applied. */
+	private final LatencyHistogram timings = new LatencyHistogram();
+
+	/** If the sessions answered that a command of the policy is not supported. */
+	private volatile boolean unsupported;
+
+	/**
+	 * Constructor of a policy.
+	 * 
+	 * @param guarantee state of the App after applying the policy
+	 * @param estimatedTime milliseconds the policy is expected to take
+	 */
+	ResetPolicy(AppState guarantee, long estimatedTime) {
+		this.guarantee = guarantee;
+		this.estimatedTime = estimatedTime;
+	}
+
+	/**
+	 * Method to leave the App of the session on the state guaranteed by the policy.
+	 * 
+	 * @param driver the driver of the session
+	 */
+	abstract void apply(AppiumDriver<MobileElement> driver);
+
+	/**
+	 * Method to check if the policy can be applied on a platform.
+	 * 
+	 * @param platformName the platform, for example: Android
+	 * @return true|false if the policy is supported
+	 */
+	boolean supports(String platformName) {
+		return true;
+	}
+
+	/**
+	 * Method to apply the policy measuring its time.
+	 * 
+	 * @param driver the driver of the session
+	 * @return the milliseconds taken
+	 */
+	long applyMeasured(AppiumDriver<MobileElement> driver) {
+		long start = System.nanoTime();
+		apply(driver);
+		long elapsed = System.nanoTime() - start;
+		timings.record(elapsed);
+		return TimeUnit.NANOSECONDS.toMillis(elapsed);
+	}
+
+	/**
+	 * Method to get the milliseconds the policy takes: the mean of its measures, or
+	 * the estimated time while there are not enough measures.
+	 * 
+	 * @return the milliseconds
+	 */
+	long getExpectedTime() {
+		return timings.getCount() < MIN_SAMPLES ? estimatedTime : TimeUnit.MICROSECONDS.toMillis(timings.getMean());
+	}
+
+	/**
+	 * Method to stop choosing the policy, after a session answered that one of its
+	 * commands is not supported. {@link #RESET_APP} is never discarded, it is the
+	 * last resort.
+	 */
+	void markUnsupported() {
+		if (this != RESET_APP) {
+			unsupported = true;
+			LOGGER.warn("[ Reset Policy ] - The policy {} is not supported by the sessions, it is not used again", this);
+		}
+	}
+
+	/**
+	 * @return true|false if the sessions answered that a command of the policy is not
+	 *         supported
+	 */
+	boolean isUnsupported() {
+		return unsupported;
+	}
+
+	/**
+	 * Method to choose again the policies marked as not supported, when the sessions
+	 * that did not support them are closed.
+	 */
+	static void clearUnsupported() {
+		for (ResetPolicy policy : values()) {
+			policy.unsupported = false;
+		}
+	}
+
+	/**
+	 * Method to check if an error of a session is a command it does not support, like
+	 * <b>mobile: clearApp</b> on UiAutomator1, instead of a session broken.
+	 * 
+	 * @param ex the error of the session
+	 * @return true|false if the command is not supported
+	 */
+	static boolean isUnsupportedCommand(WebDriverException ex) {
+		if (ex instanceof UnsupportedCommandException) {
+			return true;
+		}
+		String message = String.valueOf(ex.getMessage()).toLowerCase(Locale.ROOT);
+		return message.contains("unknown command") || message.contains("unknown mobile command")
+				|| message.contains("not implemented") || message.contains("not supported");
+	}
+
+	/**
+	 * @return the state of the App after applying the policy
+	 */
+	public AppState getGuarantee() {
+		return guarantee;
+	}
+
+	/**
+	 * @return the times of the policy applied
+	 */
+	public LatencyHistogram getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Method to get the fastest policy that leaves the App on a state, skipping the
+	 * ones not supported by the sessions.
+	 * 
+	 * @param required the state needed by the test
+	 * @param platformName the platform of the session, for example: Android
+	 * @return the policy
+	 */
+	public static ResetPolicy cheapestFor(AppState required, String platformName) {
+		ResetPolicy cheapest = RESET_APP;
+		for (ResetPolicy policy : values()) {
+			if (policy.guarantee.satisfies(required) && policy.supports(platformName) && !policy.unsupported
+					&& policy.getExpectedTime() < cheapest.getExpectedTime()) {
+				cheapest = policy;
+			}
+		}
+		return cheapest;
+	}
+
+	/**
+	 * Method to get the identifier of the App under test from the capabilities of the
+	 * session.
+	 * 
+	 * @param driver the driver of the session
+	 * @return the package on Android or the bundle id on iOS
+	 */
+	static String appIdOf(AppiumDriver<MobileElement> driver) {
+		Capabilities capabilities = driver.getCapabilities();
+		Object platformName = capabilities.getCapability(MobileCapabilityType.PLATFORM_NAME);
+		Object appId = MobilePlatform.IOS.equalsIgnoreCase(String.valueOf(platformName))
+				? capabilities.getCapability(IOSMobileCapabilityType.BUNDLE_ID)
+				: capabilities.getCapability(AndroidMobileCapabilityType.APP_PACKAGE);
+		return String.valueOf(appId);
+	}
+
+	/**
+	 * Method to get the policy from its name on the configuration.
+	 * 
+	 * @param value name of the policy, for example: RESET_APP
+	 * @return the policy or {@link #RESET_APP} when the value is empty or unknown
+	 */
+	public static ResetPolicy fromValue(String value) {
+		if (value == null || value.trim().isEmpty() || value.contains("$")) {
+			return RESET_APP;
+		}
+		try {
+			return ResetPolicy.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException ex) {
+			LOGGER.warn("[ Test Configuration ] - The reset policy {} does not exist, using the default: {}",
+					value, RESET_APP);
+			return RESET_APP;
+		}
+	}
+}
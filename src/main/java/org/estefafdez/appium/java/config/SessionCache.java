@@ -0,0 +1,229 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.openqa.selenium.By;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+
+/**
+ * <p>
+ * This class keeps the information cached for one session, shared by every Page
+ * Object using the same driver. Any action that can change the screen must
+ * invalidate it.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class SessionCache {
+
+	/** Cache of each driver, removed when the driver is not used anymore. */
+	private static final Map<AppiumDriver<MobileElement>, SessionCache> CACHES = Collections
+			.synchronizedMap(new WeakHashMap<AppiumDriver<MobileElement>, SessionCache>());
+
+	/** Elements found on the current screen by their locator, in every session. */
+	private static final LongAdder HITS = new LongAdder();
+
+	/** Elements that were not cached and had to be found, in every session. */
+	private static final LongAdder MISSES = new LongAdder();
+
+	/** Cached elements that were stale and had to be found again, in every session. */
+	private static final LongAdder STALE = new LongAdder();
+
+	/** Snapshot of the current screen, null when it must be read again. */
+	private volatile PageSourceSnapshot snapshot;
+
+	/** Elements found on the current screen by their locator. */
+	private final Map<By, MobileElement> elements = new ConcurrentHashMap<>();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private SessionCache() {}
+
+	/**
+	 * Method to get the cache of a driver.
+	 *
+	 * @param driver the driver of the session
+	 * @return the cache of the session
+	 */
+	public static SessionCache of(AppiumDriver<MobileElement> driver) {
+		synchronized (CACHES) {
+			SessionCache cache = CACHES.get(driver);
+			if (cache == null) {
+				cache = new SessionCache();
+				CACHES.put(driver, cache);
+			}
+			return cache;
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	PAGE SOURCE SNAPSHOT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the snapshot of the current screen, reading the page source only
+	 * if there is not a valid one.
+	 *
+	 * @param driver the driver of the session
+	 * @return the snapshot
+	 * @throws CustomErrorException when the page source can not be parsed
+	 */
+	public PageSourceSnapshot getSnapshot(AppiumDriver<MobileElement> driver) throws CustomErrorException {
+		PageSourceSnapshot current = snapshot;
+		if (current == null) {
+			current = PageSourceSnapshot.parse(driver.getPageSource());
+			snapshot = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Method to store a snapshot just read from the session.
+	 *
+	 * @param snapshot the snapshot of the current screen
+	 */
+	public void setSnapshot(PageSourceSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Method to forget the snapshot, call it after any action that can change the
+	 * screen.
+	 */
+	public void invalidateSnapshot() {
+		snapshot = null;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	ELEMENT CACHE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get an element by its locator, finding it only when it is not cached.
+	 *
+	 * @param driver the driver of the session
+	 * @param locator the locator of the element
+	 * @return the element
+	 */
+	public MobileElement getElement(AppiumDriver<MobileElement> driver, By locator) {
+		MobileElement element = elements.get(locator);
+		if (element != null) {
+			HITS.increment();
+			return element;
+		}
+		MISSES.increment();
+		element = driver.findElement(locator);
+		elements.put(locator, element);
+		return element;
+	}
+
+	/**
+	 * Method to forget a stale element, so the next time it is found again.
+	 *
+	 * @param locator the locator of the element
+	 */
+	public void evictStaleElement(By locator) {
+		STALE.increment();
+		elements.remove(locator);
+	}
+
+	/**
+	 * Method to forget the elements cached, after an action that can navigate to a
+	 * new screen.
+	 */
+	public void invalidateElements() {
+		elements.clear();
+	}
+
+	/**
+	 * Method to forget everything cached, call it after any action that can change
+	 * the screen.
+	 */
+	public void invalidate() {
+		snapshot = null;
+		elements.clear();
+	}
+
+	/**
+	 * Method to get the counters of the element cache of every session.
+	 *
+	 * @return text with the hits, misses and stale elements
+	 */
+	public static String getStatistics() {
+		return "hits=" + HITS.sum() + " misses=" + MISSES.sum() + " stale=" + STALE.sum();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	INVALIDATION
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * This enum defines which actions forget the elements cached. The stale elements
+	 * are always found again, whatever the policy is.
+	 */
+	public enum Invalidation {
+
+		/** The elements are never cached. */
+		DISABLED,
+
+		/** Any action on the screen forgets the elements: clicks, long clicks and texts sent. */
+		ON_ACTION,
+
+		/** Only the clicks and long clicks, the actions that usually navigate, forget the elements. */
+		ON_CLICK,
+
+		/** The elements are only forgotten when they are stale or the App is reset. */
+		NEVER;
+
+		/**
+		 * Method to get the policy from its name on the configuration.
+		 *
+		 * @param value name of the policy, for example: ON_CLICK
+		 * @return the policy or {@link #ON_CLICK} when the value is empty or unknown
+		 */
+		public static Invalidation fromValue(String value) {
+			if (value == null || value.trim().isEmpty() || value.contains("$")) {
+				return ON_CLICK;
+			}
+			try {
+				return Invalidation.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException ex) {
+				return ON_CLICK;
+			}
+		}
+	}
+}
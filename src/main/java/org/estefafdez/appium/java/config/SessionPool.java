@@ -0,0 +1,432 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.ConfigSnapshot.Platform;
+import org.estefafdez.appium.java.utils.AppiumServer;
+import org.estefafdez.appium.java.utils.AppiumServerHandler;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.estefafdez.appium.java.utils.LatencyHistogram;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.remote.AndroidMobileCapabilityType;
+import io.appium.java_client.remote.IOSMobileCapabilityType;
+import io.appium.java_client.remote.MobileCapabilityType;
+
+/**
+ * <p>
+ * This class is the pool of Appium sessions. The sessions are created in
+ * background, one per Appium Server, while the rest of the setup goes on. The
+ * tests borrow a session and give it back when they finish, so the same session
+ * is reused by the next test after applying the cheapest {@link ResetPolicy} that
+ * leaves the App on the {@link AppState} the test needs.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class SessionPool {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(SessionPool.class);
+
+	/** Seconds to wait for a free session before failing the test. */
+	private static final long BORROW_TIMEOUT = 300;
+
+	/** Sessions discarded for a test before failing it. */
+	private static final int MAX_DISCARDS = 3;
+
+	/** Milliseconds between two checks of the state of the pool while waiting. */
+	private static final long BORROW_POLLING = 200;
+
+	/** First local port used by UiAutomator2 to talk with the device. */
+	private static final int ANDROID_SYSTEM_PORT_BASE = 8200;
+
+	/** First local port used by the WebDriverAgent. */
+	private static final int IOS_WDA_LOCAL_PORT_BASE = 8100;
+
+	/** Sessions ready to be borrowed. */
+	private static final BlockingQueue<PooledSession> IDLE = new LinkedBlockingQueue<>();
+
+	/** Every session alive, borrowed or not. */
+	private static final Set<PooledSession> SESSIONS = ConcurrentHashMap.newKeySet();
+
+	/** Milliseconds spent creating each session. */
+	private static final List<Long> CREATION_TIMES = Collections.synchronizedList(new ArrayList<>());
+
+	/** Number of sessions created. */
+	private static final AtomicInteger CREATED = new AtomicInteger();
+
+	/** Number of times a session was borrowed again after a previous test. */
+	private static final AtomicInteger REUSED = new AtomicInteger();
+
+	/** Number of sessions being created right now. */
+	private static final AtomicInteger PENDING = new AtomicInteger();
+
+	/** Last error creating a session. */
+	private static volatile CustomErrorException lastFailure;
+
+	/** Executor that creates the sessions in background. */
+	private static ExecutorService creator;
+
+	/** The capability profile shared by every session. */
+	private static CapabilityProfile profile;
+
+	/** Handler to access to the properties matrix */
+	private static PropertiesManager handler = PropertiesManager.getInstance();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private SessionPool() {}
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to start creating in background one session per Appium Server. The
+	 * method does not wait for the sessions.
+	 *
+	 * @param capabilityProfile the capability profile shared by every session
+	 */
+	public static synchronized void start(CapabilityProfile capabilityProfile) {
+		List<AppiumServer> servers = AppiumServerHandler.getAppiumServers();
+		LOGGER.info("[ Session Pool ] - Creating {} sessions in background", servers.size());
+		profile = capabilityProfile;
+		creator = Executors.newFixedThreadPool(Math.max(1, servers.size()), runnable -> {
+			Thread thread = new Thread(runnable, "appium-session-creator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (AppiumServer server : servers) {
+			createInBackground(server);
+		}
+	}
+
+	/**
+	 * Method to close the pool. It returns the drivers of every session alive, so
+	 * they can be closed. The reset policies not supported by these sessions can be
+	 * tried again by the next pool, and its statistics start from zero.
+	 *
+	 * @return the drivers of the sessions
+	 */
+	public static synchronized List<AppiumDriver<MobileElement>> shutdown() {
+		if (creator != null) {
+			creator.shutdownNow();
+		}
+		printStatistics();
+		CREATION_TIMES.clear();
+		CREATED.set(0);
+		REUSED.set(0);
+		List<AppiumDriver<MobileElement>> drivers = new ArrayList<>();
+		for (PooledSession session : SESSIONS) {
+			drivers.add(session.getDriver());
+		}
+		SESSIONS.clear();
+		IDLE.clear();
+		ResetPolicy.clearUnsupported();
+		return drivers;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO BORROW THE SESSIONS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to borrow a session, waiting until one is created or given back.
+	 *
+	 * @return the session
+	 * @throws CustomErrorException when there is not any session available on time
+	 */
+	public static PooledSession borrow() throws CustomErrorException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BORROW_TIMEOUT);
+		try {
+			while (System.nanoTime() < deadline) {
+				PooledSession session = IDLE.poll(BORROW_POLLING, TimeUnit.MILLISECONDS);
+				if (session != null && session.isStale()) {
+					discard(session);
+				} else if (session != null) {
+					if (session.borrow()) {
+						REUSED.incrementAndGet();
+					}
+					return session;
+				}
+				if (SESSIONS.isEmpty() && PENDING.get() == 0) {
+					throw new CustomErrorException("[ Session Pool error ] - Every session failed on its creation", lastFailure);
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new CustomErrorException("[ Session Pool error ] - Interrupted while waiting for a session", ex);
+		}
+		throw new CustomErrorException("[ Session Pool error ] - There is not any free session after " + BORROW_TIMEOUT + " seconds");
+	}
+
+	/**
+	 * Method to borrow a session with the App on a state. When the App of the session
+	 * is not on the state, the cheapest policy that guarantees it is applied. If it
+	 * fails, the session is discarded and another one is borrowed, up to
+	 * {@value #MAX_DISCARDS} times.
+	 *
+	 * @param required the state of the App needed by the test
+	 * @return the session
+	 * @throws CustomErrorException when there is not any session available on time or
+	 *             the App could not be reset on any of them
+	 */
+	public static PooledSession borrow(AppState required) throws CustomErrorException {
+		for (int discarded = 0;; discarded++) {
+			PooledSession session = borrow();
+			try {
+				prepare(session, required);
+				return session;
+			} catch (WebDriverException ex) {
+				LOGGER.error("[ Session Pool error ] - The session does not answer, creating a new one", ex);
+				discard(session);
+				if (discarded + 1 >= MAX_DISCARDS) {
+					throw new CustomErrorException("[ Session Pool error ] - The App could not be left " + required
+							+ " on " + MAX_DISCARDS + " sessions", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to leave the App of a session on a state. A policy not supported by the
+	 * session is not used again and the next cheapest one is applied.
+	 *
+	 * @param session the session borrowed
+	 * @param required the state of the App needed by the test
+	 * @throws WebDriverException when the session does not answer
+	 */
+	private static void prepare(PooledSession session, AppState required) {
+		AppState current = session.getAppState();
+		if (current.satisfies(required)) {
+			LOGGER.info("[ Session Pool ] - The App of the session of the server {} is {}, nothing to reset for {}",
+					session.getServer().getIndex(), current, required);
+			return;
+		}
+		while (true) {
+			ResetPolicy policy = ResetPolicy.cheapestFor(required, handler.getConfig().getPlatformName());
+			try {
+				long elapsed = policy.applyMeasured(session.getDriver());
+				session.setAppState(policy.getGuarantee());
+				SessionCache.of(session.getDriver()).invalidate();
+				LOGGER.info("[ Session Pool ] - Applied the reset policy {} for {} to the session of the server {} in {} ms",
+						policy, required, session.getServer().getIndex(), elapsed);
+				return;
+			} catch (WebDriverException ex) {
+				if (policy == ResetPolicy.RESET_APP || !ResetPolicy.isUnsupportedCommand(ex)) {
+					throw ex;
+				}
+				LOGGER.warn("[ Session Pool ] - The session of the server {} does not support the reset policy {}: {}",
+						session.getServer().getIndex(), policy, ex.getMessage());
+				policy.markUnsupported();
+			}
+		}
+	}
+
+	/**
+	 * Method to give back a session after a test. The App is left as the test left it
+	 * and it is reset, if needed, when the next test borrows the session.
+	 *
+	 * @param session the session borrowed
+	 */
+	public static void release(PooledSession session) {
+		if (session.isStale()) {
+			LOGGER.info("[ Session Pool ] - The server {} was restarted, creating a new session", session.getServer().getIndex());
+			discard(session);
+			return;
+		}
+		LOGGER.info("[ Session Pool ] - The session of the server {} is free", session.getServer().getIndex());
+		session.setAppState(AppState.ANY);
+		SessionCache.of(session.getDriver()).invalidate();
+		IDLE.add(session);
+	}
+
+	/**
+	 * Method to replace the sessions of a server that was restarted, they were lost
+	 * with the old server. The free sessions are replaced right now and the borrowed
+	 * ones when they are given back.
+	 *
+	 * @param server the Appium Server restarted
+	 */
+	public static void discardSessions(AppiumServer server) {
+		for (PooledSession session : SESSIONS) {
+			if (session.getServer() == server) {
+				session.markStale();
+				if (IDLE.remove(session)) {
+					discard(session);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to close a broken session and create a new one in background.
+	 *
+	 * @param session the broken session
+	 */
+	private static void discard(PooledSession session) {
+		SESSIONS.remove(session);
+		quietQuit(session.getDriver());
+		synchronized (SessionPool.class) {
+			if (creator != null && !creator.isShutdown()) {
+				createInBackground(session.getServer());
+			}
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO CREATE THE SESSIONS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to create a new session on the given server in background.
+	 *
+	 * @param server the Appium Server of the session
+	 */
+	private static void createInBackground(final AppiumServer server) {
+		PENDING.incrementAndGet();
+		creator.execute(() -> {
+			try {
+				long start = System.nanoTime();
+				AppiumDriver<MobileElement> driver = StartupProfiler.time("createSession " + server.getIndex(),
+						() -> DriverConfig.buildInstance(getSessionCapabilities(server), server.getUrl()));
+				long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				CREATION_TIMES.add(elapsed);
+				CREATED.incrementAndGet();
+				LOGGER.info("[ Session Pool ] - Session created on the server {} in {} ms", server.getIndex(), elapsed);
+
+				PooledSession session = new PooledSession(server, driver);
+				SESSIONS.add(session);
+				IDLE.add(session);
+			} catch (CustomErrorException ex) {
+				LOGGER.error("[ Session Pool error ] - The session could not be created on the server {}",
+						server.getIndex(), ex);
+				lastFailure = ex;
+			} finally {
+				PENDING.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Method to copy the capabilities of the profile and add the ones that make the session
+	 * independent: the device of its server and the local ports.
+	 *
+	 * @param server the Appium Server of the session.
+	 * @return the desired capabilities of the session.
+	 */
+	private static DesiredCapabilities getSessionCapabilities(AppiumServer server) {
+		DesiredCapabilities sessionCaps = profile.toCapabilities();
+		if (server.getDeviceUdid() == null) {
+			return sessionCaps;
+		}
+
+		sessionCaps.setCapability(MobileCapabilityType.UDID, server.getDeviceUdid());
+		if (handler.getConfig().getPlatform() == Platform.ANDROID) {
+			sessionCaps.setCapability(AndroidMobileCapabilityType.SYSTEM_PORT, ANDROID_SYSTEM_PORT_BASE + server.getIndex());
+		} else {
+			sessionCaps.setCapability(IOSMobileCapabilityType.WDA_LOCAL_PORT, IOS_WDA_LOCAL_PORT_BASE + server.getIndex());
+		}
+		return sessionCaps;
+	}
+
+	/**
+	 * Method to quit a driver ignoring the errors, used with sessions already broken.
+	 *
+	 * @param driver the driver to quit
+	 */
+	private static void quietQuit(AppiumDriver<MobileElement> driver) {
+		try {
+			driver.quit();
+		} catch (WebDriverException ex) {
+			LOGGER.debug("[ Session Pool ] - The broken session could not be closed: {}", ex.getMessage());
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	STATISTICS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to print on the Log how many sessions were created and reused and the
+	 * percentiles of the creation time, useful to size the pool.
+	 */
+	private static void printStatistics() {
+		List<Long> times;
+		synchronized (CREATION_TIMES) {
+			times = new ArrayList<>(CREATION_TIMES);
+		}
+		Collections.sort(times);
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		LOGGER.info("[ Session Pool ] - Sessions created: {}, sessions reused: {}", CREATED.get(), REUSED.get());
+		if (!times.isEmpty()) {
+			LOGGER.info("[ Session Pool ] - Session creation time (ms): p50={} p90={} p99={} max={}",
+					percentile(times, 50), percentile(times, 90), percentile(times, 99), times.get(times.size() - 1));
+		}
+		for (ResetPolicy policy : ResetPolicy.values()) {
+			LatencyHistogram timings = policy.getTimings();
+			if (timings.getCount() > 0) {
+				LOGGER.info("[ Session Pool ] - Reset policy {} (ms): count={} mean={} p90={} max={}", policy,
+						timings.getCount(), timings.getMean() / 1000, timings.getPercentile(90) / 1000,
+						timings.getMax() / 1000);
+			}
+		}
+		LOGGER.info("[ Session Pool ] - Element cache: {}", SessionCache.getStatistics());
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+	}
+
+	/**
+	 * Method to get a percentile using the nearest rank.
+	 *
+	 * @param sorted values sorted ascending, not empty
+	 * @param percentile percentile to get, from 1 to 100
+	 * @return the value of the percentile
+	 */
+	private static long percentile(List<Long> sorted, int percentile) {
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+		return sorted.get(Math.max(0, rank - 1));
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>
+ * This class splits the tests of the project between several CI nodes before the
+ * run. The tests of the TestNG suite of the run are read from the
+ * {@link TestIndex}, their duration from the {@link DurationHistory}, and each
+ * test, from the longest to the shortest, is added to the shard with less load.
+ * One TestNG suite is written per shard:
+ * </p>
+ *
+ * <pre>
+ * mvn -Pshards process-test-classes -Dshards=4 -DtestSuite=src/test/resources/suites/android_suite.xml
+ * mvn test -DtestSuite=target/shards/shard-1.xml
+ * </pre>
+ * <p>
+ * The tests without duration are estimated with the average of the others, or
+ * with the same value for every test when the history is empty.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class ShardPlanner {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ShardPlanner.class);
+
+	/** Folder of the suites by default. */
+	public static final String DEFAULT_FOLDER = "target/shards";
+
+	/** Estimate of every test when there is no history. */
+	private static final long DEFAULT_ESTIMATE = 1;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private ShardPlanner() {}
+
+	/**
+	 * Method to write the suites of the shards.
+	 *
+	 * @param args the TestNG suite of the tests and the number of shards, optionally
+	 *            the folder of the suites and the thread-count of each suite
+	 * @throws IOException if the index or the suite can not be read or a suite can
+	 *             not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Usage: ShardPlanner <suite> <shards> [folder] [threadCount]");
+		}
+		int shards = Integer.parseInt(args[1].trim());
+		Path folder = Paths.get(args.length > 2 ? args[2] : DEFAULT_FOLDER);
+		int threadCount = args.length > 3 ? Integer.parseInt(args[3].trim()) : 1;
+		DurationHistory history = DurationHistory.getInstance();
+		history.compact();
+		List<Shard> plan = plan(TestIndex.getTests(args[0]), history, shards);
+		for (Shard shard : plan) {
+			Path suite = folder.resolve("shard-" + shard.number + ".xml");
+			Files.createDirectories(folder);
+			Files.write(suite, shard.toSuite(threadCount).getBytes(StandardCharsets.UTF_8));
+			LOGGER.info("[ Shard Planner ] - {}: {} tests, {} ms estimated", suite, shard.tests.size(), shard.load);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO PLAN
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to split the tests between the shards, the longest first into the shard
+	 * with less load.
+	 *
+	 * @param tests the tests as <b>class#method</b>
+	 * @param history the durations of the previous runs
+	 * @param shards the number of shards, at least one
+	 * @return the shards, some of them empty when there are less tests than shards
+	 */
+	public static List<Shard> plan(List<String> tests, DurationHistory history, int shards) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("The number of shards must be at least 1: " + shards);
+		}
+		Map<String, Long> estimates = estimate(tests, history);
+		List<Shard> plan = new ArrayList<>();
+		PriorityQueue<Shard> lightest = new PriorityQueue<>(
+				Comparator.<Shard> comparingLong(shard -> shard.load).thenComparingInt(shard -> shard.number));
+		for (int i = 1; i <= shards; i++) {
+			Shard shard = new Shard(i);
+			plan.add(shard);
+			lightest.add(shard);
+		}
+		for (String test : estimates.keySet()) {
+			Shard shard = lightest.poll();
+			shard.add(test, estimates.get(test));
+			lightest.add(shard);
+		}
+		return plan;
+	}
+
+	/**
+	 * Method to estimate the duration of the tests, the tests without history get
+	 * the average of the others.
+	 *
+	 * @param tests the tests as <b>class#method</b>
+	 * @param history the durations of the previous runs
+	 * @return the milliseconds estimated of each test, the longest first
+	 */
+	static Map<String, Long> estimate(List<String> tests, DurationHistory history) {
+		Map<String, Long> estimates = new HashMap<>();
+		long total = 0;
+		int known = 0;
+		for (String test : tests) {
+			long estimate = history.getEstimate(test);
+			estimates.put(test, estimate);
+			if (estimate >= 0) {
+				total += estimate;
+				known++;
+			}
+		}
+		long average = known == 0 ? DEFAULT_ESTIMATE : Math.max(DEFAULT_ESTIMATE, total / known);
+		estimates.replaceAll((test, estimate) -> estimate < 0 ? average : estimate);
+		List<String> sorted = new ArrayList<>(estimates.keySet());
+		sorted.sort(Comparator.<String, Long> comparing(estimates::get, Comparator.reverseOrder())
+				.thenComparing(Comparator.naturalOrder()));
+		Map<String, Long> longestFirst = new LinkedHashMap<>();
+		for (String test : sorted) {
+			longestFirst.put(test, estimates.get(test));
+		}
+		return longestFirst;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	SHARD
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Tests of one CI node.
+	 */
+	public static final class Shard {
+
+		/** Number of the shard, from 1. */
+		private final int number;
+
+		/** Methods of each class, in the order of the classes added. */
+		private final Map<String, List<String>> tests = new LinkedHashMap<>();
+
+		/** Milliseconds estimated of the tests. */
+		private long load;
+
+		private Shard(int number) {
+			this.number = number;
+		}
+
+		/**
+		 * Method to add a test to the shard.
+		 */
+		private void add(String test, long estimate) {
+			int separator = test.indexOf('#');
+			tests.computeIfAbsent(test.substring(0, separator), key -> new ArrayList<>())
+					.add(test.substring(separator + 1));
+			load += estimate;
+		}
+
+		/**
+		 * @return the number of the shard, from 1
+		 */
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * @return the milliseconds estimated of the tests
+		 */
+		public long getLoad() {
+			return load;
+		}
+
+		/**
+		 * @return the methods of each class of the shard
+		 */
+		public Map<String, List<String>> getTests() {
+			return tests;
+		}
+
+		/**
+		 * Method to build the TestNG suite of the shard.
+		 *
+		 * @param threadCount the thread-count of the suite
+		 * @return the XML of the suite
+		 */
+		public String toSuite(int threadCount) {
+			StringBuilder xml = new StringBuilder();
+			xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			xml.append("<!DOCTYPE suite SYSTEM \"http://testng.org/testng-1.0.dtd\" >\n\n");
+			xml.append("<suite name=\"shard").append(number).append("TestSuite\" verbose=\"1\" parallel=\"methods\"")
+					.append(" thread-count=\"").append(threadCount).append("\">\n");
+			xml.append("\t<test name=\"Shard").append(number).append("Test\">\n");
+			xml.append("\t\t<classes>\n");
+			for (Map.Entry<String, List<String>> type : tests.entrySet()) {
+				xml.append("\t\t\t<class name=\"").append(type.getKey()).append("\">\n");
+				xml.append("\t\t\t\t<methods>\n");
+				for (String method : type.getValue()) {
+					xml.append("\t\t\t\t\t<include name=\"").append(method).append("\" />\n");
+				}
+				xml.append("\t\t\t\t</methods>\n");
+				xml.append("\t\t\t</class>\n");
+			}
+			xml.append("\t\t</classes>\n");
+			xml.append("\t</test>\n");
+			xml.append("</suite>\n");
+			return xml.toString();
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>
+ * This class measures the phases of the start of the suite: the configuration,
+ * the Appium Servers, the capabilities and the creation of the sessions. Each
+ * phase is a span with its thread, so the sessions created in background are
+ * shown next to the phases that wait for them.
+ * </p>
+ * <p>
+ * At the end of the suite the spans are written as a Chrome trace, which can be
+ * opened on <b>chrome://tracing</b> or <a href="https://ui.perfetto.dev">Perfetto</a>,
+ * and the slowest ones are printed on the Log.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class StartupProfiler {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(StartupProfiler.class);
+
+	/** File used when the trace file is not configured. */
+	public static final String DEFAULT_FILE = "target/startup-trace.json";
+
+	/** Spans printed on the Log, the slowest ones. */
+	private static final int SLOWEST_SPANS = 10;
+
+	/** Time of reference of the spans. */
+	private static final long ORIGIN = System.nanoTime();
+
+	/** Spans finished. */
+	private static final Queue<Span> SPANS = new ConcurrentLinkedQueue<>();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private StartupProfiler() {}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO MEASURE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to start a span on the current thread, to be closed when the phase
+	 * ends. The phases are usually measured with {@link #time(String, Phase)}.
+	 *
+	 * @param name name of the phase, for example: appiumServerStart
+	 * @return the span started
+	 */
+	public static Span start(String name) {
+		return new Span(name);
+	}
+
+	/**
+	 * Method to run a phase inside a span.
+	 *
+	 * @param name name of the phase
+	 * @param phase the phase to run
+	 * @param <E> the exception thrown by the phase
+	 * @throws E the exception of the phase, the span is closed anyway
+	 */
+	public static <E extends Exception> void time(String name, Phase<E> phase) throws E {
+		Span span = start(name);
+		try {
+			phase.run();
+		} finally {
+			span.close();
+		}
+	}
+
+	/**
+	 * Method to run a phase with a result inside a span.
+	 *
+	 * @param name name of the phase
+	 * @param phase the phase to run
+	 * @param <T> the result of the phase
+	 * @param <E> the exception thrown by the phase
+	 * @return the result of the phase
+	 * @throws E the exception of the phase, the span is closed anyway
+	 */
+	public static <T, E extends Exception> T time(String name, ResultPhase<T, E> phase) throws E {
+		Span span = start(name);
+		try {
+			return phase.get();
+		} finally {
+			span.close();
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO WRITE THE REPORT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to write the spans finished as a Chrome trace and print the slowest
+	 * ones on the Log. The spans written are forgotten, so the trace of the next
+	 * suite of the JVM has only its own spans.
+	 *
+	 * @param file the file to write
+	 */
+	public static void dump(Path file) {
+		List<Span> spans = new ArrayList<>();
+		Span finished;
+		while ((finished = SPANS.poll()) != null) {
+			spans.add(finished);
+		}
+		if (spans.isEmpty()) {
+			return;
+		}
+		spans.sort((first, second) -> Long.compare(first.start, second.start));
+		StringBuilder json = new StringBuilder("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+		String separator = "\n";
+		List<Long> threads = new ArrayList<>();
+		for (Span span : spans) {
+			if (!threads.contains(span.threadId)) {
+				threads.add(span.threadId);
+				json.append(separator).append("  {\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": ")
+						.append(span.threadId).append(", \"args\": {\"name\": ").append(CommandMetrics.quote(span.threadName))
+						.append("}}");
+				separator = ",\n";
+			}
+			json.append(separator).append("  {\"name\": ").append(CommandMetrics.quote(span.name))
+					.append(", \"cat\": \"startup\", \"ph\": \"X\", \"pid\": 1, \"tid\": ").append(span.threadId)
+					.append(", \"ts\": ").append(micros(span.start - ORIGIN))
+					.append(", \"dur\": ").append(micros(span.end - span.start)).append('}');
+		}
+		json.append("\n]}\n");
+
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				writer.write(json.toString());
+			}
+			LOGGER.info("[ Startup Profiler ] - Trace of {} spans written on: {}", spans.size(), file);
+		} catch (IOException ex) {
+			LOGGER.error("[ Startup Profiler ] - The trace could not be written on: {}", file, ex);
+		}
+
+		spans.sort((first, second) -> Long.compare(second.end - second.start, first.end - first.start));
+		LOGGER.info("[ Startup Profiler ] - Slowest phases:");
+		for (Span span : spans.subList(0, Math.min(SLOWEST_SPANS, spans.size()))) {
+			LOGGER.info("\t{} ms\t{} [{}]", TimeUnit.NANOSECONDS.toMillis(span.end - span.start), span.name,
+					span.threadName);
+		}
+	}
+
+	/**
+	 * Method to convert nanoseconds to the microseconds of the trace.
+	 */
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	SPAN
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * A phase measured on a thread.
+	 */
+	public static final class Span implements AutoCloseable {
+
+		/** Name of the phase. */
+		private final String name;
+
+		/** Thread of the phase. */
+		private final long threadId;
+
+		/** Name of the thread of the phase. */
+		private final String threadName;
+
+		/** Start of the phase, in nanoseconds. */
+		private final long start;
+
+		/** End of the phase, in nanoseconds, 0 while it is running. */
+		private long end;
+
+		private Span(String name) {
+			Thread thread = Thread.currentThread();
+			this.name = name;
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Method to end the phase, only the first call is recorded.
+		 */
+		@Override
+		public void close() {
+			if (end == 0) {
+				end = System.nanoTime();
+				SPANS.add(this);
+			}
+		}
+	}
+
+	/**
+	 * A phase that can be run inside a span.
+	 *
+	 * @param <E> the exception thrown by the phase
+	 */
+	@FunctionalInterface
+	public interface Phase<E extends Exception> {
+
+		/**
+		 * Method to run the phase.
+		 *
+		 * @throws E the exception of the phase
+		 */
+		void run() throws E;
+	}
+
+	/**
+	 * A phase with a result that can be run inside a span.
+	 *
+	 * @param <T> the result of the phase
+	 * @param <E> the exception thrown by the phase
+	 */
+	@FunctionalInterface
+	public interface ResultPhase<T, E extends Exception> {
+
+		/**
+		 * Method to run the phase.
+		 *
+		 * @return the result of the phase
+		 * @throws E the exception of the phase
+		 */
+		T get() throws E;
+	}
+}
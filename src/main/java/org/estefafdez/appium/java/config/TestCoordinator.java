@@ -0,0 +1,453 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.ArtifactWriter;
+import org.estefafdez.appium.java.utils.FakeAppiumServer;
+
+/**
+ * <p>
+ * This class holds the queue of the tests of a distributed run and hands them out
+ * to the {@link TestWorker}s. Each worker is a JVM with its own Appium Servers and
+ * sessions that pulls the next test as soon as it finishes the previous one, so
+ * no worker is idle while there are tests in the queue, whatever their duration.
+ * </p>
+ * <p>
+ * The workers talk to the coordinator over a socket, one command per line:
+ * </p>
+ *
+ * <pre>
+ * worker: HELLO worker-1
+ * worker: NEXT                                  coordinator: TEST class#method | WAIT | BYE
+ * worker: RESULT class#method SUCCESS 5230 message
+ * worker: ARTIFACT class#method failure.png base64
+ * </pre>
+ * <p>
+ * The test of a worker that is lost before its result is queued again, at the
+ * head of the queue, and it fails after {@value #MAX_ATTEMPTS} attempts. The
+ * queue has the tests of the TestNG suite of the run, the longest of the
+ * {@link DurationHistory} first. The results are written on <b>results.tsv</b>
+ * and the artifacts on the folder <b>artifacts</b> of the folder of the
+ * coordinator.
+ * </p>
+ *
+ * <pre>
+ * mvn -Pcoordinator verify -Dworkers=3 -DtestSuite=src/test/resources/suites/android_suite.xml
+ * </pre>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class TestCoordinator implements AutoCloseable {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(TestCoordinator.class);
+
+	/** Folder of the results and the logs of the workers by default. */
+	public static final String DEFAULT_FOLDER = "target/coordinator";
+
+	/** Attempts of a test whose workers are lost. */
+	public static final int MAX_ATTEMPTS = 2;
+
+	/** Command of the worker to introduce itself. */
+	static final String HELLO = "HELLO";
+
+	/** Command of the worker to ask for the next test. */
+	static final String NEXT = "NEXT";
+
+	/** Answer with the next test to run. */
+	static final String TEST = "TEST";
+
+	/** Answer when the queue is empty but some tests could be queued again. */
+	static final String WAIT = "WAIT";
+
+	/** Answer when every test has its result. */
+	static final String BYE = "BYE";
+
+	/** Command of the worker with the result of a test. */
+	static final String RESULT = "RESULT";
+
+	/** Command of the worker with an artifact of a test. */
+	static final String ARTIFACT = "ARTIFACT";
+
+	/** Status of the failed tests, also the one of the tests whose workers were lost. */
+	static final String FAILURE = "FAILURE";
+
+	/** Socket where the workers connect. */
+	private final ServerSocket server;
+
+	/** Folder of the results and the artifacts. */
+	private final Path folder;
+
+	/** Tests waiting for a worker. */
+	private final Deque<String> queue;
+
+	/** Number of tests of the run. */
+	private final int total;
+
+	/** Attempts of each test. */
+	private final Map<String, Integer> attempts = new HashMap<>();
+
+	/** Result of each test finished: status, milliseconds, worker and message. */
+	private final Map<String, String[]> results = new LinkedHashMap<>();
+
+	/** Threads attending the workers. */
+	private final ExecutorService connections;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor that opens the socket of the coordinator.
+	 *
+	 * @param tests the tests as <b>class#method</b>, in the order to run them
+	 * @param port the port of the socket, 0 for a free one
+	 * @param folder the folder of the results and the artifacts
+	 * @throws IOException if the socket can not be opened
+	 */
+	public TestCoordinator(List<String> tests, int port, Path folder) throws IOException {
+		this.server = new ServerSocket(port);
+		this.folder = folder;
+		this.queue = new ArrayDeque<>(tests);
+		this.total = tests.size();
+		AtomicInteger threads = new AtomicInteger();
+		this.connections = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "test-coordinator-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Method to run a distributed run: the tests of the {@link TestIndex} that belong
+	 * to the TestNG suite are handed out to local worker JVMs, and to any remote
+	 * worker connected to the port.
+	 *
+	 * @param args the TestNG suite of the tests and the number of local workers,
+	 *            optionally the port and the folder of the results
+	 * @throws IOException if the index or the suite can not be read or the socket can
+	 *             not be opened
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Usage: TestCoordinator <suite> <workers> [port] [folder]");
+		}
+		int localWorkers = Integer.parseInt(args[1].trim());
+		int port = args.length > 2 ? Integer.parseInt(args[2].trim()) : 0;
+		Path folder = Paths.get(args.length > 3 ? args[3] : DEFAULT_FOLDER);
+		DurationHistory history = DurationHistory.getInstance();
+		history.compact();
+		List<String> tests = new ArrayList<>(ShardPlanner.estimate(TestIndex.getTests(args[0]), history).keySet());
+
+		boolean passed;
+		try (TestCoordinator coordinator = new TestCoordinator(tests, port, folder)) {
+			coordinator.start();
+			List<Process> processes = new ArrayList<>();
+			for (int i = 1; i <= localWorkers; i++) {
+				processes.add(launchWorker("worker-" + i, coordinator.getPort(), folder));
+			}
+			while (!coordinator.await(1, TimeUnit.SECONDS)) {
+				if (localWorkers > 0 && processes.stream().noneMatch(Process::isAlive)) {
+					LOGGER.error("[ Test Coordinator ] - Every worker ended with {} tests without result",
+							coordinator.getPending());
+					break;
+				}
+			}
+			for (Process process : processes) {
+				process.waitFor(30, TimeUnit.SECONDS);
+			}
+			passed = coordinator.writeResults();
+		}
+		ArtifactWriter.flush();
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Method to launch a worker JVM with the classpath of the coordinator, and its
+	 * setting of {@link FakeAppiumServer#NODELAY_PROPERTY}. Its Log is written on the
+	 * folder of the coordinator.
+	 */
+	static Process launchWorker(String name, int port, Path folder) throws IOException {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		File log = folder.resolve(name + ".log").toFile();
+		log.getParentFile().mkdirs();
+		LOGGER.info("[ Test Coordinator ] - Launching the worker {}, Log: {}", name, log);
+		List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path")));
+		String nodelay = System.getProperty(FakeAppiumServer.NODELAY_PROPERTY);
+		if (nodelay != null) {
+			command.add("-D" + FakeAppiumServer.NODELAY_PROPERTY + "=" + nodelay);
+		}
+		command.addAll(Arrays.asList(TestWorker.class.getName(), "127.0.0.1", String.valueOf(port), name));
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+				.start();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to start accepting the workers in background.
+	 */
+	public void start() {
+		LOGGER.info("[ Test Coordinator ] - {} tests waiting for the workers on the port {}", total, getPort());
+		connections.execute(() -> {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					connections.execute(() -> attend(socket));
+				} catch (IOException ex) {
+					if (!server.isClosed()) {
+						LOGGER.error("[ Test Coordinator ] - A worker could not connect: {}", ex.getMessage());
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to wait until every test has its result.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of the timeout
+	 * @return true|false if every test has its result
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		long end = System.nanoTime() + unit.toNanos(timeout);
+		long left;
+		while (results.size() < total && (left = end - System.nanoTime()) > 0) {
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		return results.size() >= total;
+	}
+
+	/**
+	 * @return the port where the workers connect
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * @return the number of tests without result
+	 */
+	public synchronized int getPending() {
+		return total - results.size();
+	}
+
+	/**
+	 * @return the status of each test finished
+	 */
+	public synchronized Map<String, String> getResults() {
+		Map<String, String> statuses = new LinkedHashMap<>();
+		for (Map.Entry<String, String[]> result : results.entrySet()) {
+			statuses.put(result.getKey(), result.getValue()[0]);
+		}
+		return statuses;
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+		connections.shutdownNow();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC OF THE PROTOCOL
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to attend the commands of a worker until it disconnects. Its test
+	 * without result is queued again.
+	 */
+	private void attend(Socket socket) {
+		String worker = socket.getRemoteSocketAddress().toString();
+		String running = null;
+		try (Socket connection = socket;
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(
+						new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] command = line.split(" ", 5);
+				switch (command[0]) {
+				case HELLO:
+					worker = command.length > 1 ? command[1] : worker;
+					LOGGER.info("[ Test Coordinator ] - The worker {} is connected", worker);
+					break;
+				case NEXT:
+					if (running != null) {
+						requeue(running, worker);
+					}
+					running = next(worker);
+					writer.println(running != null ? TEST + " " + running : getPending() > 0 ? WAIT : BYE);
+					break;
+				case RESULT:
+					if (command.length >= 4) {
+						finish(command[1], command[2], command[3], worker, command.length > 4 ? command[4] : "");
+						if (command[1].equals(running)) {
+							running = null;
+						}
+					}
+					break;
+				case ARTIFACT:
+					if (command.length >= 4) {
+						storeArtifact(command[1], command[2], command[3]);
+					}
+					break;
+				default:
+					LOGGER.warn("[ Test Coordinator ] - Unknown command of the worker {}: {}", worker, command[0]);
+				}
+			}
+		} catch (SocketException ex) {
+			LOGGER.debug("[ Test Coordinator ] - The connection of the worker {} was closed: {}", worker,
+					ex.getMessage());
+		} catch (IOException | IllegalArgumentException ex) {
+			LOGGER.error("[ Test Coordinator ] - Error with the worker {}: {}", worker, ex.getMessage());
+		} finally {
+			if (running != null) {
+				requeue(running, worker);
+			}
+			LOGGER.info("[ Test Coordinator ] - The worker {} is disconnected", worker);
+		}
+	}
+
+	/**
+	 * Method to take the next test of the queue.
+	 */
+	private synchronized String next(String worker) {
+		String test = queue.poll();
+		if (test != null) {
+			attempts.merge(test, 1, Integer::sum);
+			LOGGER.info("[ Test Coordinator ] - {} runs {}, {} tests queued", worker, test, queue.size());
+		}
+		return test;
+	}
+
+	/**
+	 * Method to queue again the test of a worker lost, or fail it after the last
+	 * attempt.
+	 */
+	private synchronized void requeue(String test, String worker) {
+		if (results.containsKey(test)) {
+			return;
+		}
+		if (attempts.getOrDefault(test, 0) < MAX_ATTEMPTS) {
+			LOGGER.warn("[ Test Coordinator ] - The worker {} was lost running {}, it is queued again", worker, test);
+			queue.addFirst(test);
+		} else {
+			LOGGER.error("[ Test Coordinator ] - The worker {} was lost running {} on its last attempt", worker, test);
+			finish(test, FAILURE, "0", worker, "The workers running the test were lost on " + MAX_ATTEMPTS + " attempts");
+		}
+	}
+
+	/**
+	 * Method to keep the result of a test.
+	 */
+	private synchronized void finish(String test, String status, String millis, String worker, String message) {
+		if (results.putIfAbsent(test, new String[] { status, millis, worker, message }) == null) {
+			LOGGER.info("[ Test Coordinator ] - {}: {} in {} ms on {}, {}/{} tests", test, status, millis, worker,
+					results.size(), total);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Method to write an artifact sent by a worker.
+	 */
+	private void storeArtifact(String test, String name, String content) {
+		Path file = folder.resolve("artifacts").resolve(test.replace('#', '.'))
+				.resolve(Paths.get(name).getFileName().toString());
+		ArtifactWriter.write(file, Base64.getDecoder().decode(content));
+		LOGGER.info("[ Test Coordinator ] - Artifact of {}: {}", test, file);
+	}
+
+	/**
+	 * Method to write the result of each test on <b>results.tsv</b>.
+	 *
+	 * @return true|false if every test has passed or it was skipped
+	 * @throws IOException if the results can not be written
+	 */
+	public synchronized boolean writeResults() throws IOException {
+		StringBuilder tsv = new StringBuilder("test\tstatus\tmillis\tworker\tmessage\n");
+		int failed = 0;
+		for (Map.Entry<String, String[]> result : results.entrySet()) {
+			tsv.append(result.getKey());
+			for (String value : result.getValue()) {
+				tsv.append('\t').append(value);
+			}
+			tsv.append('\n');
+			if (FAILURE.equals(result.getValue()[0])) {
+				failed++;
+			}
+		}
+		for (String test : queue) {
+			tsv.append(test).append("\tNOT_RUN\t0\t\t\n");
+		}
+		Path file = folder.resolve("results.tsv");
+		Files.createDirectories(folder);
+		Files.write(file, tsv.toString().getBytes(StandardCharsets.UTF_8));
+		int pending = total - results.size();
+		LOGGER.info("[ Test Coordinator ] - Tests: {}, failed: {}, without result: {}, results: {}", total, failed,
+				pending, file);
+		return failed == 0 && pending == 0;
+	}
+}
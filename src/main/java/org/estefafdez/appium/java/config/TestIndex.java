@@ -0,0 +1,190 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.TestNGException;
+import org.testng.xml.SuiteXmlParser;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * <p>
+ * This class reads the index of the tests written by the
+ * {@link TestIndexProcessor} when the tests are compiled: one line per test with
+ * the class and the method separated by a tab.
+ * </p>
+ * <p>
+ * The index has the tests of every platform, so the {@link ShardPlanner} and the
+ * {@link TestCoordinator} only take the tests of the classes of the TestNG suite
+ * of the run, the property <b>testSuite</b>.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class TestIndex {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(TestIndex.class);
+
+	/** Resource of the index on the classes compiled. */
+	public static final String RESOURCE = "META-INF/appium-java/test-index.tsv";
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private TestIndex() {}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO READ
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to read the tests of every index of the classpath.
+	 *
+	 * @return the tests as <b>class#method</b>, sorted, empty when there is no index
+	 * @throws IOException if an index can not be read
+	 */
+	public static List<String> getTests() throws IOException {
+		Set<String> tests = new TreeSet<>();
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		Enumeration<URL> resources = loader.getResources(RESOURCE);
+		if (!resources.hasMoreElements()) {
+			LOGGER.warn("[ Test Index ] - The index {} does not exist, compile the tests first", RESOURCE);
+			return Collections.emptyList();
+		}
+		while (resources.hasMoreElements()) {
+			URL resource = resources.nextElement();
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int tab = line.indexOf('\t');
+					if (tab > 0) {
+						tests.add(line.substring(0, tab) + '#' + line.substring(tab + 1).trim());
+					}
+				}
+			}
+			LOGGER.debug("[ Test Index ] - Read the index: {}", resource);
+		}
+		return new ArrayList<>(tests);
+	}
+
+	/**
+	 * Method to read the tests of every index of the classpath that belong to a
+	 * TestNG suite.
+	 *
+	 * @param suite the file of the suite, like <b>src/test/resources/suites/android_suite.xml</b>
+	 * @return the tests as <b>class#method</b>, sorted
+	 * @throws IOException if an index or the suite can not be read
+	 */
+	public static List<String> getTests(String suite) throws IOException {
+		List<String> tests = filter(getTests(), suite);
+		LOGGER.info("[ Test Index ] - {} tests of the suite {}", tests.size(), suite);
+		return tests;
+	}
+
+	/**
+	 * Method to keep the tests of the classes of a TestNG suite: only the methods
+	 * included when the class has includes, and never the methods excluded.
+	 *
+	 * @param tests the tests as <b>class#method</b>
+	 * @param suite the file of the suite
+	 * @return the tests of the suite, in the same order
+	 * @throws IOException if the suite can not be read
+	 */
+	static List<String> filter(List<String> tests, String suite) throws IOException {
+		Map<String, List<XmlClass>> classes = new HashMap<>();
+		for (XmlTest xmlTest : parse(suite).getTests()) {
+			for (XmlClass xmlClass : xmlTest.getXmlClasses()) {
+				classes.computeIfAbsent(xmlClass.getName(), key -> new ArrayList<>()).add(xmlClass);
+			}
+		}
+		List<String> filtered = new ArrayList<>();
+		for (String test : tests) {
+			int separator = test.indexOf('#');
+			List<XmlClass> xmlClasses = classes.get(test.substring(0, separator));
+			String method = test.substring(separator + 1);
+			if (xmlClasses != null && xmlClasses.stream().anyMatch(xmlClass -> runs(xmlClass, method))) {
+				filtered.add(test);
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * Method to check if a class of a suite runs a method, the includes and the
+	 * excludes of TestNG are regular expressions.
+	 */
+	private static boolean runs(XmlClass xmlClass, String method) {
+		for (String exclude : xmlClass.getExcludedMethods()) {
+			if (method.matches(exclude)) {
+				return false;
+			}
+		}
+		if (xmlClass.getIncludedMethods().isEmpty()) {
+			return true;
+		}
+		for (XmlInclude include : xmlClass.getIncludedMethods()) {
+			if (method.matches(include.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Method to parse a suite without loading its classes.
+	 */
+	private static XmlSuite parse(String suite) throws IOException {
+		try (InputStream input = Files.newInputStream(Paths.get(suite))) {
+			return new SuiteXmlParser().parse(suite, input, false);
+		} catch (TestNGException ex) {
+			throw new IOException("The suite " + suite + " is not valid: " + ex.getMessage(), ex);
+		}
+	}
+}
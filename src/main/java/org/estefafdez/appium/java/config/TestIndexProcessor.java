@@ -0,0 +1,166 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * <p>
+ * This annotation processor writes, while the tests are compiled, the index of the
+ * tests of the project: every method with <b>@Test</b> of the classes that extend
+ * {@link TestSetConfig}. The index is read by the {@link ShardPlanner} instead of
+ * scanning the classpath.
+ * </p>
+ * <p>
+ * The classes of the package of {@link TestSetConfig} are the tests of the
+ * framework itself, against the Fake Appium Server, so they are not indexed.
+ * </p>
+ *
+ * <pre>
+ * target/test-classes/META-INF/appium-java/test-index.tsv
+ * org.estefafdez.appium.java.AndroidHomeTestSet	testAndroidExample
+ * </pre>
+ * <p>
+ * It is registered on <b>META-INF/services</b>, so it runs on the compilation of
+ * the tests of any project that uses this one.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+@SupportedAnnotationTypes(TestIndexProcessor.TEST_ANNOTATION)
+public class TestIndexProcessor extends AbstractProcessor {
+
+	/** Annotation of the tests. */
+	static final String TEST_ANNOTATION = "org.testng.annotations.Test";
+
+	/** Tests found on every round, sorted by class and method. */
+	private final Set<String> tests = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement testSet = processingEnv.getElementUtils().getTypeElement(TestSetConfig.class.getName());
+		if (testSet != null) {
+			TypeMirror testSetType = processingEnv.getTypeUtils().erasure(testSet.asType());
+			PackageElement framework = processingEnv.getElementUtils().getPackageOf(testSet);
+			for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+				if (!type.getModifiers().contains(Modifier.ABSTRACT)
+						&& !framework.equals(processingEnv.getElementUtils().getPackageOf(type))
+						&& processingEnv.getTypeUtils().isAssignable(type.asType(), testSetType)) {
+					addTests(type);
+				}
+			}
+		}
+		if (roundEnv.processingOver() && !tests.isEmpty()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	/**
+	 * Method to add the tests of a class, including the inherited ones: the methods
+	 * with <b>@Test</b> and the public methods of the classes with <b>@Test</b>.
+	 */
+	private void addTests(TypeElement type) {
+		String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+		for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+			AnnotationMirror test = getTest(method);
+			if (test == null && method.getModifiers().contains(Modifier.PUBLIC)
+					&& !method.getModifiers().contains(Modifier.STATIC)) {
+				test = getTest(method.getEnclosingElement());
+			}
+			if (test != null && isEnabled(test)) {
+				tests.add(className + "\t" + method.getSimpleName());
+			}
+		}
+	}
+
+	/**
+	 * Method to get the <b>@Test</b> of an element, null when it does not have it.
+	 */
+	private static AnnotationMirror getTest(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (TEST_ANNOTATION.equals(annotation.getAnnotationType().toString())) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method to check the attribute <b>enabled</b> of a <b>@Test</b>.
+	 */
+	private static boolean isEnabled(AnnotationMirror test) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : test.getElementValues()
+				.entrySet()) {
+			if ("enabled".contentEquals(value.getKey().getSimpleName())) {
+				return !Boolean.FALSE.equals(value.getValue().getValue());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Method to write the index on the classes compiled.
+	 */
+	private void writeIndex() {
+		try (Writer writer = processingEnv.getFiler()
+				.createResource(StandardLocation.CLASS_OUTPUT, "", TestIndex.RESOURCE).openWriter()) {
+			for (String line : tests) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} catch (IOException ex) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+					"The index of the tests could not be written: " + ex.getMessage());
+		}
+	}
+}
@@ -19,38 +19,36 @@
  */
 package org.estefafdez.appium.java.config;
 
-import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.Method;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.config.Configurator;
+import org.estefafdez.appium.java.config.ConfigSnapshot.Platform;
 import org.estefafdez.appium.java.utils.AppiumServerHandler;
+import org.estefafdez.appium.java.utils.ArtifactWriter;
 import org.estefafdez.appium.java.utils.CustomAssertHandler;
 import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.estefafdez.appium.java.utils.ScreenshotStore;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Listeners;
 
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.remote.AndroidMobileCapabilityType;
-import io.appium.java_client.remote.AutomationName;
 import io.appium.java_client.remote.IOSMobileCapabilityType;
-import io.appium.java_client.remote.MobileCapabilityType;
-import io.appium.java_client.remote.MobilePlatform;
 
 /**
  * <p>
@@ -66,23 +64,40 @@ import io.appium.java_client.remote.MobilePlatform;
  * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
  *
  */
+@Listeners(LongestFirstInterceptor.class)
 public abstract class TestSetConfig {
 
-	/**
-	 * Make the Driver static. This allows it to be created only once and used
-	 * across all of the test classes.
-	 */
-	public static AppiumDriver<MobileElement> driver;
-
 	/** Logger class initialization. */
 	private static final Logger LOGGER = LogManager.getLogger(TestSetConfig.class);
 
-	/** Create the Desired Capabilities. */
-	private static DesiredCapabilities caps;
+	/** Phases of the start of the suite running at the same time. */
+	private static final int BOOTSTRAP_THREADS = 4;
+
+	/** Capability profile of the sessions. */
+	private static CapabilityProfile profile;
 
 	/** Handler to access to the properties matrix */
 	private static PropertiesManager handler = PropertiesManager.getInstance();
 
+	/** Store of the screenshots of the failed tests. */
+	private static ScreenshotStore screenshots;
+
+	/** Attribute of the result with the path of the screenshot of the failure. */
+	static final String SCREENSHOT_ATTRIBUTE = "screenshot";
+
+	/** If the servers and the sessions are kept between suites, on a {@link TestWorker}. */
+	private static volatile boolean keepSuite;
+
+	/** If the servers and the sessions are started. */
+	private static volatile boolean suiteStarted;
+
+	/** Listener that changes the Log Level when it changes on the configuration file. */
+	private static final ConfigListener LOG_LEVEL_LISTENER = (config, changedKeys) -> {
+		if (changedKeys.contains(ConstantConfig.LOG_LEVEL)) {
+			applyLogLevel(config.getLogLevel());
+		}
+	};
+
 	/*--------------------------------------------------------------------* 
 	|		LIFE CYCLE												
 	*---------------------------------------------------------------------*/
@@ -93,23 +108,59 @@ public abstract class TestSetConfig {
 	@BeforeSuite
 	protected void setUpConfiguration() {
 		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		if (suiteStarted) {
+			LOGGER.info("[ Setup Configuration ] - Reusing the servers and the sessions of the worker");
+			return;
+		}
 		LOGGER.info("[ Setup Configuration ] - Initializing Setup Configuration");
 		try {
-			setUpConfigurationProperty();
-			setUpAppiumServer();
-			setUpLevelLogger();
-			setUpCapabilities();
-			setUpDriver();
+			StartupProfiler.time("setUpConfiguration", this::bootstrap);
+			suiteStarted = true;
 		} catch (CustomErrorException ex) {
+			AppiumServerHandler.appiumServerStop();
 			CustomAssertHandler.handlerError("[ Setup Configuration ] - Error on Setup Configuration", ex);
 		}
 	}
 
+	/**
+	 * Method to run the phases of the setup, the independent ones at the same time.
+	 * 
+	 * @throws CustomErrorException when any phase fails
+	 */
+	private void bootstrap() throws CustomErrorException {
+		try (BootstrapGraph bootstrap = new BootstrapGraph("suite-bootstrap", BOOTSTRAP_THREADS)) {
+			/** Every phase needs the configuration and its Log Level */
+			StartupProfiler.time("setUpConfigurationProperty", this::setUpConfigurationProperty);
+			StartupProfiler.time("setUpLevelLogger", this::setUpLevelLogger);
+
+			/** The independent phases run at the same time */
+			CompletableFuture<Void> servers = bootstrap.add("setUpAppiumServer", this::setUpAppiumServer);
+			CompletableFuture<Void> capabilities = bootstrap.add("setUpCapabilities", this::setUpCapabilities);
+			CompletableFuture<Void> app = bootstrap.add("checkApp", this::checkApp);
+			bootstrap.add("setUpConfigWatcher", this::setUpConfigWatcher);
+			bootstrap.add("setUpScreenshotStore", this::setUpScreenshotStore);
+
+			/** The sessions only wait for the servers, the capabilities and the App */
+			bootstrap.add("setUpSessionPool", this::setUpSessionPool, servers, capabilities, app);
+			bootstrap.await();
+		}
+	}
+
+	/**
+	 * Method to borrow the session of the current worker from the pool.
+	 * 
+	 * @param method
+	 *            the test method to run
+	 */
 	@BeforeMethod
 	protected void beforeAllConfiguration(Method method) {
 		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		LOGGER.info("[ Test Status ] - Running Test: " + method.getName());
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		LOGGER.info("[ Test Status ] - Running Test: {}", method.getName());
+		try {
+			setUpDriver(getStartState(method));
+		} catch (CustomErrorException ex) {
+			CustomAssertHandler.handlerError("[ Setup Configuration ] - Error on Driver Configuration", ex);
+		}
 	}
 
 	/**
@@ -122,17 +173,19 @@ public abstract class TestSetConfig {
 	protected void afterAllIsSaidAndDone(ITestResult result) {
 		String testName = result.getMethod().getMethodName();
 		if (result.getStatus() == ITestResult.FAILURE) {
-			LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-			LOGGER.info("[ Test Status ] - The execution of the Test " + testName + " was FAILURE");
+			LOGGER.info("[ Test Status ] - The execution of the Test {} was FAILURE", testName);
 			this.captureScreenShots(result);
 		} else if (result.getStatus() == ITestResult.SUCCESS) {
-			LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-			LOGGER.info("[ Test Status ] - The execution of the Test " + testName + " was SUCCESS");
+			LOGGER.info("[ Test Status ] - The execution of the Test {} was SUCCESS", testName);
+		}
+		if (result.getStatus() == ITestResult.FAILURE || result.getStatus() == ITestResult.SUCCESS) {
+			DurationHistory.getInstance().record(LongestFirstInterceptor.getTestName(result.getMethod()),
+					result.getEndMillis() - result.getStartMillis());
 		}
 
-		LOGGER.info("[ Test Status ] - Reset the currently running App for this session");
+		LOGGER.info("[ Test Status ] - Give back the session to the pool");
 		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		driver.resetApp();
+		DriverManager.releaseDriver();
 	}
 
 	/**
@@ -140,19 +193,95 @@ public abstract class TestSetConfig {
 	 */
 	@AfterSuite
 	protected void tearDownAppium() {
+		if (keepSuite) {
+			ArtifactWriter.flush();
+			return;
+		}
+		stopSuite();
+	}
+
+	/**
+	 * Method to quit the sessions and stop the servers of the suite. A session that
+	 * does not answer is skipped, the servers are stopped and the artifacts written
+	 * anyway.
+	 */
+	static void stopSuite() {
+		suiteStarted = false;
 		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		LOGGER.info("[ Driver Configuration ] - Unistalling the current running App");
-		if ((MobilePlatform.ANDROID).equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-			driver.removeApp((String) caps.getCapability(AndroidMobileCapabilityType.APP_PACKAGE));
+		try {
+			for (AppiumDriver<MobileElement> driver : SessionPool.shutdown()) {
+				removeApp(driver);
+				quit(driver);
+			}
+		} finally {
+			LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+			try {
+				handler.stopWatching();
+				handler.removeConfigListener(LOG_LEVEL_LISTENER);
+				AppiumServerHandler.appiumServerStop();
+			} finally {
+				ArtifactWriter.flush();
+				writeCommandMetrics();
+				writeStartupTrace();
+			}
 		}
-		else {
-			driver.removeApp((String) caps.getCapability(IOSMobileCapabilityType.BUNDLE_ID));
+	}
+
+	/**
+	 * Method to uninstall the App of a session, logging the error if the session
+	 * does not answer.
+	 */
+	private static void removeApp(AppiumDriver<MobileElement> driver) {
+		LOGGER.info("[ Driver Configuration ] - Unistalling the current running App");
+		try {
+			if (handler.getConfig().getPlatform() == Platform.ANDROID) {
+				driver.removeApp((String) profile.getCapability(AndroidMobileCapabilityType.APP_PACKAGE));
+			}
+			else {
+				driver.removeApp((String) profile.getCapability(IOSMobileCapabilityType.BUNDLE_ID));
+			}
+		} catch (WebDriverException ex) {
+			LOGGER.error("[ Driver Configuration error ] - The App could not be uninstalled", ex);
 		}
-		
+	}
+
+	/**
+	 * Method to quit a session, logging the error if the session does not answer.
+	 */
+	private static void quit(AppiumDriver<MobileElement> driver) {
 		LOGGER.info("[ Driver Configuration ] - Quit this Driver, closing every instance associated");
-		driver.quit();
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		AppiumServerHandler.appiumServerStop();
+		try {
+			driver.quit();
+		} catch (WebDriverException ex) {
+			LOGGER.error("[ Driver Configuration error ] - The Driver could not be quit", ex);
+		}
+	}
+
+	/**
+	 * Method to keep the servers and the sessions between suites, so a
+	 * {@link TestWorker} runs every test it receives with the same ones.
+	 *
+	 * @param keep true|false to keep them, {@link #stopSuite()} stops them at the end
+	 */
+	static void keepSuite(boolean keep) {
+		keepSuite = keep;
+	}
+
+	/**
+	 * @return true|false if the servers and the sessions are started
+	 */
+	static boolean isSuiteStarted() {
+		return suiteStarted;
+	}
+
+	/**
+	 * Method to get the Driver of the current worker. Each worker thread has its own
+	 * session, so the tests can run in parallel.
+	 * 
+	 * @return the Driver of the current worker
+	 */
+	protected AppiumDriver<MobileElement> getDriver() {
+		return DriverManager.getDriver();
 	}
 
 	/*--------------------------------------------------------------------* 
@@ -181,140 +310,157 @@ public abstract class TestSetConfig {
 	 * Method to set the Level Log. [ALL > DEBUG > INFO > WARN > ERROR > FATAL > OFF]
 	 */
 	private void setUpLevelLogger() {
-		Level logLevelDefault = Level.INFO;
-
-		/** LOG Level */
-		String logLevel = handler.getConfigValueFromMatrix(ConstantConfig.LOG_LEVEL);
-
 		LOGGER.info("[ System Properties ] - Setting Log Level");
+		applyLogLevel(handler.getConfig().getLogLevel());
+	}
+
+	/**
+	 * Method to set the Level Log, or the default one when it is not defined.
+	 * 
+	 * @param logLevel the level, for example: DEBUG
+	 */
+	private static void applyLogLevel(String logLevel) {
+		Level logLevelDefault = Level.INFO;
 
 		if (logLevel == null || logLevel.isEmpty()) {
 			Configurator.setRootLevel(logLevelDefault);
-			LOGGER.info("[ System Properties ] - There is not a defined Log Level, we are using the default: "
-					+ logLevelDefault);
+			LOGGER.info("[ System Properties ] - There is not a defined Log Level, we are using the default: {}",
+					logLevelDefault);
 		} else {
 			Configurator.setRootLevel(Level.getLevel(logLevel));
-			LOGGER.info("[ System Properties ] - Log Level stablished on: " + logLevel);
+			LOGGER.info("[ System Properties ] - Log Level stablished on: {}", logLevel);
+		}
+	}
+
+	/**
+	 * Method to apply the changes of the configuration file during the suite, when
+	 * the property <b>config.watchConfig</b> is enabled. The Log Level is changed at
+	 * once; the wait timeout, the reset policy and the settings of the Page Objects
+	 * are read again by the next test.
+	 */
+	private void setUpConfigWatcher() {
+		if (!handler.getConfig().isWatchConfig()) {
+			return;
 		}
+		handler.addConfigListener(LOG_LEVEL_LISTENER);
+		handler.startWatching();
 	}
 	
 	/**
-	 * Method to setUp the Driver.
+	 * Method to open the store of the screenshots.
 	 * 
 	 * @throws CustomErrorException
 	 */
-	private void setUpDriver() throws CustomErrorException {
-		driver = DriverConfig.buildInstance(caps);
+	private void setUpScreenshotStore() throws CustomErrorException {
+		screenshots = ScreenshotStore.fromConfig();
+	}
+
+	/**
+	 * Method to start creating the sessions in background.
+	 */
+	private void setUpSessionPool() {
+		SessionPool.start(profile);
 	}
 
 	/**
-	 * Method to set up the {@DesiredCapabilities}
+	 * Method to setUp the Driver of the current worker.
 	 * 
+	 * @param required the state of the App needed by the test
 	 * @throws CustomErrorException
 	 */
-	private void setUpCapabilities() throws CustomErrorException {
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		LOGGER.info("[ Test Configuration ] - Setting Desired Capabilities Configuration");
+	private void setUpDriver(AppState required) throws CustomErrorException {
+		DriverManager.borrowDriver(required);
+	}
 
-		caps = new DesiredCapabilities();
-
-		/*--------------------------------------------------------------------* 
-		|		GENERAL CAPABILITIES												
-		*---------------------------------------------------------------------*/
-		caps.setCapability(MobileCapabilityType.PLATFORM_NAME,
-				handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME));
-		caps.setCapability(MobileCapabilityType.APP, handler.getConfigValueFromMatrix(ConstantConfig.APP));
-
-		if ((MobilePlatform.ANDROID).equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-			/*--------------------------------------------------------------------* 
-			|		ANDROID CAPABILITIES												
-			*---------------------------------------------------------------------*/
-			caps.setCapability(MobileCapabilityType.PLATFORM_VERSION, "8.1.0");
-			caps.setCapability(MobileCapabilityType.DEVICE_NAME, "emulator_27");
-			caps.setCapability(MobileCapabilityType.NO_RESET, false);
-			caps.setCapability(MobileCapabilityType.FULL_RESET, false);
-			caps.setCapability(MobileCapabilityType.CLEAR_SYSTEM_FILES, true);
-			caps.setCapability(AndroidMobileCapabilityType.APP_PACKAGE, "com.example.estefafdez.myfirstandroidapp");
-			caps.setCapability(AndroidMobileCapabilityType.APP_ACTIVITY, "");
-			caps.setCapability(AndroidMobileCapabilityType.APP_WAIT_ACTIVITY, "");
-			caps.setCapability(AndroidMobileCapabilityType.AUTO_GRANT_PERMISSIONS, true);
-			caps.setCapability(AndroidMobileCapabilityType.DISABLE_ANDROID_WATCHERS, true);
-			caps.setCapability(MobileCapabilityType.AUTOMATION_NAME, AutomationName.APPIUM);
-			caps.setCapability(AndroidMobileCapabilityType.UNICODE_KEYBOARD, true);
-
-		} else if ((MobilePlatform.IOS)
-				.equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-			/*--------------------------------------------------------------------* 
-			|		IOS CAPABILITIES												
-			*---------------------------------------------------------------------*/
-			caps.setCapability(MobileCapabilityType.PLATFORM_VERSION, "11.3");
-			caps.setCapability(MobileCapabilityType.DEVICE_NAME, "iPhone 7");
-			caps.setCapability(MobileCapabilityType.NO_RESET, false);
-			caps.setCapability(MobileCapabilityType.FULL_RESET, false);
-			caps.setCapability(MobileCapabilityType.CLEAR_SYSTEM_FILES, true);
-			caps.setCapability(MobileCapabilityType.AUTOMATION_NAME, AutomationName.IOS_XCUI_TEST);
-			caps.setCapability(IOSMobileCapabilityType.BUNDLE_ID, "com.estefafdez.ios.test.app");
-			caps.setCapability(IOSMobileCapabilityType.SHOW_XCODE_LOG, false);
-			caps.setCapability(IOSMobileCapabilityType.SHOW_IOS_LOG, false);
-			caps.setCapability(IOSMobileCapabilityType.USE_NEW_WDA, true);
-			caps.setCapability(IOSMobileCapabilityType.RESET_ON_SESSION_START_ONLY, true);
-			caps.setCapability(IOSMobileCapabilityType.AUTO_ACCEPT_ALERTS, true);
-		} else {
-			throw new CustomErrorException("[ Test Configuration ] - No correct Platform selected");
+	/**
+	 * Method to get the state of the App needed by a test: the one of its
+	 * {@link StartState}, the one of its class, or the one guaranteed by the reset
+	 * policy configured.
+	 * 
+	 * @param method the test method to run
+	 * @return the state of the App needed by the test
+	 */
+	private AppState getStartState(Method method) {
+		StartState startState = method.getAnnotation(StartState.class);
+		if (startState == null) {
+			startState = getClass().getAnnotation(StartState.class);
 		}
+		if (startState != null) {
+			return startState.value();
+		}
+		return handler.getConfig().getResetPolicy().getGuarantee();
+	}
 
-		checkCapabilities();
-		printCapabilitiesConfig();
+	/**
+	 * Method to check that the App under test exists before the sessions are
+	 * created. The App is only checked when the Appium Servers are launched on this
+	 * machine and it is not a remote URL.
+	 * 
+	 * @throws CustomErrorException
+	 */
+	private void checkApp() throws CustomErrorException {
+		String app = handler.getConfig().getAppPath();
+		if (AppiumServerHandler.getAppiumServerAddress() != null || app.isEmpty() || app.contains("$")
+				|| app.startsWith("http://") || app.startsWith("https://")) {
+			return;
+		}
+		if (!Files.exists(Paths.get(app))) {
+			throw new CustomErrorException("[ Test Configuration error ] - The App does not exist on: " + app);
+		}
+		LOGGER.info("[ Test Configuration ] - App under test: {}", app);
 	}
 
 	/**
-	 * Method to check the Capabilities.
+	 * Method to set up the {@DesiredCapabilities} from the capability profile of the
+	 * configuration. The profile is checked only the first time it is used.
 	 * 
+	 * @return the Desired Capabilities of the suite
 	 * @throws CustomErrorException
 	 */
-	private void checkCapabilities() throws CustomErrorException {
-
-		LOGGER.info(
-				"[ Test Configuration ] - Checking if the Desired Capabilities Configuration is properly defined and does not contain nulls or empty values");
-
-		Map<String, ?> capabilities = caps.asMap();
-
-		for (Entry<String, ?> entry : capabilities.entrySet()) {
-			String key = entry.getKey();
-			String value = entry.getValue().toString();
-			if (value == null) {
-				throw new CustomErrorException(
-						"[ Test Configuration error ] - The Desired Capability " + key + " is null");
-			} else if (value.contains("$")) {
-				throw new CustomErrorException(
-						"[ Test Configuration error ] - The Desired Capability " + key + " is malformed to :" + value);
-			} else if (value.isEmpty()) {
-				LOGGER.warn("[ Test Configuration ] - The Desired Capability: " + key + " is empty");
-			}
+	protected DesiredCapabilities setUpCapabilities() throws CustomErrorException {
+		LOGGER.info("[ Test Configuration ] - Setting Desired Capabilities Configuration");
+
+		ConfigSnapshot config = handler.getConfig();
+		if (config.getPlatform() == null) {
+			throw new CustomErrorException("[ Test Configuration ] - No correct Platform selected");
 		}
+		profile = CapabilityProfile.get(config.getCapabilityProfile());
+		return profile.toCapabilities();
+	}
+
+	/**
+	 * Method to write the latencies of the commands sent during the suite.
+	 */
+	private static void writeCommandMetrics() {
+		CommandMetrics.dump(Paths.get(handler.getConfig().getCommandMetricsFile()));
+	}
+
+	/**
+	 * Method to write the time of each phase of the start of the suite.
+	 */
+	private static void writeStartupTrace() {
+		StartupProfiler.dump(Paths.get(handler.getConfig().getStartupTraceFile()));
 	}
 
 	/**
-	 * Method to capture a screenshot when the result is false.
+	 * Method to capture a screenshot when the result is false. The test only waits
+	 * to take the screenshot, it is written on the store in background.
 	 * 
 	 * @param result
 	 */
 	private void captureScreenShots(ITestResult result) {
-		String folderName;
-		DateFormat df;
+		if (screenshots == null) {
+			LOGGER.warn("[ Test Status ] - There is not a screenshot store, the screenshot is not taken");
+			return;
+		}
 		try {
-			folderName = "screenshot/";
-			File f = driver.getScreenshotAs(OutputType.FILE);
-			/** Date format fot screenshot file name */
-			df = new SimpleDateFormat("yyyyMMdd_HHmm");
-			/** Create dir with given folder name */
-			new File(folderName).mkdir();
-			/** Setting file name */
-			String fileName = result.getMethod().getMethodName() + "_" + df.format(new Date()) + ".png";
-			/** Copy screenshot file into screenshot folder. */
-			FileUtils.copyFile(f, new File(folderName + fileName));
-
-		} catch (IOException ex) {
+			byte[] screenshot = getDriver().getScreenshotAs(OutputType.BYTES);
+			String testName = result.getTestClass().getRealClass().getSimpleName() + "."
+					+ result.getMethod().getMethodName();
+			Path file = screenshots.store(testName, "failure", screenshot);
+			result.setAttribute(SCREENSHOT_ATTRIBUTE, file.toString());
+			LOGGER.info("[ Test Status ] - Screenshot of the failure: {}", file);
+		} catch (WebDriverException ex) {
 			LOGGER.error("An error occurred taking a Screenshot", ex);
 		}
 	}
@@ -350,48 +496,4 @@ public abstract class TestSetConfig {
 		assertTrue(pageObject.waitForReady(),
 				"The Page " + pageObject.getClass().getSimpleName() + " isn't ready, it should not be displayed");
 	}*/
-
-	/**
-	 * Method to print all the Global Configuration on the Log.
-	 */
-	private static void printCapabilitiesConfig() {
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		LOGGER.info("[ Test Configuration ] - Desired Capabilities Configuration established");
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		if ((MobilePlatform.ANDROID).equalsIgnoreCase(handler.getConfigValueFromMatrix(ConstantConfig.PLATFORM_NAME))) {
-			LOGGER.info(" DEVICE PROPERTIES");
-			LOGGER.info("\tPlatform Name:\t\t" + caps.getCapability(MobileCapabilityType.PLATFORM_NAME));
-			LOGGER.info("\tDevice Name:\t\t" + caps.getCapability(MobileCapabilityType.DEVICE_NAME));
-			LOGGER.info("\tPlatform Version:\t" + caps.getCapability(MobileCapabilityType.PLATFORM_VERSION));
-			LOGGER.info("\tAutomation Engine:\t" + caps.getCapability(MobileCapabilityType.AUTOMATION_NAME));
-			LOGGER.info("\tNo Reset:\t\t" + caps.getCapability(MobileCapabilityType.NO_RESET));
-			LOGGER.info("\tFull Reset:\t\t" + caps.getCapability(MobileCapabilityType.FULL_RESET));
-			LOGGER.info("\tClean System Files:\t" + caps.getCapability(MobileCapabilityType.CLEAR_SYSTEM_FILES));
-			LOGGER.info(" APP PROPERTIES");
-			LOGGER.info("\tApp:\t\t\t" + caps.getCapability(MobileCapabilityType.APP));
-			LOGGER.info(" ANDROID PROPERTIES");
-			LOGGER.info("\tApp Package:\t\t" + caps.getCapability(AndroidMobileCapabilityType.APP_PACKAGE));
-			LOGGER.info("\tApp Activity:\t\t" + caps.getCapability(AndroidMobileCapabilityType.APP_ACTIVITY));
-			LOGGER.info("\tApp Wait Activity:\t" + caps.getCapability(AndroidMobileCapabilityType.APP_WAIT_ACTIVITY));
-			LOGGER.info("\tAuto Grant Permissions:\t"
-					+ caps.getCapability(AndroidMobileCapabilityType.AUTO_GRANT_PERMISSIONS));
-			LOGGER.info("\tDisable Watchers:\t" + caps.getCapability(AndroidMobileCapabilityType.DISABLE_ANDROID_WATCHERS));
-		} else {
-			LOGGER.info(" DEVICE PROPERTIES");
-			LOGGER.info("\tPlatform Name:\t\t" + caps.getCapability(MobileCapabilityType.PLATFORM_NAME));
-			LOGGER.info("\tDevice Name:\t\t" + caps.getCapability(MobileCapabilityType.DEVICE_NAME));
-			LOGGER.info("\tPlatform Version:\t" + caps.getCapability(MobileCapabilityType.PLATFORM_VERSION));
-			LOGGER.info("\tAutomation Engine:\t" + caps.getCapability(MobileCapabilityType.AUTOMATION_NAME));
-			LOGGER.info("\tNo Reset:\t\t" + caps.getCapability(MobileCapabilityType.NO_RESET));
-			LOGGER.info("\tFull Reset:\t\t" + caps.getCapability(MobileCapabilityType.FULL_RESET));
-			LOGGER.info("\tClean System Files:\t" + caps.getCapability(MobileCapabilityType.CLEAR_SYSTEM_FILES));
-			LOGGER.info(" APP PROPERTIES");
-			LOGGER.info("\tApp:\t\t\t" + caps.getCapability(MobileCapabilityType.APP));
-			LOGGER.info(" iOS PROPERTIES");
-			LOGGER.info("\tApp Package:\t\t" + caps.getCapability(IOSMobileCapabilityType.BUNDLE_ID));
-			LOGGER.info("\tShow Xcode Log:\t\t" + caps.getCapability(IOSMobileCapabilityType.SHOW_XCODE_LOG));
-			LOGGER.info("\tShow iOS Log:\t\t" + caps.getCapability(IOSMobileCapabilityType.SHOW_IOS_LOG));
-		}
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-	}
 }
@@ -0,0 +1,267 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.utils.ArtifactWriter;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * <p>
+ * This class is a worker of a distributed run: it pulls the tests from the
+ * {@link TestCoordinator}, one at a time, runs each of them with TestNG and sends
+ * back its result and the screenshot of the failure.
+ * </p>
+ * <p>
+ * The worker starts its own Appium Servers and sessions with the first test and
+ * keeps them until the queue is empty. When they can not be started it
+ * disconnects, so its test is handed out to another worker.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... org.estefafdez.appium.java.config.TestWorker 10.0.0.5 7070 worker-mac-1
+ * </pre>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class TestWorker {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(TestWorker.class);
+
+	/** Milliseconds to wait when the coordinator has no test yet. */
+	private static final long WAIT_MILLIS = 500;
+
+	/** Name of the worker on the coordinator. */
+	private final String name;
+
+	/** Folder of the TestNG output of the worker. */
+	private final Path folder;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of a worker.
+	 *
+	 * @param name the name of the worker on the coordinator
+	 * @param folder the folder of the TestNG output of the worker
+	 */
+	public TestWorker(String name, Path folder) {
+		this.name = name;
+		this.folder = folder;
+	}
+
+	/**
+	 * Method to run a worker until the queue of the coordinator is empty.
+	 *
+	 * @param args the host and the port of the coordinator, optionally the name of
+	 *            the worker
+	 * @throws IOException if the coordinator can not be reached
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Usage: TestWorker <host> <port> [name]");
+		}
+		String name = args.length > 2 ? args[2] : "worker-" + ManagementFactory.getRuntimeMXBean().getName();
+		boolean healthy = new TestWorker(name, Paths.get(TestCoordinator.DEFAULT_FOLDER, name))
+				.run(args[0], Integer.parseInt(args[1].trim()));
+		System.exit(healthy ? 0 : 1);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC OF THE PROTOCOL
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to pull and run the tests of the coordinator until its queue is empty.
+	 *
+	 * @param host the host of the coordinator
+	 * @param port the port of the coordinator
+	 * @return true|false if the worker ran until the end, false when its servers or
+	 *         sessions could not be started
+	 * @throws IOException if the coordinator can not be reached
+	 */
+	public boolean run(String host, int port) throws IOException {
+		TestSetConfig.keepSuite(true);
+		try (Socket socket = new Socket(host, port);
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(
+						new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			LOGGER.info("[ Test Worker ] - {} connected to the coordinator {}:{}", name, host, port);
+			writer.println(TestCoordinator.HELLO + " " + name);
+			while (true) {
+				writer.println(TestCoordinator.NEXT);
+				String answer = reader.readLine();
+				if (answer == null || answer.equals(TestCoordinator.BYE)) {
+					LOGGER.info("[ Test Worker ] - There are no more tests for {}", name);
+					return true;
+				}
+				if (answer.equals(TestCoordinator.WAIT)) {
+					sleep();
+				} else if (answer.startsWith(TestCoordinator.TEST + " ")) {
+					String test = answer.substring(TestCoordinator.TEST.length() + 1).trim();
+					ITestResult result = runTest(test);
+					if (isSuiteBroken(result)) {
+						LOGGER.error("[ Test Worker ] - The servers and the sessions of {} could not be started, "
+								+ "giving back the test {}", name, test);
+						return false;
+					}
+					sendResult(writer, test, result);
+				}
+			}
+		} finally {
+			TestSetConfig.keepSuite(false);
+			if (TestSetConfig.isSuiteStarted()) {
+				TestSetConfig.stopSuite();
+			}
+		}
+	}
+
+	/**
+	 * Method to run a test with TestNG.
+	 *
+	 * @param test the test as <b>class#method</b>
+	 * @return the result of the test, null when it did not run
+	 */
+	private ITestResult runTest(String test) {
+		int separator = test.indexOf('#');
+		XmlSuite suite = new XmlSuite();
+		suite.setName(name);
+		XmlTest xmlTest = new XmlTest(suite);
+		xmlTest.setName(test);
+		XmlClass xmlClass = new XmlClass(test.substring(0, separator), false);
+		xmlClass.setIncludedMethods(Collections.singletonList(new XmlInclude(test.substring(separator + 1))));
+		xmlTest.setXmlClasses(Collections.singletonList(xmlClass));
+
+		TestListenerAdapter listener = new TestListenerAdapter();
+		TestNG testng = new TestNG(false);
+		testng.setXmlSuites(Collections.singletonList(suite));
+		testng.setOutputDirectory(folder.toString());
+		testng.setVerbose(0);
+		testng.addListener(listener);
+		testng.run();
+
+		List<ITestResult> results = new ArrayList<>(listener.getFailedTests());
+		results.addAll(listener.getPassedTests());
+		results.addAll(listener.getSkippedTests());
+		return results.isEmpty() ? null : results.get(0);
+	}
+
+	/**
+	 * Method to check if a test was skipped because the servers or the sessions of
+	 * the worker could not be started.
+	 */
+	private static boolean isSuiteBroken(ITestResult result) {
+		return result != null && result.getStatus() == ITestResult.SKIP
+				&& TestSetConfig.class.isAssignableFrom(result.getTestClass().getRealClass())
+				&& !TestSetConfig.isSuiteStarted();
+	}
+
+	/**
+	 * Method to send the result of a test and the screenshot of its failure.
+	 */
+	private void sendResult(PrintWriter writer, String test, ITestResult result) {
+		String screenshot = result == null ? null : (String) result.getAttribute(TestSetConfig.SCREENSHOT_ATTRIBUTE);
+		if (screenshot != null) {
+			ArtifactWriter.flush();
+			try {
+				byte[] content = Files.readAllBytes(Paths.get(screenshot));
+				writer.println(TestCoordinator.ARTIFACT + " " + test + " " + Paths.get(screenshot).getFileName() + " "
+						+ Base64.getEncoder().encodeToString(content));
+			} catch (IOException ex) {
+				LOGGER.error("[ Test Worker ] - The screenshot {} could not be sent: {}", screenshot, ex.getMessage());
+			}
+		}
+		writer.println(TestCoordinator.RESULT + " " + test + " " + getStatus(result) + " "
+				+ (result == null ? 0 : result.getEndMillis() - result.getStartMillis()) + " " + getMessage(result));
+	}
+
+	/**
+	 * Method to get the status of a result as it is sent to the coordinator.
+	 */
+	private static String getStatus(ITestResult result) {
+		if (result == null) {
+			return TestCoordinator.FAILURE;
+		}
+		switch (result.getStatus()) {
+		case ITestResult.SUCCESS:
+			return "SUCCESS";
+		case ITestResult.SKIP:
+			return "SKIP";
+		default:
+			return TestCoordinator.FAILURE;
+		}
+	}
+
+	/**
+	 * Method to get the error of a result on one line.
+	 */
+	private static String getMessage(ITestResult result) {
+		if (result == null) {
+			return "The test did not run";
+		}
+		Throwable error = result.getThrowable();
+		return error == null ? "" : error.toString().replaceAll("\\s+", " ");
+	}
+
+	/**
+	 * Method to wait for the tests queued again.
+	 */
+	private static void sleep() {
+		try {
+			Thread.sleep(WAIT_MILLIS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
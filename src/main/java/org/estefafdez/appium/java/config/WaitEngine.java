@@ -0,0 +1,196 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * <p>
+ * This class waits until a condition is satisfied or the timeout is finished. The
+ * first polls are very close to each other, so a wait ends a few milliseconds after
+ * the element appears, and then the polling backs off to not flood the device with
+ * requests on the long waits.
+ * </p>
+ * <p>
+ * The conditions should look for the elements with <b>findElements</b>, which
+ * returns an empty list instead of throwing an exception for each miss. The
+ * {@link WebDriverException} thrown by a condition, for example a stale element,
+ * only counts as a miss.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class WaitEngine {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(WaitEngine.class);
+
+	/** Seconds to wait when the timeout is not configured. */
+	public static final long DEFAULT_TIMEOUT = 10;
+
+	/** Milliseconds between the first two polls. */
+	private static final long FIRST_POLLING = 10;
+
+	/** Maximum milliseconds between two polls. */
+	private static final long MAX_POLLING = 200;
+
+	/** Factor applied to the polling interval after each miss. */
+	private static final double POLLING_BACKOFF = 1.2;
+
+	/** Seconds to wait by default. */
+	private final long timeout;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of an engine with a default timeout.
+	 *
+	 * @param timeout seconds to wait by default
+	 */
+	public WaitEngine(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Method to get an engine with the timeout of the <b>config.waitElementTimeout</b>
+	 * property.
+	 *
+	 * @return the engine
+	 */
+	public static WaitEngine fromConfig() {
+		return new WaitEngine(PropertiesManager.getInstance().getConfig().getWaitElementTimeout());
+	}
+
+	/**
+	 * Method to get the timeout from its value on the configuration.
+	 *
+	 * @param value seconds, for example: 10
+	 * @return the seconds or {@link #DEFAULT_TIMEOUT} when the value is empty or not valid
+	 */
+	static long parseTimeout(String value) {
+		if (value == null || value.trim().isEmpty() || value.contains("$")) {
+			return DEFAULT_TIMEOUT;
+		}
+		try {
+			long seconds = Long.parseLong(value.trim());
+			if (seconds > 0) {
+				return seconds;
+			}
+		} catch (NumberFormatException ex) {
+			// the warning below is enough
+		}
+		LOGGER.warn("[ Wait Engine ] - The timeout [{}] is not valid, using {} seconds", value, DEFAULT_TIMEOUT);
+		return DEFAULT_TIMEOUT;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO WAIT
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to wait with the default timeout until the condition is satisfied.
+	 *
+	 * @param condition returns null or false while it is not satisfied
+	 * @return the last value of the condition, null or false if the timeout is finished
+	 */
+	public <T> T until(Supplier<T> condition) {
+		return until(condition, timeout);
+	}
+
+	/**
+	 * Method to wait until the condition is satisfied. The condition is always
+	 * checked once more when the timeout is finished.
+	 *
+	 * @param condition returns null or false while it is not satisfied
+	 * @param seconds timeout of this wait
+	 * @return the last value of the condition, null or false if the timeout is finished
+	 */
+	public <T> T until(Supplier<T> condition, long seconds) {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+		long polling = FIRST_POLLING;
+		int misses = 0;
+		String lastError = null;
+		T value = null;
+		try {
+			while (true) {
+				try {
+					value = condition.get();
+					if (isSatisfied(value)) {
+						if (LOGGER.isDebugEnabled()) {
+							LOGGER.debug("[ Wait Engine ] - Condition satisfied after {} misses and {} ms", misses,
+									TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+						}
+						return value;
+					}
+				} catch (WebDriverException ex) {
+					lastError = ex.getClass().getSimpleName();
+				}
+				misses++;
+				long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0) {
+					break;
+				}
+				Thread.sleep(Math.min(polling, remaining));
+				polling = Math.min(MAX_POLLING, (long) (polling * POLLING_BACKOFF));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		LOGGER.debug("[ Wait Engine ] - Timeout of {} seconds finished after {} misses, last error: {}", seconds,
+				misses, lastError);
+		return value;
+	}
+
+	/**
+	 * Method to check the value of a condition.
+	 *
+	 * @param value the value returned by the condition
+	 * @return true|false if the condition is satisfied
+	 */
+	private static boolean isSatisfied(Object value) {
+		return value != null && !Boolean.FALSE.equals(value);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * @return the seconds to wait by default
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+}
@@ -26,7 +26,7 @@ public class AndroidHomePage extends BasePageObjectConfig{
 	 * Method to wait until the Page is Ready. 
 	 */
 	public boolean waitForReadyPageByID() {
-		LOGGER.info("Launch waitForReady " + this.getClass().getSimpleName());
+		LOGGER.info("Launch waitForReady {}", this.getClass().getSimpleName());
 		return this.waitForReadyPageByID(AndroidHomeConst.SET_UP_ANDROID_IS_READY);
 	}
 	
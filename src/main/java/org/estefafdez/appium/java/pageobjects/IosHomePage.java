@@ -1,7 +1,13 @@
 package org.estefafdez.appium.java.pageobjects;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.AttributeRead;
 import org.estefafdez.appium.java.config.BasePageObjectConfig;
 import org.estefafdez.appium.java.constant.IosHomeConst;
 
@@ -12,6 +18,15 @@ public class IosHomePage extends BasePageObjectConfig{
 
 	/** Logger class initialization. */
 	private static final Logger LOGGER = LogManager.getLogger(IosHomePage.class);
+
+	/** Value of the switch button, 1: enable, 0: disable. */
+	public static final AttributeRead SWITCH_VALUE = AttributeRead.byId(IosHomeConst.BODY_BUTTON_SWITCH, "value");
+	
+	/** Text of the label of the switch button. */
+	public static final AttributeRead SWITCH_LABEL_VALUE = AttributeRead.byId(IosHomeConst.BODY_LABEL_SWITCH_BUTTON_TEXT, "value");
+	
+	/** Attributes read to check the switch button. */
+	private static final List<AttributeRead> SWITCH_READS = Collections.unmodifiableList(Arrays.asList(SWITCH_VALUE, SWITCH_LABEL_VALUE));
 	
 	/**
 	 * Class constructor
@@ -26,7 +41,7 @@ public class IosHomePage extends BasePageObjectConfig{
 	 * Method wait for ready
 	 */
 	public boolean waitForReadyPageByID() {
-		LOGGER.info("Launch waitForReady " + this.getClass().getSimpleName());
+		LOGGER.info("Launch waitForReady {}", this.getClass().getSimpleName());
 		return this.waitForReadyPageByID(IosHomeConst.SET_UP_IOS_IS_READY);
 	}
 	
@@ -63,6 +78,16 @@ public class IosHomePage extends BasePageObjectConfig{
 		return this.getValueOfElementAttributeByID(IosHomeConst.BODY_BUTTON_SWITCH, "value").equalsIgnoreCase("1");
 	}
 	
+	/**
+	 * Method to read the status of the switch button and the text of its label at
+	 * once, with one request for both of them.
+	 * @return the values of {@link #SWITCH_VALUE}, 1: enable, 0: disable, and of
+	 *         {@link #SWITCH_LABEL_VALUE}
+	 */
+	public Map<AttributeRead, String> getSwitchValues() {
+		return this.getAttributes(SWITCH_READS);
+	}
+	
 	/**
 	 * Method to click on the switch button.
 	 */
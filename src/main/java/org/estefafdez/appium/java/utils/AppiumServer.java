@@ -0,0 +1,402 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.StartupProfiler;
+
+import io.appium.java_client.service.local.AppiumDriverLocalService;
+import io.appium.java_client.service.local.AppiumServerHasNotBeenStartedLocallyException;
+import io.appium.java_client.service.local.AppiumServiceBuilder;
+import io.appium.java_client.service.local.flags.GeneralServerFlag;
+
+/**
+ * <p>
+ * This class is one of the Appium Servers of the pool handled by the
+ * {@link AppiumServerHandler}. Each server listens on its own free port and it is
+ * assigned to one device. The server can be a local Node server launched by the
+ * pool, the in-process {@link FakeAppiumServer}, or a server already running.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class AppiumServer {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(AppiumServer.class);
+
+	/** Milliseconds to wait for the answer of the status endpoint. */
+	private static final int STATUS_TIMEOUT = 2000;
+
+	/** Seconds to wait for a local server to start. */
+	private static final long STARTUP_TIMEOUT = 60;
+
+	/** Milliseconds between the probes of a daemon server starting. */
+	private static final long DAEMON_POLLING = 250;
+
+	/** Position of the server on the pool. */
+	private final int index;
+
+	/** Udid of the device assigned to the server, null to use the default one. */
+	private final String deviceUdid;
+
+	/** Lease of the device of the server. */
+	private final DeviceLease device;
+
+	/** Address of the server: null to launch a local one, fake or the URL of a running one. */
+	private final String address;
+
+	/** Appium Service instance */
+	private volatile AppiumDriverLocalService service;
+
+	/** Fake Appium Server instance */
+	private volatile FakeAppiumServer fakeService;
+
+	/** Appium service URL associated */
+	private volatile String serviceUrl;
+
+	/** Lock file of the local server, null when it is not recorded. */
+	private AppiumServerLock lock;
+
+	/** If the server is a daemon, kept running after the run. */
+	private boolean daemon;
+
+	/** Process of the daemon server, -1 when it is unknown. */
+	private long daemonPid = -1;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of a server not started yet. Its index is the position of its
+	 * device on the list of devices.
+	 *
+	 * @param device the lease of the device assigned
+	 * @param address null to launch a local server, fake or the URL of a running one
+	 */
+	AppiumServer(DeviceLease device, String address) {
+		this.index = device.getSlot();
+		this.deviceUdid = device.getUdid();
+		this.device = device;
+		this.address = address;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO HANDLER SERVER
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to start the server on the port of its device, or on a free port.
+	 *
+	 * @throws CustomErrorException custom error exception
+	 */
+	synchronized void start() throws CustomErrorException {
+		if (isFake()) {
+			LOGGER.info("[ Appium Server {} ] - Initializing Fake Appium Server", index);
+			fakeService = FakeAppiumServer.fromConfig();
+			StartupProfiler.time("appiumServer " + index + ": fakeServerStart", fakeService::start);
+			serviceUrl = fakeService.getUrl();
+			return;
+		}
+		if (isRemote()) {
+			serviceUrl = address;
+			LOGGER.info("[ Appium Server {} ] - Using the server running on: {}", index, serviceUrl);
+			return;
+		}
+		String logLevel = AppiumServerHandler.getAppiumServerLogLevel();
+		daemon = AppiumServerHandler.isDaemonMode();
+		daemonPid = -1;
+		if (lock == null) {
+			lock = AppiumServerLock.acquire(index);
+		}
+		if (lock != null) {
+			String reusableUrl = daemon ? lock.getReusableUrl(logLevel) : null;
+			if (reusableUrl != null) {
+				serviceUrl = reusableUrl;
+				daemonPid = lock.getRecordedPid();
+				LOGGER.info("[ Appium Server {} ] - Attached to the daemon server running on: {}", index, serviceUrl);
+				return;
+			}
+			lock.stopOrphan();
+		} else if (daemon) {
+			LOGGER.warn("[ Appium Server {} ] - The server can not be recorded, it is stopped at the end of the run", index);
+			daemon = false;
+		}
+
+		if (daemon) {
+			startDaemon(logLevel);
+		} else {
+			startService(logLevel);
+		}
+		if (lock != null) {
+			lock.record(serviceUrl, daemon ? daemonPid : AppiumServerLock.findListeningPid(AppiumServerLock.getPort(serviceUrl)),
+					logLevel, daemon);
+		}
+	}
+
+	/**
+	 * Method to launch a server owned by the run, stopped at the end of it.
+	 *
+	 * @param logLevel the Log Level of the server
+	 * @throws CustomErrorException custom error exception
+	 */
+	private void startService(String logLevel) throws CustomErrorException {
+		try {
+			LOGGER.info("[ Appium Server {} ] - Configuring Appium Server", index);
+
+			AppiumServiceBuilder builder = new AppiumServiceBuilder();
+
+			/** This filters the Appium server logs to the level of config.appiumServerLogLevel */
+			builder.withArgument(GeneralServerFlag.LOG_LEVEL, logLevel);
+			/** Used to control the start timeouts */
+			builder.withStartUpTimeOut(STARTUP_TIMEOUT, TimeUnit.SECONDS);
+			/** The port of the device leased, or any free one to avoid port collisions */
+			int port = device.getFreePort();
+			if (port > 0) {
+				builder.usingPort(port);
+			} else {
+				builder.usingAnyFreePort();
+			}
+
+			/** Build the server */
+			service = StartupProfiler.time("appiumServer " + index + ": buildService",
+					() -> AppiumDriverLocalService.buildService(builder));
+
+			LOGGER.info("[ Appium Server {} ] - Initializing Appium Server", index);
+			StartupProfiler.time("appiumServer " + index + ": serviceStart", service::start);
+
+			/** Update URL reference */
+			serviceUrl = service.getUrl().toString();
+
+			LOGGER.info("[ Appium Server {} ] - Server stablished on: {}", index, serviceUrl);
+
+		} catch (AppiumServerHasNotBeenStartedLocallyException ex) {
+			throw new CustomErrorException("[ Appium Server error ] - The server " + index + " has problems to launch", ex);
+		} catch (Exception ex) {
+			throw new CustomErrorException("[ Appium Server error ] - The server " + index + " has problems", ex);
+		}
+	}
+
+	/**
+	 * Method to launch a daemon server, detached from the run so the next runs can
+	 * attach to it. Its output is written on the folder of the lock files.
+	 *
+	 * @param logLevel the Log Level of the server
+	 * @throws CustomErrorException custom error exception
+	 */
+	private void startDaemon(String logLevel) throws CustomErrorException {
+		int freePort = device.getFreePort();
+		final int port = freePort > 0 ? freePort : findFreePort();
+		final Path log = AppiumServerLock.FOLDER.resolve("appium-server-" + index + ".log");
+		LOGGER.info("[ Appium Server {} ] - Initializing daemon Appium Server on the port {}, log: {}", index, port, log);
+		if (StartupProfiler.time("appiumServer " + index + ": daemonStart", () -> launchDaemon(port, logLevel, log))) {
+			return;
+		}
+		AppiumServerLock.stopProcess(AppiumServerLock.findListeningPid(port), "http://127.0.0.1:" + port);
+		throw new CustomErrorException("[ Appium Server error ] - The daemon server " + index + " did not answer after "
+				+ STARTUP_TIMEOUT + " seconds, see: " + log);
+	}
+
+	/**
+	 * Method to launch the process of a daemon server and wait until it answers.
+	 *
+	 * @param port the port of the server
+	 * @param logLevel the Log Level of the server
+	 * @param log the file of its output
+	 * @return true|false if the server answered on time
+	 * @throws CustomErrorException when the process can not be launched
+	 */
+	private boolean launchDaemon(int port, String logLevel, Path log) throws CustomErrorException {
+		try {
+			new ProcessBuilder(AppiumServerLock.isWindows() ? "appium.cmd" : "appium", "--port", String.valueOf(port),
+					"--log-level", logLevel).redirectErrorStream(true).redirectOutput(Redirect.appendTo(log.toFile()))
+							.start();
+
+			/** Appium 1 answers on /wd/hub and Appium 2 on the root path */
+			String[] urls = { "http://127.0.0.1:" + port + "/wd/hub", "http://127.0.0.1:" + port };
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STARTUP_TIMEOUT);
+			while (System.nanoTime() < deadline) {
+				for (String url : urls) {
+					if (isAlive(url)) {
+						serviceUrl = url;
+						daemonPid = AppiumServerLock.findListeningPid(port);
+						LOGGER.info("[ Appium Server {} ] - Daemon server {} stablished on: {}", index, daemonPid, serviceUrl);
+						return true;
+					}
+				}
+				Thread.sleep(DAEMON_POLLING);
+			}
+			return false;
+		} catch (IOException ex) {
+			throw new CustomErrorException("[ Appium Server error ] - The daemon server " + index + " has problems to launch", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new CustomErrorException("[ Appium Server error ] - The daemon server " + index + " was interrupted", ex);
+		}
+	}
+
+	/**
+	 * Method to get a free local port.
+	 */
+	private static int findFreePort() throws CustomErrorException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException ex) {
+			throw new CustomErrorException("[ Appium Server error ] - There is not a free port", ex);
+		}
+	}
+
+	/**
+	 * Method to stop the server.
+	 */
+	synchronized void stop() {
+		if (fakeService != null) {
+			LOGGER.info("[ Appium Server {} ] - Stoping Fake Appium Server", index);
+			fakeService.stop();
+			fakeService = null;
+		}
+		if (service != null && service.isRunning()) {
+			LOGGER.info("[ Appium Server {} ] - Stoping Appium Server", index);
+			service.stop();
+		}
+		if (lock != null) {
+			if (daemon) {
+				LOGGER.info("[ Appium Server {} ] - The daemon server keeps running on: {}", index, serviceUrl);
+				lock.release();
+			} else {
+				lock.clear();
+			}
+			lock = null;
+		}
+	}
+
+	/**
+	 * Method to restart the server. The new server gets the port of its device again
+	 * when it is free, otherwise a new free port, so the URL may change.
+	 *
+	 * @return true|false if the server was stopped to start a new one
+	 * @throws CustomErrorException custom error exception
+	 */
+	synchronized boolean restart() throws CustomErrorException {
+		if (isRemote()) {
+			LOGGER.warn("[ Appium Server {} ] - The server running on {} does not answer and it can not be restarted"
+					+ " from here", index, address);
+			return false;
+		}
+		LOGGER.warn("[ Appium Server {} ] - Restarting Appium Server", index);
+		if (daemon) {
+			AppiumServerLock.stopProcess(daemonPid, serviceUrl);
+			daemon = false;
+		}
+		stop();
+		start();
+		return true;
+	}
+
+	/**
+	 * Method to check if the server answers on its <b>/status</b> endpoint.
+	 *
+	 * @return true|false if the server is alive
+	 */
+	boolean isAlive() {
+		String url = serviceUrl;
+		return url != null && isAlive(url);
+	}
+
+	/**
+	 * Method to check if a server answers on its <b>/status</b> endpoint.
+	 *
+	 * @param url the URL of the server
+	 * @return true|false if the server is alive
+	 */
+	static boolean isAlive(String url) {
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(url.endsWith("/") ? url + "status" : url + "/status")
+					.openConnection();
+			connection.setConnectTimeout(STATUS_TIMEOUT);
+			connection.setReadTimeout(STATUS_TIMEOUT);
+			return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+		} catch (IOException ex) {
+			LOGGER.debug("[ Appium Server ] - The status endpoint of {} does not answer: {}", url, ex.getMessage());
+			return false;
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the server is the in-process fake server
+	 */
+	private boolean isFake() {
+		return FakeAppiumServer.ADDRESS.equalsIgnoreCase(address);
+	}
+
+	/**
+	 * @return true if the server was already running and it is not handled by the pool
+	 */
+	private boolean isRemote() {
+		return address != null && !isFake();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * @return the position of the server on the pool
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the udid of the device assigned to the server, null to use the default one
+	 */
+	public String getDeviceUdid() {
+		return deviceUdid;
+	}
+
+	/**
+	 * @return the current URL of the server
+	 */
+	public String getUrl() {
+		return serviceUrl;
+	}
+}
@@ -19,16 +19,23 @@
  */
 package org.estefafdez.appium.java.utils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.BootstrapGraph;
 import org.estefafdez.appium.java.config.ConstantConfig;
-
-import io.appium.java_client.service.local.AppiumDriverLocalService;
-import io.appium.java_client.service.local.AppiumServerHasNotBeenStartedLocallyException;
-import io.appium.java_client.service.local.AppiumServiceBuilder;
-import io.appium.java_client.service.local.flags.GeneralServerFlag;
+import org.estefafdez.appium.java.config.PropertiesManager;
+import org.estefafdez.appium.java.config.SessionPool;
+import org.estefafdez.appium.java.config.StartupProfiler;
 
 /**
  * <p>
@@ -49,11 +56,32 @@ public final class AppiumServerHandler {
 	/** Logger class initialization. */
 	private static final Logger LOGGER = LogManager.getLogger(AppiumServerHandler.class);
 
-	/** Appium Service instance */
-	private static AppiumDriverLocalService service;
+	/** Seconds between two health checks of the servers. */
+	private static final long HEALTH_CHECK_PERIOD = 10;
+
+	/** Health checks failed in a row before restarting a server. */
+	private static final int MAX_HEALTH_FAILURES = 3;
+
+	/** Port of the local Appium Server of the first device by default */
+	private static final int DEFAULT_BASE_PORT = 4723;
+
+	/** Seconds to wait for a device leased by another JVM by default */
+	private static final int DEFAULT_LEASE_TIMEOUT = 600;
+
+	/** Pool of Appium Servers, one per device */
+	private static List<AppiumServer> servers = Collections.emptyList();
+
+	/** Devices leased by the JVM, released when the servers are stopped */
+	private static List<DeviceLease> devices = Collections.emptyList();
 
-	/** Appium service URL associated */
-	private static String serviceUrl;
+	/** Server bound to the current worker thread */
+	private static final ThreadLocal<AppiumServer> BINDING = new ThreadLocal<>();
+
+	/** Executor to check the health of the servers and restart them in background */
+	private static ScheduledExecutorService healthChecker;
+
+	/** Handler to access to the properties matrix */
+	private static PropertiesManager handler = PropertiesManager.getInstance();
 	
 	/*--------------------------------------------------------------------* 
 	|	CONSTRUCTOR
@@ -65,63 +93,248 @@ public final class AppiumServerHandler {
 	*---------------------------------------------------------------------*/
 	
 	/**
-	 * Method to start the Appium Server
+	 * Method to start the pool of Appium Servers. There is one server per device
+	 * declared on <b>config.deviceUdids</b> and leased by the JVM, or a single one
+	 * when there is not any. The servers are started at the same time.
 	 * @throws CustomErrorException custom error exception
 	 */
 	public static void appiumServerStart() throws CustomErrorException {
-		try {
-			LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-			LOGGER.info("[ Appium Server ] - Configuring Appium Server");
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		List<String> udids = getDeviceUdids();
+		String address = getAppiumServerAddress();
+		int basePort = getAppiumServerBasePort();
+		if (FakeAppiumServer.ADDRESS.equalsIgnoreCase(address) || (address != null && udids.isEmpty())) {
+			/** The fake server and the remote servers without devices do not use any local device */
+			devices = DeviceLease.unleased(udids, basePort);
+		} else {
+			devices = StartupProfiler.time("leaseDevices",
+					() -> DeviceLease.acquire(udids, getDevicesPerFork(), basePort, getDeviceLeaseTimeout()));
+		}
+		int poolSize = devices.size();
+		LOGGER.info("[ Appium Server ] - Configuring a pool of {} Appium Servers", poolSize);
 
-			AppiumServiceBuilder builder = new AppiumServiceBuilder();
+		List<AppiumServer> pool = new ArrayList<>(poolSize);
+		for (DeviceLease device : devices) {
+			pool.add(new AppiumServer(device, address));
+		}
+		servers = Collections.unmodifiableList(pool);
 
-			/** This filters ALL Appium server logs to warning level */
-			builder.withArgument(GeneralServerFlag.LOG_LEVEL, "warn");
-			/** Used to control the start timeouts */
-			builder.withStartUpTimeOut(60, TimeUnit.SECONDS);
-			/** Used to avoid port collisions */
-			builder.usingAnyFreePort();
+		/** The servers start at the same time, the first one that fails cancels the others */
+		try (BootstrapGraph starter = new BootstrapGraph("appium-server-starter", poolSize)) {
+			for (AppiumServer server : servers) {
+				starter.add("appiumServer " + server.getIndex(), server::start);
+			}
+			starter.await();
+		}
 
-			/** Build the server */
-			service = AppiumDriverLocalService.buildService(builder);
+		StartupProfiler.time("startHealthChecker", AppiumServerHandler::startHealthChecker);
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+	}
 
-			LOGGER.info("[ Appium Server ] - Checking if previous Appium Servers are running");
-			if (service.isRunning()) {
-				LOGGER.info("[ Appium Server ] - Stoping previous Appium Servers to avoid problems");
-				service.stop();
+	/**
+	 * Method to stop the pool of Appium Servers
+	 */
+	public static void appiumServerStop() {
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		LOGGER.info("[ Appium Server ] - Stoping the pool of Appium Servers");
+		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+		}
+		for (AppiumServer server : servers) {
+			server.stop();
+		}
+		servers = Collections.emptyList();
+		for (DeviceLease device : devices) {
+			device.release();
+		}
+		devices = Collections.emptyList();
+		BINDING.remove();
+	}
+
+	/*--------------------------------------------------------------------* 
+	|	LOGIC TO BIND THE SERVERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the pool of Appium Servers.
+	 * @return unmodifiable list of the servers
+	 */
+	public static List<AppiumServer> getAppiumServers() {
+		return servers;
+	}
+
+	/**
+	 * Method to bind a server to the current worker thread, usually the server of
+	 * the session the worker is using.
+	 * @param server the server to bind
+	 */
+	public static void bindAppiumServer(AppiumServer server) {
+		BINDING.set(server);
+	}
+
+	/**
+	 * Method to unbind the server of the current worker thread.
+	 */
+	public static void unbindAppiumServer() {
+		BINDING.remove();
+	}
+
+	/**
+	 * Method to get the Appium Server URL bound to the current worker thread
+	 * @return Appium Server URL, null when the worker has not any server bound
+	 */
+	public static String getAppiumServerUrl() {
+		AppiumServer server = BINDING.get();
+		return server == null ? null : server.getUrl();
+	}
+
+	/**
+	 * Method to get the list of devices declared on <b>config.deviceUdids</b>.
+	 *
+	 * @return the list of device udids, empty when there is not any.
+	 */
+	public static List<String> getDeviceUdids() {
+		List<String> udids = new ArrayList<>();
+		String value = handler.getConfig().valueOf(ConstantConfig.DEVICE_UDIDS, null);
+		if (value == null) {
+			return udids;
+		}
+		for (String udid : value.split(",")) {
+			if (!udid.trim().isEmpty()) {
+				udids.add(udid.trim());
 			}
+		}
+		return udids;
+	}
+
+	/**
+	 * Method to get the Appium Server declared on <b>config.appiumServer</b>.
+	 *
+	 * @return null to launch local servers, fake or the URL of a running server.
+	 */
+	public static String getAppiumServerAddress() {
+		return handler.getConfig().valueOf(ConstantConfig.APPIUM_SERVER, null);
+	}
+
+	/**
+	 * Method to get the Log Level of the local Appium Servers declared on
+	 * <b>config.appiumServerLogLevel</b>.
+	 *
+	 * @return the Log Level, by default: warn
+	 */
+	public static String getAppiumServerLogLevel() {
+		return handler.getConfig().valueOf(ConstantConfig.APPIUM_LOG_LEVEL, ConstantConfig.SERV_LOG_LEVEL_WARN)
+				.toLowerCase(Locale.ROOT);
+	}
 
-			LOGGER.info("[ Appium Server ] - Initializing Appium Server");
-			service.start();
+	/**
+	 * Method to check if the local Appium Servers are kept running after the run,
+	 * declared on <b>config.appiumServerDaemon</b>.
+	 *
+	 * @return true|false if the servers are daemons
+	 */
+	public static boolean isDaemonMode() {
+		return Boolean.parseBoolean(handler.getConfig().valueOf(ConstantConfig.APPIUM_SERVER_DAEMON, "false"));
+	}
 
-			/** Update URL reference */
-			serviceUrl = service.getUrl().toString();
+	/**
+	 * Method to get the port of the local Appium Server of the first device declared
+	 * on <b>config.appiumServerBasePort</b>.
+	 *
+	 * @return the port, by default: 4723, or 0 to use any free port
+	 */
+	public static int getAppiumServerBasePort() {
+		return parseInt(ConstantConfig.APPIUM_SERVER_BASE_PORT, DEFAULT_BASE_PORT);
+	}
+
+	/**
+	 * Method to get the maximum devices leased by the JVM declared on
+	 * <b>config.devicesPerFork</b>.
+	 *
+	 * @return the maximum devices, by default every device
+	 */
+	public static int getDevicesPerFork() {
+		int max = parseInt(ConstantConfig.DEVICES_PER_FORK, Integer.MAX_VALUE);
+		return max > 0 ? max : Integer.MAX_VALUE;
+	}
 
-			LOGGER.info("[ Appium Server ] - Server stablished on: " + serviceUrl);
-			LOGGER.info(ConstantConfig.LOG_SEPARATOR);
+	/**
+	 * Method to get the maximum seconds to wait for a device leased by another JVM
+	 * declared on <b>config.deviceLeaseTimeout</b>.
+	 *
+	 * @return the seconds, by default: 600
+	 */
+	public static long getDeviceLeaseTimeout() {
+		return parseInt(ConstantConfig.DEVICE_LEASE_TIMEOUT, DEFAULT_LEASE_TIMEOUT);
+	}
 
-		} catch (AppiumServerHasNotBeenStartedLocallyException ex) {
-			throw new CustomErrorException("[ Appium Server error ] - The server has problems to launch", ex);
-		} catch (Exception ex) {
-			throw new CustomErrorException("[ Appium Server error ] - The server has problems", ex);
+	/**
+	 * Method to get a number of the configuration.
+	 */
+	private static int parseInt(String key, int defaultValue) {
+		String value = handler.getConfig().valueOf(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			LOGGER.warn("[ Appium Server ] - The value {} of {} is not a number, using: {}", value, key, defaultValue);
+			return defaultValue;
 		}
 	}
 
+	/*--------------------------------------------------------------------* 
+	|	LOGIC TO CHECK THE HEALTH OF THE SERVERS
+	*---------------------------------------------------------------------*/
+
 	/**
-	 * Method to stop the Appium Server
+	 * Method to probe periodically the servers and restart in background the ones
+	 * that do not answer {@value #MAX_HEALTH_FAILURES} times in a row, so a server
+	 * busy for a while is not restarted. A failed restart is only logged, it never
+	 * fails the suite.
 	 */
-	public static void appiumServerStop() {
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		LOGGER.info("[ Appium Server ] - Stoping Appium Server");
-		LOGGER.info(ConstantConfig.LOG_SEPARATOR);
-		service.stop();
+	private static void startHealthChecker() {
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "appium-server-health");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final Map<AppiumServer, Integer> failures = new HashMap<>();
+		healthChecker.scheduleWithFixedDelay(() -> {
+			for (AppiumServer server : servers) {
+				checkHealth(server, failures);
+			}
+		}, HEALTH_CHECK_PERIOD, HEALTH_CHECK_PERIOD, TimeUnit.SECONDS);
 	}
 
 	/**
-	 * Method to get the Appium Server URL
-	 * @return Appium Server URL
+	 * Method to probe one server and restart it when it does not answer again. The
+	 * sessions of the old server are lost, so they are replaced on the new one.
+	 * @param server the server to check
+	 * @param failures health checks failed in a row of each server
 	 */
-	public static String getAppiumServerUrl() {
-		return serviceUrl;
+	private static void checkHealth(AppiumServer server, Map<AppiumServer, Integer> failures) {
+		if (server.isAlive()) {
+			failures.remove(server);
+			return;
+		}
+		int failed = failures.merge(server, 1, Integer::sum);
+		LOGGER.warn("[ Appium Server ] - The server {} does not answer on {} ({} of {})", server.getIndex(),
+				server.getUrl(), failed, MAX_HEALTH_FAILURES);
+		if (failed < MAX_HEALTH_FAILURES) {
+			return;
+		}
+		failures.remove(server);
+		boolean stopped = true;
+		try {
+			stopped = server.restart();
+		} catch (CustomErrorException | RuntimeException ex) {
+			LOGGER.error("[ Appium Server error ] - The server {} could not be restarted", server.getIndex(), ex);
+		}
+		if (stopped) {
+			SessionPool.discardSessions(server);
+		}
 	}
 }
@@ -0,0 +1,354 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>
+ * This class is the lock file of one of the local Appium Servers of the pool. It
+ * records the URL, the process and the mode of the server, and it is locked by the
+ * run that uses the server, so the lock is released by the system even when the
+ * run crashes.
+ * </p>
+ * <p>
+ * The next run reads it to attach to a daemon server still healthy, or to stop the
+ * process left by a crashed run before starting a new one. The process is only
+ * stopped while it still listens on the port recorded, so a number reused by the
+ * system is never stopped.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+final class AppiumServerLock {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(AppiumServerLock.class);
+
+	/** Folder of the lock files and the logs of the daemon servers. */
+	static final Path FOLDER = Paths.get(System.getProperty("java.io.tmpdir"), "appium-java-servers");
+
+	/** Key of the URL of the server. */
+	private static final String URL_KEY = "url";
+
+	/** Key of the process of the server. */
+	private static final String PID_KEY = "pid";
+
+	/** Key of the Log Level of the server. */
+	private static final String LOG_LEVEL_KEY = "logLevel";
+
+	/** Key of the mode of the server. */
+	private static final String DAEMON_KEY = "daemon";
+
+	/** Seconds to wait for the system commands. */
+	private static final long COMMAND_TIMEOUT = 10;
+
+	/** Position of the server on the pool. */
+	private final int index;
+
+	/** Channel of the lock file, open while the run uses the server. */
+	private final FileChannel channel;
+
+	/** Lock of the run. */
+	private final FileLock lock;
+
+	/** Values recorded by the last run. */
+	private final Properties recorded;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	private AppiumServerLock(int index, FileChannel channel, FileLock lock, Properties recorded) {
+		this.index = index;
+		this.channel = channel;
+		this.lock = lock;
+		this.recorded = recorded;
+	}
+
+	/**
+	 * Method to lock the file of a server of the pool.
+	 *
+	 * @param index position of the server on the pool
+	 * @return the lock, or null when the server is used by another run or the file
+	 *         can not be written
+	 */
+	static AppiumServerLock acquire(int index) {
+		Path file = FOLDER.resolve("appium-server-" + index + ".lock");
+		FileChannel channel = null;
+		try {
+			Files.createDirectories(FOLDER);
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			FileLock lock = channel.tryLock();
+			if (lock == null) {
+				channel.close();
+				LOGGER.warn("[ Appium Server {} ] - The server is used by another run: {}", index, file);
+				return null;
+			}
+			Properties recorded = new Properties();
+			recorded.load(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			return new AppiumServerLock(index, channel, lock, recorded);
+		} catch (IOException | OverlappingFileLockException ex) {
+			closeQuietly(channel);
+			LOGGER.warn("[ Appium Server {} ] - The lock file {} can not be used: {}", index, file, ex.getMessage());
+			return null;
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO REUSE THE SERVERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the URL of the daemon server left by the last run, when it
+	 * answers and it has the same Log Level.
+	 *
+	 * @param logLevel the Log Level wanted
+	 * @return the URL of the server or null when it can not be reused
+	 */
+	String getReusableUrl(String logLevel) {
+		String url = recorded.getProperty(URL_KEY);
+		if (url == null || !Boolean.parseBoolean(recorded.getProperty(DAEMON_KEY))) {
+			return null;
+		}
+		if (!logLevel.equalsIgnoreCase(recorded.getProperty(LOG_LEVEL_KEY))) {
+			LOGGER.info("[ Appium Server {} ] - The daemon server on {} has another Log Level", index, url);
+			return null;
+		}
+		return AppiumServer.isAlive(url) ? url : null;
+	}
+
+	/**
+	 * @return the process of the server recorded, -1 when it is unknown
+	 */
+	long getRecordedPid() {
+		try {
+			return Long.parseLong(recorded.getProperty(PID_KEY, "-1"));
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Method to stop the process left by the last run, when it still listens on
+	 * the port recorded.
+	 */
+	void stopOrphan() {
+		String url = recorded.getProperty(URL_KEY);
+		long pid = getRecordedPid();
+		if (url == null || pid <= 0) {
+			return;
+		}
+		if (stopProcess(pid, url)) {
+			LOGGER.warn("[ Appium Server {} ] - Stopped the process {} left on {} by a previous run", index, pid, url);
+		}
+	}
+
+	/**
+	 * Method to record the server started or attached by this run.
+	 *
+	 * @param url the URL of the server
+	 * @param pid the process of the server, -1 when it is unknown
+	 * @param logLevel the Log Level of the server
+	 * @param daemon true if the server is kept running after the run
+	 */
+	void record(String url, long pid, String logLevel, boolean daemon) {
+		recorded.clear();
+		recorded.setProperty(URL_KEY, url);
+		recorded.setProperty(PID_KEY, String.valueOf(pid));
+		recorded.setProperty(LOG_LEVEL_KEY, logLevel);
+		recorded.setProperty(DAEMON_KEY, String.valueOf(daemon));
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try {
+			recorded.store(content, "Appium Server " + index);
+			channel.truncate(0);
+			channel.write(ByteBuffer.wrap(content.toByteArray()), 0);
+			channel.force(false);
+		} catch (IOException ex) {
+			LOGGER.warn("[ Appium Server {} ] - The lock file can not be written: {}", index, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Method to release the lock, keeping the values recorded for the next run.
+	 */
+	void release() {
+		try {
+			lock.release();
+		} catch (IOException ex) {
+			LOGGER.debug("[ Appium Server {} ] - The lock can not be released: {}", index, ex.getMessage());
+		}
+		closeQuietly(channel);
+	}
+
+	/**
+	 * Method to forget the server, once it is stopped, and release the lock.
+	 */
+	void clear() {
+		try {
+			recorded.clear();
+			channel.truncate(0);
+		} catch (IOException ex) {
+			LOGGER.debug("[ Appium Server {} ] - The lock file can not be cleared: {}", index, ex.getMessage());
+		}
+		release();
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO HANDLE THE PROCESSES
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to stop a process of a server, only while it listens on the port of
+	 * the URL.
+	 *
+	 * @param pid the process
+	 * @param url the URL of the server
+	 * @return true|false if the process was stopped
+	 */
+	static boolean stopProcess(long pid, String url) {
+		if (pid <= 0 || findListeningPid(getPort(url)) != pid) {
+			return false;
+		}
+		return run(isWindows() ? new String[] { "taskkill", "/F", "/T", "/PID", String.valueOf(pid) }
+				: new String[] { "kill", String.valueOf(pid) }) != null;
+	}
+
+	/**
+	 * Method to find the process listening on a local port.
+	 *
+	 * @param port the port
+	 * @return the process or -1 when there is not any or it can not be found
+	 */
+	static long findListeningPid(int port) {
+		if (port <= 0) {
+			return -1;
+		}
+		String output = isWindows() ? run("netstat", "-ano", "-p", "tcp")
+				: run("lsof", "-nP", "-t", "-iTCP:" + port, "-sTCP:LISTEN");
+		if (output == null) {
+			return -1;
+		}
+		for (String line : output.split("\\R")) {
+			String[] columns = line.trim().split("\\s+");
+			try {
+				if (!isWindows() && columns.length == 1 && !columns[0].isEmpty()) {
+					return Long.parseLong(columns[0]);
+				}
+				if (isWindows() && columns.length >= 5 && columns[1].endsWith(":" + port)
+						&& "LISTENING".equalsIgnoreCase(columns[3])) {
+					return Long.parseLong(columns[4]);
+				}
+			} catch (NumberFormatException ex) {
+				// not a line of a process
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Method to get the port of a URL.
+	 */
+	static int getPort(String url) {
+		try {
+			return new URL(url).getPort();
+		} catch (IOException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Method to run a system command.
+	 *
+	 * @return the output of the command, or null when it fails
+	 */
+	private static String run(String... command) {
+		try {
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			StringBuilder output = new StringBuilder();
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					output.append(line).append('\n');
+				}
+			}
+			if (!process.waitFor(COMMAND_TIMEOUT, TimeUnit.SECONDS)) {
+				process.destroy();
+				return null;
+			}
+			return process.exitValue() == 0 ? output.toString() : null;
+		} catch (IOException ex) {
+			LOGGER.debug("[ Appium Server ] - The command {} can not be run: {}", command[0], ex.getMessage());
+			return null;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if the system is Windows
+	 */
+	static boolean isWindows() {
+		return System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+	}
+
+	/**
+	 * Method to close a channel ignoring the errors.
+	 */
+	private static void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				// nothing to do, the lock is released anyway
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>
+ * This class writes the artifacts of the tests, like the screenshots of the
+ * failures, in background. The test only waits to take the bytes from the device
+ * and the next test can start while they are written on the disk.
+ * </p>
+ * <p>
+ * The queue is bounded: when it is full, or the writer is being flushed, the
+ * artifact is written by the thread that sends it, so a slow disk slows down the
+ * tests instead of filling the memory and no artifact is lost. The artifacts still
+ * queued are written before the JVM ends.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class ArtifactWriter {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ArtifactWriter.class);
+
+	/** Threads writing the artifacts. */
+	private static final int WRITERS = 2;
+
+	/** Maximum artifacts waiting to be written. */
+	private static final int QUEUE_SIZE = 64;
+
+	/** Seconds to wait for the queued artifacts on the shutdown. */
+	private static final long FLUSH_TIMEOUT = 30;
+
+	/** Artifacts written. */
+	private static final AtomicInteger WRITTEN = new AtomicInteger();
+
+	/** Artifacts that could not be written. */
+	private static final AtomicInteger FAILED = new AtomicInteger();
+
+	/** Content waiting to be added to each file, in the order it was added. */
+	private static final Map<Path, Queue<byte[]>> APPENDS = new ConcurrentHashMap<>();
+
+	/** Executor that writes the artifacts, null while it is not needed. */
+	private static ThreadPoolExecutor writer;
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(ArtifactWriter::flush, "artifact-writer-flush"));
+	}
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+	private ArtifactWriter() {}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO WRITE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to write an artifact in background, creating its folder if needed. An
+	 * existing file is replaced.
+	 *
+	 * @param file the file to write
+	 * @param content the content of the file, it must not be changed after
+	 */
+	public static void write(Path file, byte[] content) {
+		execute(() -> writeNow(file, content, StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * Method to add some content at the end of a file in background, creating the
+	 * file and its folder if needed. The contents added to the same file are written
+	 * in the same order they were added.
+	 *
+	 * @param file the file to write
+	 * @param content the content to add, it must not be changed after
+	 */
+	public static void append(Path file, byte[] content) {
+		Queue<byte[]> pending = APPENDS.computeIfAbsent(file, key -> new ConcurrentLinkedQueue<>());
+		pending.add(content);
+		execute(() -> appendPending(file, pending));
+	}
+
+	/**
+	 * Method to run in background any other work with the artifacts, for example
+	 * removing the old ones.
+	 *
+	 * @param task the work to run
+	 */
+	public static void execute(Runnable task) {
+		executor().execute(task);
+	}
+
+	/**
+	 * Method to add the pending contents of a file. Each writer takes them in order
+	 * while it holds the file, so a writer can not overtake other one.
+	 */
+	private static void appendPending(Path file, Queue<byte[]> pending) {
+		synchronized (pending) {
+			byte[] content;
+			while ((content = pending.poll()) != null) {
+				writeNow(file, content, StandardOpenOption.APPEND);
+			}
+		}
+	}
+
+	/**
+	 * Method to write an artifact with a file channel.
+	 */
+	private static void writeNow(Path file, byte[] content, StandardOpenOption mode) {
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+				ByteBuffer buffer = ByteBuffer.wrap(content);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			WRITTEN.incrementAndGet();
+			LOGGER.debug("[ Artifact Writer ] - Written {} bytes on: {}", content.length, file);
+		} catch (IOException ex) {
+			FAILED.incrementAndGet();
+			LOGGER.error("[ Artifact Writer ] - The artifact could not be written on: {}", file, ex);
+		}
+	}
+
+	/**
+	 * Method to get the executor, creating it the first time.
+	 */
+	private static synchronized ThreadPoolExecutor executor() {
+		if (writer == null || writer.isShutdown()) {
+			AtomicInteger threads = new AtomicInteger();
+			writer = new ThreadPoolExecutor(WRITERS, WRITERS, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+						Thread thread = new Thread(runnable, "artifact-writer-" + threads.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}, (runnable, executor) -> runnable.run());
+		}
+		return writer;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LIFE CYCLE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to wait until every queued artifact is written. The writer starts again
+	 * with the next artifact.
+	 */
+	public static void flush() {
+		ThreadPoolExecutor executor;
+		synchronized (ArtifactWriter.class) {
+			executor = writer;
+			writer = null;
+		}
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(FLUSH_TIMEOUT, TimeUnit.SECONDS)) {
+				LOGGER.warn("[ Artifact Writer ] - {} artifacts were not written after {} seconds",
+						executor.getQueue().size(), FLUSH_TIMEOUT);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		LOGGER.info("[ Artifact Writer ] - Artifacts written: {}, failed: {}", WRITTEN.get(), FAILED.get());
+	}
+}
@@ -0,0 +1,277 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.CommandMetrics;
+
+/**
+ * <p>
+ * This class is the lease of a device by a JVM, so the forks of surefire never
+ * use the same device. The device is leased with the lock of a file of the folder
+ * of the lock files of the servers, which the system releases when the JVM ends,
+ * even when it crashes, so a lease never outlives its JVM and no expiry is needed.
+ * </p>
+ * <p>
+ * The lease also fixes the position of the device on <b>config.deviceUdids</b>,
+ * which gives the port of its Appium Server and the index of its server, so the
+ * ports of the servers and of the sessions are not shared between JVMs either.
+ * The time waited for the devices is kept as the <b>deviceLease</b> wait of the
+ * {@link CommandMetrics}, apart from the commands.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+final class DeviceLease {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(DeviceLease.class);
+
+	/** Name of the wait for the devices on the metrics. */
+	static final String METRIC = "deviceLease";
+
+	/** Milliseconds between the attempts to lease a device. */
+	private static final long POLLING = 500;
+
+	/** Position of the device on the list of devices. */
+	private final int slot;
+
+	/** Udid of the device, null to use the default one. */
+	private final String udid;
+
+	/** Port of the local Appium Server of the device, 0 for any free port. */
+	private final int port;
+
+	/** Channel of the lock file, null when the device is not leased. */
+	private final FileChannel channel;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	private DeviceLease(int slot, String udid, int port, FileChannel channel) {
+		this.slot = slot;
+		this.udid = udid;
+		this.port = port;
+		this.channel = channel;
+	}
+
+	/**
+	 * Method to get the devices without leasing them, for the servers that do not use
+	 * a device, like the fake server.
+	 *
+	 * @param udids the udids of the devices, empty to use the default one
+	 * @param basePort the port of the server of the first device, 0 for any free port
+	 * @return one unleased device per udid
+	 */
+	static List<DeviceLease> unleased(List<String> udids, int basePort) {
+		List<DeviceLease> devices = new ArrayList<>();
+		for (int slot = 0; slot < Math.max(1, udids.size()); slot++) {
+			devices.add(new DeviceLease(slot, udids.isEmpty() ? null : udids.get(slot), portOf(basePort, slot), null));
+		}
+		return devices;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO LEASE THE DEVICES
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to lease the free devices, waiting until at least one of them is free.
+	 *
+	 * @param udids the udids of the devices, empty to use the default one
+	 * @param max the maximum devices to lease
+	 * @param basePort the port of the server of the first device, 0 for any free port
+	 * @param timeout the maximum seconds to wait for a device
+	 * @return the devices leased, at least one
+	 * @throws CustomErrorException if no device is free after the timeout
+	 */
+	static List<DeviceLease> acquire(List<String> udids, int max, int basePort, long timeout)
+			throws CustomErrorException {
+		int devices = Math.max(1, udids.size());
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(timeout);
+		boolean waiting = false;
+		while (true) {
+			List<DeviceLease> leases = new ArrayList<>();
+			for (int slot = 0; slot < devices && leases.size() < max; slot++) {
+				String udid = udids.isEmpty() ? null : udids.get(slot);
+				FileChannel channel = tryLock(slot, udid);
+				if (channel != null) {
+					leases.add(new DeviceLease(slot, udid, portOf(basePort, slot), channel));
+				}
+			}
+			if (!leases.isEmpty()) {
+				long waited = System.nanoTime() - start;
+				CommandMetrics.recordWait(METRIC, waited);
+				LOGGER.info("[ Device Lease ] - Leased {} of {} devices after {} ms: {}", leases.size(), devices,
+						TimeUnit.NANOSECONDS.toMillis(waited), leases);
+				return Collections.unmodifiableList(leases);
+			}
+			if (System.nanoTime() > deadline) {
+				throw new CustomErrorException("[ Device Lease ] - Every device is leased by other JVMs after "
+						+ timeout + " seconds, see the lock files of: " + AppiumServerLock.FOLDER);
+			}
+			if (!waiting) {
+				LOGGER.info("[ Device Lease ] - Every device is leased by other JVMs, waiting up to {} seconds",
+						timeout);
+				waiting = true;
+			}
+			try {
+				Thread.sleep(POLLING);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new CustomErrorException("[ Device Lease ] - Interrupted waiting for a device", ex);
+			}
+		}
+	}
+
+	/**
+	 * Method to lock the file of a device, recording the JVM that leases it.
+	 *
+	 * @return the channel of the file locked, or null when the device is leased by
+	 *         another JVM or the file can not be written
+	 */
+	private static FileChannel tryLock(int slot, String udid) {
+		Path file = AppiumServerLock.FOLDER.resolve("device-" + fileName(slot, udid) + ".lock");
+		FileChannel channel = null;
+		try {
+			Files.createDirectories(AppiumServerLock.FOLDER);
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock lock = channel.tryLock();
+			if (lock == null) {
+				channel.close();
+				return null;
+			}
+			String holder = ManagementFactory.getRuntimeMXBean().getName() + " " + Instant.now() + "\n";
+			channel.truncate(0);
+			channel.write(ByteBuffer.wrap(holder.getBytes(StandardCharsets.UTF_8)), 0);
+			return channel;
+		} catch (IOException | OverlappingFileLockException ex) {
+			closeQuietly(channel);
+			LOGGER.debug("[ Device Lease ] - The lock file {} can not be used: {}", file, ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Method to release the device. The file is kept, so it is never removed while
+	 * another JVM is waiting to lock it.
+	 */
+	void release() {
+		if (channel != null) {
+			closeQuietly(channel);
+			LOGGER.info("[ Device Lease ] - Released the device: {}", this);
+		}
+	}
+
+	/**
+	 * Method to get the port of the server of a device.
+	 */
+	private static int portOf(int basePort, int slot) {
+		return basePort > 0 ? basePort + slot : 0;
+	}
+
+	/**
+	 * Method to get the name of the lock file of a device.
+	 */
+	private static String fileName(int slot, String udid) {
+		return udid == null ? "default-" + slot : udid.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	/**
+	 * Method to close a channel ignoring the errors.
+	 */
+	private static void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				// nothing to do, the lock is released anyway
+			}
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	GETTERS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * @return the position of the device on the list of devices
+	 */
+	int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @return the udid of the device, null to use the default one
+	 */
+	String getUdid() {
+		return udid;
+	}
+
+	/**
+	 * Method to get the port of the local Appium Server of the device, when it is
+	 * free.
+	 *
+	 * @return the port, or 0 to use any free port
+	 */
+	int getFreePort() {
+		if (port <= 0) {
+			return 0;
+		}
+		try (ServerSocket socket = new ServerSocket(port)) {
+			return socket.getLocalPort();
+		} catch (IOException ex) {
+			LOGGER.warn("[ Device Lease ] - The port {} of the device {} is busy, using any free port", port, this);
+			return 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return udid == null ? "default" : udid;
+	}
+}
@@ -0,0 +1,554 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.ConstantConfig;
+import org.estefafdez.appium.java.config.PropertiesManager;
+import org.openqa.selenium.json.Json;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * This class is an in-process Appium Server that speaks the W3C WebDriver and
+ * Appium endpoints used by the framework, answering from the {@link FakeDevice}
+ * of each session instead of a real device. Each command waits a configurable
+ * latency plus a random jitter, to see how the framework behaves with the delays
+ * of a device farm without any emulator.
+ * </p>
+ *
+ * <pre>
+ * config.appiumServer=fake
+ * config.fakeServerModel=fake/android
+ * config.fakeServerLatency=80,findElement=150,source=400,screenshot=300
+ * config.fakeServerJitter=40
+ * </pre>
+ * <p>
+ * The JDK server sends the headers and the body of each answer on two writes, so
+ * the body waits for the delayed ACK of the client, about 40 ms per command,
+ * unless the JVM starts with <b>-Dsun.net.httpserver.nodelay=true</b>. This class
+ * does not set it because it changes every HTTP server of the JVM: the FRAMEWORK
+ * profile and the benchmarks set it on their own JVMs.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class FakeAppiumServer {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(FakeAppiumServer.class);
+
+	/** Value of <b>config.appiumServer</b> to use this server. */
+	public static final String ADDRESS = "fake";
+
+	/** Base path of the endpoints, as the Appium 1 servers. */
+	private static final String BASE_PATH = "/wd/hub";
+
+	/** Key of the element references on the W3C protocol. */
+	private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+	/** Screenshot answered: a PNG of one pixel. */
+	private static final String SCREENSHOT = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+	/** Sequence to name the threads of the servers. */
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	/** Property of the JDK server to send the answers without waiting, see the class. */
+	public static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	/** JSON reader and writer. */
+	private final Json json = new Json();
+
+	/** Classpath folder of the screens, null to choose it by the platform of the session. */
+	private final String model;
+
+	/** Milliseconds to wait before answering a command without its own latency. */
+	private final long latency;
+
+	/** Milliseconds to wait before answering each command, for example: findElement=150. */
+	private final Map<String, Long> commandLatencies;
+
+	/** Maximum random milliseconds added to the latency. */
+	private final long jitter;
+
+	/** Devices of the open sessions. */
+	private final Map<String, FakeDevice> sessions = new ConcurrentHashMap<>();
+
+	/** HTTP server, null while stopped. */
+	private HttpServer server;
+
+	/** Threads answering the commands. */
+	private ExecutorService executor;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of a server not started yet.
+	 *
+	 * @param model classpath folder of the screens, null to choose it by the platform of the session
+	 * @param latency milliseconds to wait before answering a command
+	 * @param commandLatencies milliseconds to wait before answering each command
+	 * @param jitter maximum random milliseconds added to the latency
+	 */
+	public FakeAppiumServer(String model, long latency, Map<String, Long> commandLatencies, long jitter) {
+		this.model = model;
+		this.latency = latency;
+		this.commandLatencies = new HashMap<>(commandLatencies);
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Method to get a server with the model, latency and jitter of the configuration.
+	 *
+	 * @return the server not started yet
+	 */
+	public static FakeAppiumServer fromConfig() {
+		PropertiesManager handler = PropertiesManager.getInstance();
+		String model = handler.getConfig().valueOf(ConstantConfig.FAKE_SERVER_MODEL, null);
+		Map<String, Long> commandLatencies = new HashMap<>();
+		long latency = 0;
+		String latencies = handler.getConfig().valueOf(ConstantConfig.FAKE_SERVER_LATENCY, null);
+		if (latencies != null) {
+			for (String entry : latencies.split(",")) {
+				String[] parts = entry.split("=");
+				if (parts.length == 1) {
+					latency = parseMillis(parts[0]);
+				} else {
+					commandLatencies.put(parts[0].trim(), parseMillis(parts[1]));
+				}
+			}
+		}
+		String jitter = handler.getConfig().valueOf(ConstantConfig.FAKE_SERVER_JITTER, null);
+		return new FakeAppiumServer(model, latency, commandLatencies, jitter != null ? parseMillis(jitter) : 0);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO HANDLE THE SERVER
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to start the server on a free port of the loopback interface.
+	 *
+	 * @throws CustomErrorException when the port can not be opened
+	 */
+	public synchronized void start() throws CustomErrorException {
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+			executor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "fake-appium-server-" + THREADS.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			server.setExecutor(executor);
+			server.createContext("/", this::handle);
+			server.start();
+			LOGGER.info("[ Fake Appium Server ] - Server stablished on: {} with a latency of {} ms {} and a jitter of {} ms",
+					getUrl(), latency, commandLatencies, jitter);
+		} catch (IOException ex) {
+			throw new CustomErrorException("[ Fake Appium Server error ] - The server has problems to launch", ex);
+		}
+	}
+
+	/**
+	 * Method to stop the server, closing all its sessions.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+			sessions.clear();
+		}
+	}
+
+	/**
+	 * @return the URL of the server, null while it is stopped
+	 */
+	public synchronized String getUrl() {
+		return server == null ? null
+				: "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + BASE_PATH;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO ANSWER THE COMMANDS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to answer a request.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		Answer answer;
+		try {
+			String path = exchange.getRequestURI().getPath();
+			if (path.startsWith(BASE_PATH)) {
+				path = path.substring(BASE_PATH.length());
+			}
+			List<String> parts = new ArrayList<>();
+			for (String part : path.split("/")) {
+				if (!part.isEmpty()) {
+					parts.add(part);
+				}
+			}
+			answer = route(exchange.getRequestMethod(), parts, readBody(exchange));
+		} catch (IllegalArgumentException ex) {
+			answer = Answer.error("invalid", 400, "invalid argument", ex.getMessage());
+		} catch (IllegalStateException ex) {
+			answer = Answer.error("stale", 404, "stale element reference", ex.getMessage());
+		} catch (CustomErrorException | RuntimeException ex) {
+			LOGGER.error("[ Fake Appium Server ] - Unexpected error answering {}", exchange.getRequestURI(), ex);
+			answer = Answer.error("error", 500, "unknown error", String.valueOf(ex.getMessage()));
+		}
+		simulateLatency(answer.command);
+
+		byte[] body = json.toJson(Collections.singletonMap("value", answer.value)).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(answer.status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Method to route a command to its logic.
+	 */
+	private Answer route(String method, List<String> parts, Map<String, Object> body) throws CustomErrorException {
+		if (parts.size() == 1 && "status".equals(parts.get(0))) {
+			Map<String, Object> status = new HashMap<>();
+			status.put("ready", Boolean.TRUE);
+			status.put("message", "Fake Appium Server");
+			return Answer.ok("status", status);
+		}
+		if (parts.isEmpty() || !"session".equals(parts.get(0))) {
+			return Answer.error("unknown", 404, "unknown command", "Unknown command: " + method + " " + parts);
+		}
+		if (parts.size() == 1) {
+			return newSession(body);
+		}
+		String sessionId = parts.get(1);
+		FakeDevice device = sessions.get(sessionId);
+		if (device == null) {
+			return Answer.error("invalid", 404, "invalid session id", "The session does not exist: " + sessionId);
+		}
+		if (parts.size() == 2) {
+			sessions.remove(sessionId);
+			return Answer.ok("deleteSession", null);
+		}
+		String command = String.join("/", parts.subList(2, parts.size()));
+		if (parts.size() >= 4 && "element".equals(parts.get(2))) {
+			return elementCommand(device, parts.get(3), parts.subList(4, parts.size()), body);
+		}
+		switch (command) {
+		case "element":
+			return findElement(device, body, null);
+		case "elements":
+			return findElements(device, body, null);
+		case "source":
+			return Answer.ok("source", device.getPageSource());
+		case "screenshot":
+			return Answer.ok("screenshot", SCREENSHOT);
+		case "appium/app/reset":
+			device.reset();
+			return Answer.ok("resetApp", null);
+		case "appium/device/remove_app":
+			device.remove();
+			return Answer.ok("removeApp", Boolean.TRUE);
+		case "appium/device/terminate_app":
+			return Answer.ok("terminateApp", Boolean.TRUE);
+		case "appium/device/activate_app":
+			device.reset();
+			return Answer.ok("activateApp", null);
+		case "touch/perform":
+		case "actions":
+			return touch(device, body);
+		case "execute/sync":
+			if ("mobile: clearApp".equals(body.get("script"))) {
+				device.reset();
+			}
+			return Answer.ok("execute", null);
+		default:
+			return Answer.error("unknown", 404, "unknown command", "Unknown command: " + method + " " + parts);
+		}
+	}
+
+	/**
+	 * Method to create a new session with its own device.
+	 */
+	@SuppressWarnings("unchecked")
+	private Answer newSession(Map<String, Object> body) throws CustomErrorException {
+		Map<String, Object> capabilities = new HashMap<>();
+		Object desired = body.get("desiredCapabilities");
+		if (desired instanceof Map) {
+			capabilities.putAll((Map<String, Object>) desired);
+		}
+		Object w3c = body.get("capabilities");
+		if (w3c instanceof Map) {
+			Object alwaysMatch = ((Map<String, Object>) w3c).get("alwaysMatch");
+			if (alwaysMatch instanceof Map) {
+				capabilities.putAll((Map<String, Object>) alwaysMatch);
+			}
+			Object firstMatch = ((Map<String, Object>) w3c).get("firstMatch");
+			if (firstMatch instanceof List && !((List<Object>) firstMatch).isEmpty()) {
+				capabilities.putAll((Map<String, Object>) ((List<Object>) firstMatch).get(0));
+			}
+		}
+		Object platform = capabilities.get("platformName");
+		String platformName = platform == null ? "Android" : platform.toString();
+		capabilities.put("platformName", platformName);
+
+		String sessionId = UUID.randomUUID().toString();
+		sessions.put(sessionId, new FakeDevice(model != null ? model : "fake/" + platformName.toLowerCase()));
+
+		Map<String, Object> session = new HashMap<>();
+		session.put("sessionId", sessionId);
+		session.put("capabilities", capabilities);
+		return Answer.ok("newSession", session);
+	}
+
+	/**
+	 * Method to answer a command on an element.
+	 */
+	private Answer elementCommand(FakeDevice device, String reference, List<String> parts, Map<String, Object> body)
+			throws CustomErrorException {
+		String command = String.join("/", parts);
+		switch (command) {
+		case "element":
+			return findElement(device, body, reference);
+		case "elements":
+			return findElements(device, body, reference);
+		case "click":
+			device.click(reference);
+			return Answer.ok("click", null);
+		case "value":
+			device.sendKeys(reference, textOf(body));
+			return Answer.ok("sendKeys", null);
+		case "clear":
+			device.clear(reference);
+			return Answer.ok("clear", null);
+		case "displayed":
+			return Answer.ok("displayed", device.isDisplayed(reference));
+		case "enabled":
+			return Answer.ok("enabled", device.isEnabled(reference));
+		case "text":
+			return Answer.ok("text", device.getText(reference));
+		case "name":
+			return Answer.ok("name", device.getAttribute(reference, "class"));
+		default:
+			if (parts.size() == 2 && "attribute".equals(parts.get(0))) {
+				return Answer.ok("attribute", device.getAttribute(reference, parts.get(1)));
+			}
+			return Answer.error("unknown", 404, "unknown command", "Unknown element command: " + command);
+		}
+	}
+
+	/**
+	 * Method to find the first element of a locator.
+	 */
+	private Answer findElement(FakeDevice device, Map<String, Object> body, String parent) {
+		List<String> found = device.find(String.valueOf(body.get("using")), String.valueOf(body.get("value")), parent);
+		if (found.isEmpty()) {
+			return Answer.error("findElement", 404, "no such element",
+					"An element could not be located using " + body.get("using") + ": " + body.get("value"));
+		}
+		return Answer.ok("findElement", reference(found.get(0)));
+	}
+
+	/**
+	 * Method to find all the elements of a locator.
+	 */
+	private Answer findElements(FakeDevice device, Map<String, Object> body, String parent) {
+		List<Map<String, String>> references = new ArrayList<>();
+		for (String found : device.find(String.valueOf(body.get("using")), String.valueOf(body.get("value")), parent)) {
+			references.add(reference(found));
+		}
+		return Answer.ok("findElements", references);
+	}
+
+	/**
+	 * Method to run a touch action. A tap is a click, the rest of actions only
+	 * check the element.
+	 */
+	@SuppressWarnings("unchecked")
+	private Answer touch(FakeDevice device, Map<String, Object> body) throws CustomErrorException {
+		Object actions = body.get("actions");
+		if (actions instanceof List) {
+			for (Object action : (List<Object>) actions) {
+				if (!(action instanceof Map)) {
+					continue;
+				}
+				Map<String, Object> options = (Map<String, Object>) ((Map<String, Object>) action).get("options");
+				Object element = options == null ? null : options.get("element");
+				if (element != null) {
+					if ("tap".equals(((Map<String, Object>) action).get("action"))) {
+						device.click(element.toString());
+					} else {
+						device.isDisplayed(element.toString());
+					}
+				}
+			}
+		}
+		return Answer.ok("touch", null);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	UTILS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to wait the latency of a command plus the jitter.
+	 */
+	private void simulateLatency(String command) {
+		Long commandLatency = commandLatencies.get(command);
+		long millis = (commandLatency == null ? latency : commandLatency)
+				+ (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+		if (millis > 0) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(millis);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Method to read the JSON body of a request.
+	 */
+	private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (InputStream input = exchange.getRequestBody()) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				body.write(buffer, 0, read);
+			}
+		}
+		String text = new String(body.toByteArray(), StandardCharsets.UTF_8).trim();
+		if (text.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Object> map = json.toType(text, Json.MAP_TYPE);
+		return map == null ? Collections.<String, Object>emptyMap() : map;
+	}
+
+	/**
+	 * Method to get the text of a send keys command, of both protocols.
+	 */
+	@SuppressWarnings("unchecked")
+	private static String textOf(Map<String, Object> body) {
+		Object text = body.get("text");
+		if (text != null) {
+			return text.toString();
+		}
+		StringBuilder keys = new StringBuilder();
+		Object value = body.get("value");
+		if (value instanceof List) {
+			for (Object key : (List<Object>) value) {
+				keys.append(key);
+			}
+		}
+		return keys.toString();
+	}
+
+	/**
+	 * Method to build an element reference of both protocols.
+	 */
+	private static Map<String, String> reference(String id) {
+		Map<String, String> reference = new HashMap<>();
+		reference.put(ELEMENT_KEY, id);
+		reference.put("ELEMENT", id);
+		return reference;
+	}
+
+	/**
+	 * Method to parse milliseconds of the configuration.
+	 */
+	private static long parseMillis(String value) {
+		try {
+			return Math.max(0, Long.parseLong(value.trim()));
+		} catch (NumberFormatException ex) {
+			LOGGER.warn("[ Fake Appium Server ] - The milliseconds [{}] are not valid, using 0", value);
+			return 0;
+		}
+	}
+
+	/**
+	 * This class is the answer of a command: its HTTP status and its value.
+	 */
+	private static final class Answer {
+
+		/** Name of the command, used to choose its latency. */
+		private final String command;
+
+		/** HTTP status. */
+		private final int status;
+
+		/** Value of the answer. */
+		private final Object value;
+
+		private Answer(String command, int status, Object value) {
+			this.command = command;
+			this.status = status;
+			this.value = value;
+		}
+
+		private static Answer ok(String command, Object value) {
+			return new Answer(command, 200, value);
+		}
+
+		private static Answer error(String command, int status, String error, String message) {
+			Map<String, Object> value = new HashMap<>();
+			value.put("error", error);
+			value.put("message", message);
+			value.put("stacktrace", "");
+			return new Answer(command, status, value);
+		}
+	}
+}
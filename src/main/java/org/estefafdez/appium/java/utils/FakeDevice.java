@@ -0,0 +1,490 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * <p>
+ * This class is the device of a session of the {@link FakeAppiumServer}. The App
+ * is a set of screens, each one a page source stored on the classpath folder of
+ * the model, starting on <b>home.xml</b>. Some attributes of the elements script
+ * the App and are removed from the page source:
+ * </p>
+ *
+ * <pre>
+ * - fake-navigate="screen": a click opens the screen.xml of the model.
+ * - fake-toggle="value": a click switches the attribute between 1 and 0.
+ * - fake-on / fake-off="id@attribute=text": the attribute of the element id is
+ *   set to the text when the toggle is switched on / off.
+ * </pre>
+ * <p>
+ * The elements found are invalidated when the screen changes, so the old
+ * references are stale, as they are on a real device.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+final class FakeDevice {
+
+	/** First screen of the App. */
+	static final String HOME_SCREEN = "home";
+
+	/** Attribute with the screen opened by a click. */
+	private static final String NAVIGATE = "fake-navigate";
+
+	/** Attribute switched between 1 and 0 by a click. */
+	private static final String TOGGLE = "fake-toggle";
+
+	/** Change applied when the toggle is switched on. */
+	private static final String ON = "fake-on";
+
+	/** Change applied when the toggle is switched off. */
+	private static final String OFF = "fake-off";
+
+	/** Prefix of the Android resource-id before the short ID. */
+	private static final String ID_SEPARATOR = ":id/";
+
+	/** Classpath folder of the screens. */
+	private final String model;
+
+	/** Screen shown now. */
+	private Document screen;
+
+	/** Script of the elements of the screen shown now. */
+	private final Map<Element, Map<String, String>> scripts = new IdentityHashMap<>();
+
+	/** Elements found on the screen shown now, by their reference. */
+	private final Map<String, Element> elements = new HashMap<>();
+
+	/** References of the elements found on the screen shown now. */
+	private final Map<Element, String> references = new IdentityHashMap<>();
+
+	/** Sequence to create the references of the elements. */
+	private long nextReference;
+
+	/** True while the App is installed. */
+	private boolean installed = true;
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor of a device showing the home screen of the model.
+	 *
+	 * @param model classpath folder of the screens, for example: fake/android
+	 * @throws CustomErrorException when the home screen can not be read
+	 */
+	FakeDevice(String model) throws CustomErrorException {
+		this.model = model;
+		show(HOME_SCREEN);
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO FIND ELEMENTS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to find the elements of a locator.
+	 *
+	 * @param strategy the W3C or Appium strategy, for example: id
+	 * @param selector the selector
+	 * @param parent reference of the element to search in, null for the whole screen
+	 * @return the references of the elements found
+	 * @throws IllegalArgumentException when the strategy or the selector are not valid
+	 */
+	synchronized List<String> find(String strategy, String selector, String parent) {
+		Element root = parent == null ? screen.getDocumentElement() : getElement(parent);
+		List<String> found = new ArrayList<>();
+		if ("xpath".equals(strategy)) {
+			for (Element element : findByXpath(selector, root)) {
+				found.add(referenceOf(element));
+			}
+			return found;
+		}
+		NodeList nodes = root.getElementsByTagName("*");
+		for (int i = -1; i < nodes.getLength(); i++) {
+			Element element = i < 0 ? root : (Element) nodes.item(i);
+			if (matches(element, strategy, selector)) {
+				found.add(referenceOf(element));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Method to check if an element matches a locator.
+	 */
+	private static boolean matches(Element element, String strategy, String selector) {
+		switch (strategy) {
+		case "id":
+			String resourceId = element.getAttribute("resource-id");
+			return selector.equals(resourceId) || resourceId.endsWith(ID_SEPARATOR + selector)
+					|| selector.equals(element.getAttribute("name")) || selector.equals(element.getAttribute("id"));
+		case "accessibility id":
+			return selector.equals(element.getAttribute("content-desc")) || selector.equals(element.getAttribute("name"));
+		case "name":
+			return selector.equals(element.getAttribute("name")) || selector.equals(element.getAttribute("text"));
+		case "class name":
+			return selector.equals(element.getTagName()) || selector.equals(element.getAttribute("class"));
+		case "css selector":
+			return matches(element, "id", idOfCssSelector(selector));
+		default:
+			throw new IllegalArgumentException("The strategy is not supported: " + strategy);
+		}
+	}
+
+	/**
+	 * Method to get the ID of the css selectors written by the W3C clients for
+	 * {@code By.id}: <b>#id</b> and <b>*[id="id"]</b>.
+	 */
+	private static String idOfCssSelector(String selector) {
+		if (selector.startsWith("#")) {
+			return selector.substring(1).replace("\\", "");
+		}
+		if (selector.startsWith("*[id=\"") && selector.endsWith("\"]")) {
+			return selector.substring(6, selector.length() - 2);
+		}
+		throw new IllegalArgumentException("The css selector is not supported: " + selector);
+	}
+
+	/**
+	 * Method to find the elements of an Xpath.
+	 */
+	private static List<Element> findByXpath(String xpath, Element root) {
+		try {
+			NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath().evaluate(xpath, root, XPathConstants.NODESET);
+			List<Element> found = new ArrayList<>(nodes.getLength());
+			for (int i = 0; i < nodes.getLength(); i++) {
+				if (nodes.item(i) instanceof Element) {
+					found.add((Element) nodes.item(i));
+				}
+			}
+			return found;
+		} catch (XPathExpressionException ex) {
+			throw new IllegalArgumentException("The Xpath is not valid: " + xpath, ex);
+		}
+	}
+
+	/**
+	 * Method to get the reference of an element, creating it the first time.
+	 */
+	private String referenceOf(Element element) {
+		String reference = references.get(element);
+		if (reference == null) {
+			reference = String.valueOf(++nextReference);
+			references.put(element, reference);
+			elements.put(reference, element);
+		}
+		return reference;
+	}
+
+	/**
+	 * Method to get the element of a reference.
+	 *
+	 * @param reference the reference returned by a find
+	 * @return the element
+	 * @throws IllegalStateException when the element is not on the screen anymore
+	 */
+	private Element getElement(String reference) {
+		Element element = elements.get(reference);
+		if (element == null) {
+			throw new IllegalStateException("The element " + reference + " is not on the screen anymore");
+		}
+		return element;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO READ ELEMENTS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get an attribute of an element.
+	 *
+	 * @param reference the reference of the element
+	 * @param name the name of the attribute
+	 * @return the value or null when the element does not have it
+	 */
+	synchronized String getAttribute(String reference, String name) {
+		Element element = getElement(reference);
+		switch (name) {
+		case "resourceId":
+			name = "resource-id";
+			break;
+		case "contentDescription":
+			name = "content-desc";
+			break;
+		case "className":
+			name = "class";
+			break;
+		case "longClickable":
+			name = "long-clickable";
+			break;
+		default:
+			break;
+		}
+		if ("class".equals(name) && !element.hasAttribute(name)) {
+			return element.getTagName();
+		}
+		return element.hasAttribute(name) ? element.getAttribute(name) : null;
+	}
+
+	/**
+	 * Method to check if an element is visible, using the <b>displayed</b> attribute
+	 * on Android and <b>visible</b> on iOS. Elements without them are visible.
+	 *
+	 * @param reference the reference of the element
+	 * @return true|false if the element is visible
+	 */
+	synchronized boolean isDisplayed(String reference) {
+		Element element = getElement(reference);
+		String value = element.hasAttribute("displayed") ? element.getAttribute("displayed") : element.getAttribute("visible");
+		return value.isEmpty() || Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Method to check if an element is enabled. Elements without the attribute are
+	 * enabled.
+	 *
+	 * @param reference the reference of the element
+	 * @return true|false if the element is enabled
+	 */
+	synchronized boolean isEnabled(String reference) {
+		String value = getElement(reference).getAttribute("enabled");
+		return value.isEmpty() || Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Method to get the text of an element: <b>text</b> on Android and <b>value</b>
+	 * or <b>label</b> on iOS.
+	 *
+	 * @param reference the reference of the element
+	 * @return the text, empty when it does not have any
+	 */
+	synchronized String getText(String reference) {
+		Element element = getElement(reference);
+		for (String name : new String[] { "text", "value", "label" }) {
+			if (element.hasAttribute(name)) {
+				return element.getAttribute(name);
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * Method to get the page source of the screen shown now.
+	 *
+	 * @return the page source
+	 */
+	synchronized String getPageSource() {
+		try {
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			StringWriter writer = new StringWriter();
+			transformer.transform(new DOMSource(screen), new StreamResult(writer));
+			return writer.toString();
+		} catch (TransformerException ex) {
+			throw new IllegalStateException("The page source could not be written", ex);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO DO ACTIONS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to click on an element, running its script.
+	 *
+	 * @param reference the reference of the element
+	 * @throws CustomErrorException when the screen opened can not be read
+	 */
+	synchronized void click(String reference) throws CustomErrorException {
+		Element element = getElement(reference);
+		Map<String, String> script = scripts.get(element);
+		if (script == null) {
+			return;
+		}
+		String toggle = script.get(TOGGLE);
+		if (toggle != null) {
+			boolean on = !"1".equals(element.getAttribute(toggle));
+			element.setAttribute(toggle, on ? "1" : "0");
+			apply(script.get(on ? ON : OFF));
+		}
+		String navigate = script.get(NAVIGATE);
+		if (navigate != null) {
+			show(navigate);
+		}
+	}
+
+	/**
+	 * Method to apply a change of a script: <b>id@attribute=text</b>.
+	 */
+	private void apply(String change) {
+		if (change == null) {
+			return;
+		}
+		int at = change.indexOf('@');
+		int equals = change.indexOf('=', at);
+		if (at < 0 || equals < 0) {
+			throw new IllegalStateException("The change of the script is not valid: " + change);
+		}
+		String id = change.substring(0, at);
+		NodeList nodes = screen.getElementsByTagName("*");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element target = (Element) nodes.item(i);
+			if (matches(target, "id", id)) {
+				target.setAttribute(change.substring(at + 1, equals), change.substring(equals + 1));
+			}
+		}
+	}
+
+	/**
+	 * Method to type a text on an element: <b>text</b> on Android and <b>value</b>
+	 * on iOS.
+	 *
+	 * @param reference the reference of the element
+	 * @param text the text to type
+	 */
+	synchronized void sendKeys(String reference, String text) {
+		Element element = getElement(reference);
+		String name = element.hasAttribute("value") ? "value" : "text";
+		element.setAttribute(name, element.getAttribute(name) + text);
+	}
+
+	/**
+	 * Method to clear the text of an element.
+	 *
+	 * @param reference the reference of the element
+	 */
+	synchronized void clear(String reference) {
+		Element element = getElement(reference);
+		if (element.hasAttribute("text")) {
+			element.setAttribute("text", "");
+		}
+		if (element.hasAttribute("value")) {
+			element.setAttribute("value", "");
+		}
+	}
+
+	/**
+	 * Method to reset the App: it shows the home screen with all the data cleared.
+	 *
+	 * @throws CustomErrorException when the home screen can not be read
+	 */
+	synchronized void reset() throws CustomErrorException {
+		installed = true;
+		show(HOME_SCREEN);
+	}
+
+	/**
+	 * Method to remove the App from the device.
+	 */
+	synchronized void remove() {
+		installed = false;
+	}
+
+	/**
+	 * @return true while the App is installed
+	 */
+	synchronized boolean isInstalled() {
+		return installed;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO READ THE MODEL
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to show a screen of the model, invalidating the elements found.
+	 */
+	private void show(String name) throws CustomErrorException {
+		screen = readScreen(model + "/" + name + ".xml");
+		elements.clear();
+		references.clear();
+		scripts.clear();
+		NodeList nodes = screen.getElementsByTagName("*");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element element = (Element) nodes.item(i);
+			Map<String, String> script = null;
+			for (String attribute : new String[] { NAVIGATE, TOGGLE, ON, OFF }) {
+				if (element.hasAttribute(attribute)) {
+					if (script == null) {
+						script = new HashMap<>();
+					}
+					script.put(attribute, element.getAttribute(attribute));
+					element.removeAttribute(attribute);
+				}
+			}
+			if (script != null) {
+				scripts.put(element, script);
+			}
+		}
+	}
+
+	/**
+	 * Method to read a screen from the classpath.
+	 */
+	private static Document readScreen(String path) throws CustomErrorException {
+		try (InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+			if (input == null) {
+				throw new CustomErrorException("[ Fake Appium Server error ] - The screen does not exist: " + path);
+			}
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+			return factory.newDocumentBuilder().parse(input);
+		} catch (IOException | SAXException | ParserConfigurationException ex) {
+			throw new CustomErrorException("[ Fake Appium Server error ] - The screen could not be read: " + path, ex);
+		}
+	}
+}
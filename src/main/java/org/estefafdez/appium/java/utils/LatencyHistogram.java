@@ -0,0 +1,182 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * This class is a lock-free histogram of latencies, safe to be recorded from
+ * several threads at the same time without allocating anything. The latencies are
+ * stored in microseconds on log-linear buckets: each power of two is split in 8
+ * buckets, so the percentiles have an error lower than 12.5%.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class LatencyHistogram {
+
+	/** Bits of the value used to choose the bucket inside a power of two. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** Buckets inside each power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Buckets needed to store any positive long. */
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/** Latencies recorded on each bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/** Latencies recorded. */
+	private final LongAdder count = new LongAdder();
+
+	/** Sum of the latencies recorded, in microseconds. */
+	private final LongAdder total = new LongAdder();
+
+	/** Maximum latency recorded, in microseconds. */
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO RECORD
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to record a latency.
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		counts.incrementAndGet(bucketOf(micros));
+		count.increment();
+		total.add(micros);
+		max.accumulate(micros);
+	}
+
+	/**
+	 * Method to get the bucket of a value.
+	 *
+	 * @param value the value in microseconds
+	 * @return the index of the bucket
+	 */
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Method to get the highest value stored on a bucket.
+	 *
+	 * @param bucket the index of the bucket
+	 * @return the highest value in microseconds
+	 */
+	static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+		return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Method to add the latencies recorded on another histogram.
+	 *
+	 * @param other the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long recorded = other.counts.get(i);
+			if (recorded > 0) {
+				counts.addAndGet(i, recorded);
+			}
+		}
+		count.add(other.count.sum());
+		total.add(other.total.sum());
+		max.accumulate(other.getMax());
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO READ
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get a percentile with the nearest rank method. It is not an exact
+	 * photo while other threads are recording.
+	 *
+	 * @param percentile the percentile, for example: 99
+	 * @return the latency of the percentile in microseconds, 0 when it is empty
+	 */
+	public long getPercentile(double percentile) {
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			recorded += counts.get(i);
+		}
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueOf(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * @return the latencies recorded
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean latency in microseconds, 0 when it is empty
+	 */
+	public long getMean() {
+		long recorded = count.sum();
+		return recorded == 0 ? 0 : total.sum() / recorded;
+	}
+
+	/**
+	 * @return the maximum latency in microseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.estefafdez.appium.java.config.ConstantConfig;
+import org.estefafdez.appium.java.config.PropertiesManager;
+
+/**
+ * <p>
+ * This class keeps the screenshots of the tests by their content: each one is
+ * stored once with its SHA-256 as name, so the same screen captured by a lot of
+ * tests only takes the space of one file. An index relates each test, step and
+ * time to its screenshot.
+ * </p>
+ *
+ * <pre>
+ * screenshot/index.tsv
+ * screenshot/blobs/3f/3fa9...c1.png
+ * </pre>
+ * <p>
+ * The store is limited by size and by age: when it is bigger than the maximum, the
+ * screenshots used less recently are removed, and the ones not used during the
+ * maximum age are always removed. The lines of the index pointing to removed
+ * screenshots are cleaned when the store is opened again.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public final class ScreenshotStore {
+
+	/** Logger class initialization. */
+	private static final Logger LOGGER = LogManager.getLogger(ScreenshotStore.class);
+
+	/** Folder used when it is not configured. */
+	public static final String DEFAULT_FOLDER = "screenshot";
+
+	/** Megabytes used when the maximum size is not configured. */
+	public static final long DEFAULT_MAX_SIZE = 500;
+
+	/** Days used when the maximum age is not configured. */
+	public static final long DEFAULT_MAX_AGE = 14;
+
+	/** Name of the index file. */
+	private static final String INDEX = "index.tsv";
+
+	/** Name of the folder of the screenshots. */
+	private static final String BLOBS = "blobs";
+
+	/** Extension of the screenshots. */
+	private static final String EXTENSION = ".png";
+
+	/** Digits used to write the hashes. */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** Root folder of the store. */
+	private final Path root;
+
+	/** Maximum bytes of the screenshots. */
+	private final long maxBytes;
+
+	/** Maximum milliseconds a screenshot is kept since it was last used. */
+	private final long maxAge;
+
+	/** Size and last use of each screenshot by its hash, the less recently used first. */
+	private final LinkedHashMap<String, Blob> blobs = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** Bytes of all the screenshots. */
+	private long totalBytes;
+
+	/** True while an eviction is queued, to not queue another one. */
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	/*--------------------------------------------------------------------*
+	|	CONSTRUCTOR
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Constructor that opens the store, creating it if needed, removes the expired
+	 * screenshots and cleans the index.
+	 *
+	 * @param root root folder of the store
+	 * @param maxBytes maximum bytes of the screenshots
+	 * @param maxAge maximum milliseconds a screenshot is kept since it was last used
+	 * @throws CustomErrorException when the store can not be read
+	 */
+	public ScreenshotStore(Path root, long maxBytes, long maxAge) throws CustomErrorException {
+		this.root = root;
+		this.maxBytes = maxBytes;
+		this.maxAge = maxAge;
+		try {
+			load();
+		} catch (IOException ex) {
+			throw new CustomErrorException("[ Screenshot Store error ] - The store can not be read on: " + root, ex);
+		}
+		evict();
+		compactIndex();
+		LOGGER.info("[ Screenshot Store ] - Store opened on: {} with {} screenshots and {} KB",
+				root, blobs.size(), totalBytes / 1024);
+	}
+
+	/**
+	 * Method to open the store of the configuration.
+	 *
+	 * @return the store
+	 * @throws CustomErrorException when the store can not be read
+	 */
+	public static ScreenshotStore fromConfig() throws CustomErrorException {
+		PropertiesManager handler = PropertiesManager.getInstance();
+		String folder = handler.getConfig().valueOf(ConstantConfig.SCREENSHOT_FOLDER, DEFAULT_FOLDER);
+		long maxSize = parsePositive(handler.getConfig().valueOf(ConstantConfig.SCREENSHOT_MAX_SIZE, null), DEFAULT_MAX_SIZE);
+		long maxAge = parsePositive(handler.getConfig().valueOf(ConstantConfig.SCREENSHOT_MAX_AGE, null), DEFAULT_MAX_AGE);
+		return new ScreenshotStore(Paths.get(folder), maxSize * 1024 * 1024, TimeUnit.DAYS.toMillis(maxAge));
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO STORE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to store a screenshot. It is written in background only when the store
+	 * does not have it yet.
+	 *
+	 * @param test name of the test, for example: AndroidTest.testClickButton
+	 * @param step step of the test, for example: failure
+	 * @param png the screenshot, it must not be changed after
+	 * @return the file of the screenshot
+	 */
+	public Path store(String test, String step, byte[] png) {
+		String hash = hash(png);
+		Path blob = blobOf(hash);
+		long now = System.currentTimeMillis();
+		boolean stored;
+		boolean full;
+		synchronized (this) {
+			Blob existing = blobs.get(hash);
+			stored = existing != null;
+			if (stored) {
+				existing.lastUse = now;
+			} else {
+				blobs.put(hash, new Blob(png.length, now));
+				totalBytes += png.length;
+			}
+			full = totalBytes > maxBytes;
+		}
+
+		if (stored) {
+			ArtifactWriter.execute(() -> touch(blob, now));
+			LOGGER.debug("[ Screenshot Store ] - The screenshot of {} was already stored: {}", test, hash);
+		} else {
+			ArtifactWriter.write(blob, png);
+		}
+		String line = Instant.ofEpochMilli(now) + "\t" + clean(test) + "\t" + clean(step) + "\t" + hash + "\n";
+		ArtifactWriter.append(root.resolve(INDEX), line.getBytes(StandardCharsets.UTF_8));
+		if (full && evicting.compareAndSet(false, true)) {
+			ArtifactWriter.execute(this::evict);
+		}
+		return blob;
+	}
+
+	/**
+	 * Method to update the last use of a screenshot on the disk, so it is kept the
+	 * next time the store is opened.
+	 */
+	private static void touch(Path blob, long now) {
+		try {
+			Files.setLastModifiedTime(blob, FileTime.fromMillis(now));
+		} catch (IOException ex) {
+			LOGGER.debug("[ Screenshot Store ] - The screenshot could not be touched: {}", blob);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO REMOVE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to remove the screenshots expired and, while the store is too big, the
+	 * ones used less recently.
+	 */
+	private void evict() {
+		evicting.set(false);
+		long oldest = System.currentTimeMillis() - maxAge;
+		List<String> removed = new ArrayList<>();
+		synchronized (this) {
+			Iterator<Map.Entry<String, Blob>> iterator = blobs.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Blob> entry = iterator.next();
+				if (totalBytes <= maxBytes && entry.getValue().lastUse >= oldest) {
+					break;
+				}
+				totalBytes -= entry.getValue().size;
+				removed.add(entry.getKey());
+				iterator.remove();
+			}
+		}
+		for (String hash : removed) {
+			synchronized (this) {
+				/** A screenshot stored again after it was chosen is kept, its new write may be done already */
+				if (blobs.containsKey(hash)) {
+					continue;
+				}
+				try {
+					Files.deleteIfExists(blobOf(hash));
+				} catch (IOException ex) {
+					LOGGER.warn("[ Screenshot Store ] - The screenshot could not be removed: {}", hash, ex);
+				}
+			}
+		}
+		if (!removed.isEmpty()) {
+			LOGGER.info("[ Screenshot Store ] - Removed {} screenshots, the store has {} KB",
+					removed.size(), totalBytes / 1024);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	LOGIC TO OPEN THE STORE
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to read the screenshots of the store, the less recently used first.
+	 */
+	private void load() throws IOException {
+		Path folder = root.resolve(BLOBS);
+		Files.createDirectories(folder);
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(folder, 2)) {
+			files = stream.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).collect(Collectors.toList());
+		}
+		Map<String, Blob> found = new HashMap<>();
+		for (Path file : files) {
+			String name = file.getFileName().toString();
+			found.put(name.substring(0, name.length() - EXTENSION.length()),
+					new Blob(Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+		}
+		found.entrySet().stream().sorted(Comparator.comparingLong(entry -> entry.getValue().lastUse))
+				.forEach(entry -> blobs.put(entry.getKey(), entry.getValue()));
+		for (Blob blob : blobs.values()) {
+			totalBytes += blob.size;
+		}
+	}
+
+	/**
+	 * Method to remove from the index the lines of the screenshots removed.
+	 */
+	private void compactIndex() {
+		Path index = root.resolve(INDEX);
+		if (!Files.exists(index)) {
+			return;
+		}
+		try {
+			List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+			List<String> kept = new ArrayList<>();
+			for (String line : lines) {
+				int hashStart = line.lastIndexOf('\t') + 1;
+				if (hashStart > 0 && blobs.containsKey(line.substring(hashStart))) {
+					kept.add(line);
+				}
+			}
+			if (kept.size() < lines.size()) {
+				Path temporal = root.resolve(INDEX + ".tmp");
+				Files.write(temporal, kept, StandardCharsets.UTF_8);
+				Files.move(temporal, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		} catch (IOException ex) {
+			LOGGER.warn("[ Screenshot Store ] - The index could not be cleaned: {}", index, ex);
+		}
+	}
+
+	/*--------------------------------------------------------------------*
+	|	UTILS
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Method to get the file of a screenshot. They are split in folders by the first
+	 * two digits of the hash, to not have thousands of files in the same folder.
+	 */
+	private Path blobOf(String hash) {
+		return root.resolve(BLOBS).resolve(hash.substring(0, 2)).resolve(hash + EXTENSION);
+	}
+
+	/**
+	 * Method to get the SHA-256 of a content.
+	 */
+	private static String hash(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+				hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is always available on the JVM", ex);
+		}
+	}
+
+	/**
+	 * Method to remove the tabs and line breaks of a field of the index.
+	 */
+	private static String clean(String field) {
+		return field == null ? "" : field.replaceAll("[\\t\\r\\n]", " ");
+	}
+
+	/**
+	 * Method to parse a positive number of the configuration, null when it is not set.
+	 */
+	private static long parsePositive(String value, long defaultValue) {
+		if (value != null) {
+			try {
+				long number = Long.parseLong(value);
+				if (number > 0) {
+					return number;
+				}
+			} catch (NumberFormatException ex) {
+				// the warning below is enough
+			}
+			LOGGER.warn("[ Screenshot Store ] - The value [{}] is not valid, using {}", value, defaultValue);
+		}
+		return defaultValue;
+	}
+
+	/*--------------------------------------------------------------------*
+	|	BLOB
+	*---------------------------------------------------------------------*/
+
+	/**
+	 * Size and last use of a screenshot.
+	 */
+	private static final class Blob {
+
+		/** Bytes of the screenshot. */
+		private final long size;
+
+		/** Last time the screenshot was stored, in milliseconds. */
+		private long lastUse;
+
+		private Blob(long size, long lastUse) {
+			this.size = size;
+			this.lastUse = lastUse;
+		}
+	}
+}
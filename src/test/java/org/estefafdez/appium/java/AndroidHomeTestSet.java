@@ -14,7 +14,7 @@ public class AndroidHomeTestSet extends TestSetConfig {
 	public void testAndroidExample() {
 
 		/** Create a new instance of the AndroidHomePage */
-		AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+		AndroidHomePage androidHomePage = new AndroidHomePage(getDriver());
 
 		/** Wait until the Home Page is ready */
 		androidHomePage.waitForReadyPageByID();
@@ -1,8 +1,10 @@
 package org.estefafdez.appium.java;
 
-import static org.testng.Assert.assertFalse;
-import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.assertEquals;
 
+import java.util.Map;
+
+import org.estefafdez.appium.java.config.AttributeRead;
 import org.estefafdez.appium.java.config.TestSetConfig;
 import org.estefafdez.appium.java.pageobjects.IosHomePage;
 import org.testng.annotations.Test;
@@ -16,7 +18,7 @@ public class IosHomeTestSet extends TestSetConfig {
 	public void testIosExample() {
 
 			/** Create a new instance of the IosHomePage */
-			IosHomePage iosHomePage = new IosHomePage(driver);			
+			IosHomePage iosHomePage = new IosHomePage(getDriver());			
 			
 			/** Wait until the Home Page is ready */
 			iosHomePage.waitForReadyPageByID();
@@ -30,29 +32,26 @@ public class IosHomeTestSet extends TestSetConfig {
 			/** Click on the "Click!" button */
 			iosHomePage.clickOnButton();
 			
-			/** Check Switch button. By default is enable */
-			assertTrue(iosHomePage.checkSwitchButtonStatus(), "The Switch button is not enabled");
-				
-			/** Check if the Switch label is "Click on the switch button" */
-			assertTrue(iosHomePage.checkSwitchLabel("Click on the switch button:"), "The Label does not have the text: 'Click on the switch button'");
+			/** Check Switch button, by default is enable, and if the Switch label is "Click on the switch button" */
+			Map<AttributeRead, String> switchValues = iosHomePage.getSwitchValues();
+			assertEquals(switchValues.get(IosHomePage.SWITCH_VALUE), "1", "The Switch button is not enabled");
+			assertEquals(switchValues.get(IosHomePage.SWITCH_LABEL_VALUE), "Click on the switch button:", "The Label does not have the text: 'Click on the switch button'");
 				
 			/** Click on the Switch button */
 			iosHomePage.clickOnSwitchButton();
 			
-			/** Check Switch button. It should be disabled */
-			assertFalse(iosHomePage.checkSwitchButtonStatus(), "The Switch button is not disabled");
-				
-			/** Check if the Switch label is "OFF" */
-			assertTrue(iosHomePage.checkSwitchLabel("OFF"), "The Label does not have the text 'OFF'");
+			/** Check Switch button, it should be disabled, and if the Switch label is "OFF" */
+			switchValues = iosHomePage.getSwitchValues();
+			assertEquals(switchValues.get(IosHomePage.SWITCH_VALUE), "0", "The Switch button is not disabled");
+			assertEquals(switchValues.get(IosHomePage.SWITCH_LABEL_VALUE), "OFF", "The Label does not have the text 'OFF'");
 				
 			/** Click on the Switch button again */
 			iosHomePage.clickOnSwitchButton();
 			
-			/** Check Switch button, it should be enabled */
-			assertTrue(iosHomePage.checkSwitchButtonStatus(), "The Switch button is not enabled");
-				
-			/** Check if the Switch label is "ON" */
-			assertTrue(iosHomePage.checkSwitchLabel("ON"), "The Label does not have the text 'ON'");
+			/** Check Switch button, it should be enabled, and if the Switch label is "ON" */
+			switchValues = iosHomePage.getSwitchValues();
+			assertEquals(switchValues.get(IosHomePage.SWITCH_VALUE), "1", "The Switch button is not enabled");
+			assertEquals(switchValues.get(IosHomePage.SWITCH_LABEL_VALUE), "ON", "The Label does not have the text 'ON'");
 	}
 
 }
@@ -0,0 +1,144 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link BootstrapGraph}: the order of the phases and the cancel of
+ * the phases still running when one of them fails, also inside a nested graph.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class BootstrapGraphTestSet {
+
+	/** Milliseconds of a phase that must be cancelled before it ends. */
+	private static final long SLOW_PHASE = 60000;
+
+	/** Seconds to wait for a phase to be cancelled. */
+	private static final long CANCEL_TIMEOUT = 5;
+
+	/**
+	 * Test that a phase starts when its dependencies are finished.
+	 */
+	@Test(description = "testDependencies")
+	public void testDependencies() throws CustomErrorException {
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		try (BootstrapGraph graph = new BootstrapGraph("test-graph", 3)) {
+			CompletableFuture<Void> first = graph.add("first", () -> {
+				Thread.sleep(100);
+				order.add("first");
+			});
+			CompletableFuture<Void> second = graph.add("second", () -> order.add("second"));
+			graph.add("last", () -> order.add("last"), first, second);
+			graph.await();
+		}
+
+		assertEquals(order.size(), 3, "Every phase did not run: " + order);
+		assertEquals(order.get(2), "last", "The phase did not wait for its dependencies: " + order);
+	}
+
+	/**
+	 * Test that the phase that fails cancels a slow phase running at the same time,
+	 * and its error is thrown without waiting for it.
+	 */
+	@Test(description = "testFailureCancelsSlowPhase")
+	public void testFailureCancelsSlowPhase() throws InterruptedException {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		long start = System.nanoTime();
+
+		try (BootstrapGraph graph = new BootstrapGraph("test-graph", 2)) {
+			graph.add("slow", () -> sleepUntilInterrupted(interrupted));
+			graph.add("failing", () -> {
+				Thread.sleep(100);
+				throw new CustomErrorException("The phase failed");
+			});
+			graph.await();
+			fail("The failure of the phase is not thrown");
+		} catch (CustomErrorException ex) {
+			assertEquals(ex.getMessage(), "The phase failed");
+		}
+
+		assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < CANCEL_TIMEOUT,
+				"The failure waited for the slow phase");
+		assertTrue(interrupted.await(CANCEL_TIMEOUT, TimeUnit.SECONDS), "The slow phase was not interrupted");
+	}
+
+	/**
+	 * Test that the phase that fails cancels the slow phases of a graph that runs
+	 * inside other phase, like the start of the Appium Servers.
+	 */
+	@Test(description = "testFailureCancelsNestedGraph")
+	public void testFailureCancelsNestedGraph() throws InterruptedException {
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		try (BootstrapGraph graph = new BootstrapGraph("test-graph", 2)) {
+			graph.add("nested", () -> {
+				try (BootstrapGraph nested = new BootstrapGraph("test-nested-graph", 1)) {
+					nested.add("slow", () -> sleepUntilInterrupted(interrupted));
+					nested.await();
+				}
+			});
+			graph.add("failing", () -> {
+				Thread.sleep(100);
+				throw new CustomErrorException("The phase failed");
+			});
+			graph.await();
+			fail("The failure of the phase is not thrown");
+		} catch (CustomErrorException ex) {
+			assertEquals(ex.getMessage(), "The phase failed");
+		}
+
+		assertTrue(interrupted.await(CANCEL_TIMEOUT, TimeUnit.SECONDS), "The phase of the nested graph was not interrupted");
+	}
+
+	/**
+	 * Method of a slow phase that counts down the latch when it is interrupted.
+	 */
+	private static void sleepUntilInterrupted(CountDownLatch interrupted) throws InterruptedException {
+		try {
+			Thread.sleep(SLOW_PHASE);
+		} catch (InterruptedException ex) {
+			interrupted.countDown();
+			throw ex;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.estefafdez.appium.java.config.ConfigSnapshot.Platform;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link ConfigSnapshot} built from the properties of the file: the
+ * missing keys, the placeholders not replaced by Maven and the defaults of each
+ * value.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class ConfigSnapshotTestSet {
+
+	/**
+	 * Test that the keys that do not exist are null, and the empty values are kept as
+	 * they are on the file.
+	 */
+	@Test(description = "testGet")
+	public void testGet() {
+		ConfigSnapshot config = ConfigSnapshot.of(properties(ConstantConfig.APP, "", ConstantConfig.LOG_LEVEL, " INFO "));
+
+		assertNull(config.get(ConstantConfig.DEVICE_NAME), "The missing key has a value");
+		assertEquals(config.get(ConstantConfig.APP), "", "The empty value is not kept");
+		assertEquals(config.get(ConstantConfig.LOG_LEVEL), " INFO ", "The value is not as it is on the file");
+	}
+
+	/**
+	 * Test that the default value is used when the key is empty, does not exist or its
+	 * placeholder was not replaced.
+	 */
+	@Test(description = "testValueOf")
+	public void testValueOf() {
+		ConfigSnapshot config = ConfigSnapshot.of(properties(ConstantConfig.APP, " ",
+				ConstantConfig.DEVICE_NAME, "${deviceName}", ConstantConfig.LOG_LEVEL, " INFO "));
+
+		assertEquals(config.valueOf(ConstantConfig.APP, "default"), "default", "The empty value is used");
+		assertEquals(config.valueOf(ConstantConfig.DEVICE_NAME, "default"), "default", "The placeholder is used");
+		assertEquals(config.valueOf(ConstantConfig.PLATFORM_VERSION, "default"), "default", "The missing key is used");
+		assertEquals(config.valueOf(ConstantConfig.LOG_LEVEL, "default"), "INFO", "The value is not trimmed");
+		assertEquals(config.getLogLevel(), "INFO");
+	}
+
+	/**
+	 * Test the platforms, their name and their capability profile by default.
+	 */
+	@Test(description = "testPlatform")
+	public void testPlatform() {
+		ConfigSnapshot android = ConfigSnapshot.of(properties(ConstantConfig.PLATFORM_NAME, " android "));
+		ConfigSnapshot ios = ConfigSnapshot.of(properties(ConstantConfig.PLATFORM_NAME, "iOS",
+				ConstantConfig.CAPABILITY_PROFILE, "ios-tablet"));
+
+		assertEquals(android.getPlatform(), Platform.ANDROID, "The platform is not case insensitive");
+		assertEquals(android.getPlatformName(), "Android", "The platform name is not the capability");
+		assertEquals(android.getCapabilityProfile(), "android", "The profile is not the one of the platform");
+		assertEquals(ios.getPlatform(), Platform.IOS);
+		assertEquals(ios.getCapabilityProfile(), "ios-tablet", "The profile of the file is not used");
+	}
+
+	/**
+	 * Test that the platform not valid keeps its name, and that a missing platform
+	 * has an empty name instead of null.
+	 */
+	@Test(description = "testInvalidPlatform")
+	public void testInvalidPlatform() {
+		ConfigSnapshot windows = ConfigSnapshot.of(properties(ConstantConfig.PLATFORM_NAME, "Windows"));
+		ConfigSnapshot missing = ConfigSnapshot.of(new Properties());
+
+		assertNull(windows.getPlatform(), "The platform not valid is parsed");
+		assertEquals(windows.getPlatformName(), "Windows", "The name of the file is not kept");
+		assertEquals(windows.getCapabilityProfile(), StringUtils.EMPTY);
+		assertEquals(missing.getPlatformName(), StringUtils.EMPTY, "The missing platform name is not empty");
+		assertEquals(missing.getAppPath(), StringUtils.EMPTY, "The missing App path is not empty");
+	}
+
+	/**
+	 * Test the defaults of the values used on each test.
+	 */
+	@Test(description = "testDefaults")
+	public void testDefaults() {
+		ConfigSnapshot config = ConfigSnapshot.of(properties(ConstantConfig.WAIT_ELEMENT_TIMEOUT, "0",
+				ConstantConfig.RESET_POLICY, "${resetPolicy}", ConstantConfig.ELEMENT_CACHE, "sometimes"));
+
+		assertEquals(config.getWaitElementTimeout(), WaitEngine.DEFAULT_TIMEOUT, "The timeout not valid is used");
+		assertEquals(config.getResetPolicy(), ResetPolicy.RESET_APP, "The placeholder is not the default policy");
+		assertEquals(config.getElementCache(), SessionCache.Invalidation.ON_CLICK, "The cache not valid is used");
+		assertEquals(config.getCommandMetricsFile(), CommandMetrics.DEFAULT_FILE);
+		assertEquals(config.getStartupTraceFile(), StartupProfiler.DEFAULT_FILE);
+		assertFalse(config.isSnapshotMode());
+		assertFalse(config.isWatchConfig());
+	}
+
+	/**
+	 * Test the values parsed from the file.
+	 */
+	@Test(description = "testValues")
+	public void testValues() {
+		ConfigSnapshot config = ConfigSnapshot.of(properties(ConstantConfig.WAIT_ELEMENT_TIMEOUT, "25",
+				ConstantConfig.RESET_POLICY, "clear_app_data", ConstantConfig.ELEMENT_CACHE, "NEVER",
+				ConstantConfig.SNAPSHOT_MODE, "true", ConstantConfig.WATCH_CONFIG, "TRUE",
+				ConstantConfig.APP, "apps/TestApp.apk"));
+
+		assertEquals(config.getWaitElementTimeout(), 25);
+		assertEquals(config.getResetPolicy(), ResetPolicy.CLEAR_APP_DATA, "The policy is not case insensitive");
+		assertEquals(config.getElementCache(), SessionCache.Invalidation.NEVER);
+		assertTrue(config.isSnapshotMode());
+		assertTrue(config.isWatchConfig());
+		assertEquals(config.getAppPath(), "apps/TestApp.apk");
+	}
+
+	/**
+	 * Test the keys added, removed or changed between two configurations.
+	 */
+	@Test(description = "testChangedKeys")
+	public void testChangedKeys() {
+		ConfigSnapshot before = ConfigSnapshot.of(properties(ConstantConfig.LOG_LEVEL, "INFO",
+				ConstantConfig.WAIT_ELEMENT_TIMEOUT, "10", ConstantConfig.APP, "apps/TestApp.apk"));
+		ConfigSnapshot after = ConfigSnapshot.of(properties(ConstantConfig.LOG_LEVEL, "DEBUG",
+				ConstantConfig.APP, "apps/TestApp.apk", ConstantConfig.SNAPSHOT_MODE, "true"));
+
+		assertEquals(before.changedKeys(after), new TreeSet<>(Arrays.asList(ConstantConfig.LOG_LEVEL,
+				ConstantConfig.SNAPSHOT_MODE, ConstantConfig.WAIT_ELEMENT_TIMEOUT)));
+		assertEquals(after.changedKeys(after), Collections.emptySet(), "The same configuration has changes");
+	}
+
+	/**
+	 * Test that the values of the file read by their key are the ones of the
+	 * configuration, and empty when the key does not exist.
+	 */
+	@Test(description = "testConfigValueFromMatrix")
+	public void testConfigValueFromMatrix() throws CustomErrorException {
+		PropertiesManager handler = PropertiesManager.getInstance();
+		handler.loadPropertiesMatrix(ConstantConfig.CONFIG_FILE_PROP);
+
+		assertEquals(handler.getConfigValueFromMatrix(ConstantConfig.APP), handler.getConfig().get(ConstantConfig.APP));
+		assertEquals(handler.getConfigValueFromMatrix("config.missingKey"), StringUtils.EMPTY,
+				"The key that does not exist is not empty");
+	}
+
+	/**
+	 * Method to build the properties from pairs of key and value.
+	 */
+	private static Properties properties(String... keyValues) {
+		Properties properties = new Properties();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			properties.setProperty(keyValues[i], keyValues[i + 1]);
+		}
+		return properties;
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the reload of the configuration file: the configuration published
+ * again and the keys changed sent to the listeners. The file watched is a copy of
+ * <b>test.properties</b>, restored before the watcher is stopped so the next tests
+ * read the configuration of the suite.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class ConfigWatcherTestSet {
+
+	/** Seconds to wait for the watcher to notice a change of the file. */
+	private static final long WATCH_TIMEOUT = 10;
+
+	/** Manager of the configuration. */
+	private final PropertiesManager handler = PropertiesManager.getInstance();
+
+	/** Keys changed sent to the listener, one set per change. */
+	private final BlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+
+	/** Configurations sent to the listener, one per change. */
+	private final BlockingQueue<ConfigSnapshot> configs = new LinkedBlockingQueue<>();
+
+	/** Listener of the test. */
+	private final ConfigListener listener = (config, changedKeys) -> {
+		configs.add(config);
+		changes.add(changedKeys);
+	};
+
+	/** Copy of the configuration file. */
+	private Path file;
+
+	/** Original content of the configuration file. */
+	private Path original;
+
+	@BeforeMethod
+	public void startWatching() throws CustomErrorException, IOException {
+		handler.loadPropertiesMatrix(ConstantConfig.CONFIG_FILE_PROP);
+		original = Files.createTempFile("config-watcher", ".properties");
+		try (InputStream input = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream(ConstantConfig.CONFIG_FILE_PROP + ".properties")) {
+			Files.copy(input, original, StandardCopyOption.REPLACE_EXISTING);
+		}
+		file = Files.createTempFile("config-watcher", ".properties");
+		Files.copy(original, file, StandardCopyOption.REPLACE_EXISTING);
+		handler.addConfigListener(listener);
+		handler.startWatching(file);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void stopWatching() throws IOException {
+		handler.removeConfigListener(listener);
+		Files.copy(original, file, StandardCopyOption.REPLACE_EXISTING);
+		handler.reloadConfig();
+		handler.stopWatching();
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(original);
+	}
+
+	/**
+	 * Test that a value changed on the file publishes a new configuration, and the
+	 * listener gets it once with the key changed, even if it was added twice. The
+	 * configuration read before keeps its values.
+	 */
+	@Test(description = "testReloadConfig")
+	public void testReloadConfig() throws IOException {
+		ConfigSnapshot before = handler.getConfig();
+		int timeout = before.getWaitElementTimeout() + 5;
+
+		append(ConstantConfig.WAIT_ELEMENT_TIMEOUT + "=" + timeout);
+		handler.addConfigListener(listener);
+		handler.reloadConfig();
+
+		ConfigSnapshot after = handler.getConfig();
+		assertEquals(after.getWaitElementTimeout(), timeout, "The new configuration is not published");
+		assertEquals(before.getWaitElementTimeout(), timeout - 5, "The configuration read before has changed");
+		assertEquals(changes.poll(), Collections.singleton(ConstantConfig.WAIT_ELEMENT_TIMEOUT));
+		assertSame(configs.poll(), after, "The listener does not get the configuration published");
+		assertNull(changes.poll(), "The listener added twice is notified twice");
+	}
+
+	/**
+	 * Test that the file read again without changes does not publish anything.
+	 */
+	@Test(description = "testReloadWithoutChanges")
+	public void testReloadWithoutChanges() {
+		ConfigSnapshot before = handler.getConfig();
+
+		handler.reloadConfig();
+
+		assertSame(handler.getConfig(), before, "The same configuration is published again");
+		assertNull(changes.poll(), "The listener is notified without changes");
+	}
+
+	/**
+	 * Test that the file saved is read again by the watcher, with the listener
+	 * notified from its thread.
+	 */
+	@Test(description = "testWatcher")
+	public void testWatcher() throws IOException, InterruptedException {
+		append(ConstantConfig.SNAPSHOT_MODE + "=" + !handler.getConfig().isSnapshotMode());
+
+		Set<String> changedKeys = changes.poll(WATCH_TIMEOUT, TimeUnit.SECONDS);
+		assertNotNull(changedKeys, "The change of the file is not noticed");
+		assertEquals(changedKeys, Collections.singleton(ConstantConfig.SNAPSHOT_MODE));
+	}
+
+	/**
+	 * Method to add a line to the copy of the configuration file. The last value of
+	 * a key is the one read.
+	 */
+	private void append(String line) throws IOException {
+		Files.write(file, ("\n" + line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
+}
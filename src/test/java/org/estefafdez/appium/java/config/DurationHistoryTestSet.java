@@ -0,0 +1,166 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.estefafdez.appium.java.utils.ArtifactWriter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link DurationHistory}: the estimate of each test, the lines read
+ * from the file and its compaction.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class DurationHistoryTestSet {
+
+	/** Test used on the history. */
+	private static final String TEST = "org.estefafdez.appium.java.AndroidHomeTestSet#testAndroidExample";
+
+	/** Folder of the history files of each test. */
+	private Path folder;
+
+	@BeforeMethod
+	public void createFolder() throws IOException {
+		folder = Files.createTempDirectory("duration-history");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteFolder() throws IOException {
+		ArtifactWriter.flush();
+		try (Stream<Path> files = Files.list(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+		Files.deleteIfExists(folder);
+	}
+
+	/**
+	 * Test that a test never executed has not any estimate.
+	 */
+	@Test(description = "testUnknownTest")
+	public void testUnknownTest() {
+		DurationHistory history = new DurationHistory(folder.resolve("missing.tsv"));
+
+		assertEquals(history.getEstimate(TEST), -1, "The test without history has an estimate");
+	}
+
+	/**
+	 * Test that the estimate gives more weight to the previous executions than to the
+	 * last one, and that each execution is appended to the file.
+	 */
+	@Test(description = "testRecord")
+	public void testRecord() throws IOException {
+		Path file = folder.resolve("record.tsv");
+		DurationHistory history = new DurationHistory(file);
+
+		history.record(TEST, 1000);
+		assertEquals(history.getEstimate(TEST), 1000, "The first execution is not the estimate");
+
+		history.record(TEST, 2000);
+		assertEquals(history.getEstimate(TEST), 1300, "The last execution does not weight 30%");
+
+		ArtifactWriter.flush();
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		assertEquals(lines.size(), 2, "Each execution is not appended to the file");
+		assertTrue(lines.get(1).endsWith("\t" + profile() + "\t" + TEST + "\t2000"), "The line is not valid: " + lines.get(1));
+	}
+
+	/**
+	 * Test that the file is read in order, skipping the lines of other profiles and
+	 * the lines cut by a crashed run.
+	 */
+	@Test(description = "testLoad")
+	public void testLoad() throws IOException {
+		Path file = folder.resolve("load.tsv");
+		Files.write(file, Arrays.asList(
+				line(profile(), TEST, "1000"),
+				line("other-profile", TEST, "9000"),
+				line(profile(), TEST, "2000"),
+				line(profile(), TEST, "20"),
+				line(profile(), TEST, "3x"),
+				"2018-05-02T10:15:30Z\t" + profile()), StandardCharsets.UTF_8);
+
+		DurationHistory history = new DurationHistory(file);
+
+		/** 1000 -> 1300 -> 916 */
+		assertEquals(history.getEstimate(TEST), 916, "The lines of the file are not joined in order");
+	}
+
+	/**
+	 * Test that a file with many old lines is not rewritten when it is read, only
+	 * when it is compacted, with one line per test and keeping the estimates.
+	 */
+	@Test(description = "testCompact")
+	public void testCompact() throws IOException {
+		Path file = folder.resolve("compact.tsv");
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			lines.add(line(profile(), TEST, "1000"));
+			lines.add(line(profile(), TEST + "2", "500"));
+		}
+		Files.write(file, lines, StandardCharsets.UTF_8);
+
+		DurationHistory history = new DurationHistory(file);
+		assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8).size(), 20, "The file is compacted when it is read");
+
+		history.compact();
+		assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8).size(), 2, "The file is not compacted");
+		assertEquals(history.getEstimate(TEST), 1000);
+		assertEquals(new DurationHistory(file).getEstimate(TEST + "2"), 500, "The compacted file lost the estimates");
+	}
+
+	/**
+	 * Method to get the capability profile of the configuration loaded.
+	 */
+	private static String profile() {
+		return PropertiesManager.getInstance().getConfig().getCapabilityProfile();
+	}
+
+	/**
+	 * Method to build a line of the file.
+	 */
+	private static String line(String profile, String test, String millis) {
+		return "2018-05-02T10:15:30Z\t" + profile + "\t" + test + "\t" + millis;
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link PageSourceSnapshot} built from the page sources of Android
+ * and iOS: the IDs matched by {@code By.id}, the accessibility IDs, the
+ * visibility and the Xpath queries.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class PageSourceSnapshotTestSet {
+
+	/** Page source of an Android screen. */
+	private static final String ANDROID_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<hierarchy rotation=\"0\">"
+			+ "<android.widget.FrameLayout class=\"android.widget.FrameLayout\" displayed=\"true\">"
+			+ "<android.widget.Button class=\"android.widget.Button\" text=\"BUTTON 1\" resource-id=\"com.example:id/button1\""
+			+ " content-desc=\"first\" displayed=\"true\" enabled=\"true\" long-clickable=\"false\"/>"
+			+ "<android.widget.Button class=\"android.widget.Button\" text=\"BUTTON 2\" resource-id=\"com.example:id/button2\""
+			+ " content-desc=\"button1\" displayed=\"false\" enabled=\"false\"/>"
+			+ "<android.widget.Button class=\"android.widget.Button\" text=\"DUPLICATED\" resource-id=\"com.example:id/button1\""
+			+ " displayed=\"true\"/>"
+			+ "<android.widget.TextView class=\"android.widget.TextView\" text=\"No ID\" displayed=\"true\"/>"
+			+ "</android.widget.FrameLayout></hierarchy>";
+
+	/** Page source of an iOS screen. */
+	private static final String IOS_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<AppiumAUT><XCUIElementTypeApplication type=\"XCUIElementTypeApplication\" name=\"TestApp\" visible=\"true\">"
+			+ "<XCUIElementTypeSwitch type=\"XCUIElementTypeSwitch\" name=\"switch_button\" value=\"1\" visible=\"false\"/>"
+			+ "<XCUIElementTypeStaticText type=\"XCUIElementTypeStaticText\" name=\"label\" value=\"ON\" visible=\"true\"/>"
+			+ "</XCUIElementTypeApplication></AppiumAUT>";
+
+	/**
+	 * Test that the Android elements are found by their resource-id, with and
+	 * without the package, and not by their content-desc.
+	 */
+	@Test(description = "testAndroidIds")
+	public void testAndroidIds() throws CustomErrorException {
+		PageSourceSnapshot snapshot = PageSourceSnapshot.parse(ANDROID_SOURCE);
+
+		assertTrue(snapshot.contains("button1"), "The short ID is not indexed");
+		assertTrue(snapshot.contains("com.example:id/button1"), "The resource-id is not indexed");
+		assertFalse(snapshot.contains("first"), "The content-desc is indexed as an ID");
+		assertFalse(snapshot.contains("No ID"), "The text is indexed as an ID");
+
+		/** The content-desc of the button 2 is button1, By.id must answer the button 1 */
+		assertEquals(snapshot.getAttribute("button1", "text"), "BUTTON 1", "The ID answers other element");
+		assertTrue(snapshot.isVisible("button1"), "The first element with the ID is not the one answered");
+	}
+
+	/**
+	 * Test that the content-desc has its own index of accessibility IDs.
+	 */
+	@Test(description = "testAndroidAccessibilityIds")
+	public void testAndroidAccessibilityIds() throws CustomErrorException {
+		PageSourceSnapshot snapshot = PageSourceSnapshot.parse(ANDROID_SOURCE);
+
+		assertTrue(snapshot.containsByAccessibilityId("first"), "The content-desc is not indexed");
+		assertEquals(snapshot.getAttributeByAccessibilityId("button1", "text"), "BUTTON 2",
+				"The accessibility ID answers the element with the same resource-id");
+		assertFalse(snapshot.isVisibleByAccessibilityId("button1"));
+		assertFalse(snapshot.containsByAccessibilityId("com.example:id/button1"), "The resource-id is an accessibility ID");
+	}
+
+	/**
+	 * Test the attributes and the visibility of the Android elements.
+	 */
+	@Test(description = "testAndroidAttributes")
+	public void testAndroidAttributes() throws CustomErrorException {
+		PageSourceSnapshot snapshot = PageSourceSnapshot.parse(ANDROID_SOURCE);
+
+		assertEquals(snapshot.getAttribute("button1", "contentDescription"), "first", "The driver name is not translated");
+		assertEquals(snapshot.getAttribute("button1", "longClickable"), "false", "The driver name is not translated");
+		assertEquals(snapshot.getAttribute("button1", "className"), "android.widget.Button");
+		assertNull(snapshot.getAttribute("button1", "checked"), "The missing attribute has a value");
+		assertNull(snapshot.getAttribute("missing", "text"), "The missing element has a value");
+		assertFalse(snapshot.isVisible("button2"), "The element not displayed is visible");
+		assertFalse(snapshot.isVisible("missing"), "The missing element is visible");
+		assertEquals(snapshot.getNotVisible(Arrays.asList("button1", "button2", "missing")),
+				Arrays.asList("button2", "missing"));
+		assertEquals(snapshot.getNotVisible(Collections.singletonList("button1")), Collections.emptyList());
+	}
+
+	/**
+	 * Test that the iOS elements are found by their name, as ID and as accessibility
+	 * ID.
+	 */
+	@Test(description = "testIosNames")
+	public void testIosNames() throws CustomErrorException {
+		PageSourceSnapshot snapshot = PageSourceSnapshot.parse(IOS_SOURCE);
+
+		assertTrue(snapshot.contains("switch_button"), "The name is not indexed as ID");
+		assertTrue(snapshot.containsByAccessibilityId("switch_button"), "The name is not indexed as accessibility ID");
+		assertFalse(snapshot.isVisible("switch_button"), "The element not visible is visible");
+		assertTrue(snapshot.isVisible("label"));
+		assertEquals(snapshot.getAttribute("switch_button", "value"), "1");
+		assertEquals(snapshot.getAttributeByAccessibilityId("label", "value"), "ON");
+	}
+
+	/**
+	 * Test the queries by Xpath.
+	 */
+	@Test(description = "testXpath")
+	public void testXpath() throws CustomErrorException {
+		PageSourceSnapshot snapshot = PageSourceSnapshot.parse(ANDROID_SOURCE);
+
+		assertTrue(snapshot.containsByXpath("//android.widget.TextView[@text='No ID']"));
+		assertTrue(snapshot.isVisibleByXpath("//android.widget.TextView[@text='No ID']"));
+		assertFalse(snapshot.isVisibleByXpath("//*[@text='BUTTON 2']"));
+		assertFalse(snapshot.containsByXpath("//android.widget.ImageView"));
+		assertEquals(snapshot.getAttributeByXpath("//*[@text='BUTTON 2']", "enabled"), "false");
+		assertNull(snapshot.getAttributeByXpath("//*[@text='BUTTON 2']", "checked"));
+	}
+
+	/**
+	 * Test that an invalid Xpath is reported.
+	 */
+	@Test(description = "testInvalidXpath", expectedExceptions = CustomErrorException.class)
+	public void testInvalidXpath() throws CustomErrorException {
+		PageSourceSnapshot.parse(ANDROID_SOURCE).containsByXpath("//*[");
+	}
+
+	/**
+	 * Test that a page source that is not a valid XML is reported.
+	 */
+	@Test(description = "testInvalidPageSource", expectedExceptions = CustomErrorException.class)
+	public void testInvalidPageSource() throws CustomErrorException {
+		PageSourceSnapshot.parse("<hierarchy><android.widget.Button");
+	}
+
+	/**
+	 * Test that the page sources with a DOCTYPE are rejected, to avoid the external
+	 * entities.
+	 */
+	@Test(description = "testDoctypeRejected", expectedExceptions = CustomErrorException.class)
+	public void testDoctypeRejected() throws CustomErrorException {
+		PageSourceSnapshot.parse("<?xml version=\"1.0\"?><!DOCTYPE hierarchy [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+				+ "<hierarchy><node resource-id=\"a\" text=\"&secret;\"/></hierarchy>");
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.estefafdez.appium.java.constant.AndroidHomeConst;
+import org.estefafdez.appium.java.pageobjects.AndroidHomePage;
+import org.estefafdez.appium.java.utils.AppiumServerHandler;
+import org.estefafdez.appium.java.utils.CustomErrorException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileElement;
+
+/**
+ * <p>
+ * Tests of the sessions shared by the tests running in parallel and of the Page
+ * Objects, against the Fake Appium Server. Each test must have its own session
+ * while it runs, and the sessions must be reused by the next tests.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+@StartState(AppState.RELAUNCHED)
+public class ParallelSessionTestSet extends TestSetConfig {
+
+	/** Sessions used by a test right now. */
+	private static final Set<AppiumDriver<MobileElement>> IN_USE = Collections
+			.newSetFromMap(new ConcurrentHashMap<AppiumDriver<MobileElement>, Boolean>());
+
+	/** Every session used by the tests. */
+	private static final Set<AppiumDriver<MobileElement>> USED = Collections
+			.newSetFromMap(new ConcurrentHashMap<AppiumDriver<MobileElement>, Boolean>());
+
+	/**
+	 * Test the actions of the Home Page, keeping the text sent to the input.
+	 */
+	@Test(description = "testHomePage", invocationCount = 2)
+	public void testHomePage() {
+		AppiumDriver<MobileElement> driver = useDriver();
+		try {
+			AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+
+			assertTrue(androidHomePage.waitForReadyPageByID(), "The Home Page is not ready");
+			androidHomePage.performLongClickOnInput();
+			androidHomePage.sendKeyToInput("QA");
+			assertEquals(androidHomePage.getValueOfElementAttributeByID(AndroidHomeConst.BODY_INPUT_TEXTBOX, "text"), "QA",
+					"The text is not sent to the input");
+			assertTrue(androidHomePage.checkButton1IsVisible(), "The button 1 is not visible");
+			androidHomePage.clickOnButton1();
+			assertTrue(androidHomePage.waitForButton2IsEnableAndClickable(), "The button 2 is not enable and clickable");
+		} finally {
+			IN_USE.remove(driver);
+		}
+	}
+
+	/**
+	 * Test that the click on a button navigates to the next screen of the fake App.
+	 */
+	@Test(description = "testNavigation", invocationCount = 2)
+	public void testNavigation() throws CustomErrorException {
+		AppiumDriver<MobileElement> driver = useDriver();
+		try {
+			AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+
+			assertTrue(androidHomePage.waitForReadyPageByID(), "The Home Page is not ready");
+			androidHomePage.clickOnButton4();
+
+			PageSourceSnapshot snapshot = PageSourceSnapshot.parse(driver.getPageSource());
+			assertTrue(snapshot.contains("textView"), "The second screen is not shown");
+			assertFalse(snapshot.contains(AndroidHomeConst.BODY_BUTTON_BUTTON1), "The Home Page is still shown");
+		} finally {
+			IN_USE.remove(driver);
+		}
+	}
+
+	/**
+	 * Test that several attributes are read at once from the page source of the
+	 * session.
+	 */
+	@Test(description = "testGetAttributes")
+	public void testGetAttributes() {
+		AppiumDriver<MobileElement> driver = useDriver();
+		try {
+			AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+			AttributeRead button1 = AttributeRead.byId(AndroidHomeConst.BODY_BUTTON_BUTTON1, "text");
+			AttributeRead subtitle = AttributeRead.byId(AndroidHomeConst.BODY_LABEL_SUBTITLE, "text");
+			AttributeRead input = AttributeRead.byXpath("//android.widget.EditText", "className");
+
+			assertTrue(androidHomePage.waitForReadyPageByID(), "The Home Page is not ready");
+			Map<AttributeRead, String> values = androidHomePage.getAttributes(Arrays.asList(button1, subtitle, input));
+
+			assertEquals(values.get(button1), "BUTTON 1");
+			assertEquals(values.get(subtitle), "Hello World!");
+			assertEquals(values.get(input), "android.widget.EditText", "The attribute name is not translated");
+			assertEquals(values.keySet().iterator().next(), button1, "The values are not in the same order");
+		} finally {
+			IN_USE.remove(driver);
+		}
+	}
+
+	/**
+	 * Test the snapshot of the page source of the session.
+	 */
+	@Test(description = "testSnapshot")
+	public void testSnapshot() throws CustomErrorException {
+		AppiumDriver<MobileElement> driver = useDriver();
+		try {
+			AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+
+			assertTrue(androidHomePage.waitForReadyPageByID(), "The Home Page is not ready");
+			PageSourceSnapshot snapshot = androidHomePage.getSnapshot();
+
+			assertTrue(snapshot.getNotVisible(AndroidHomeConst.SET_UP_ANDROID_IS_READY).isEmpty(),
+					"The elements of the Home Page are not visible on the snapshot");
+			assertTrue(snapshot.containsByXpath("//android.widget.Button[@text='BUTTON 3']"));
+			assertEquals(snapshot.getAttribute(AndroidHomeConst.BODY_BUTTON_BUTTON4, "text"), "CLICK HERE");
+		} finally {
+			IN_USE.remove(driver);
+		}
+	}
+
+	/**
+	 * Test that the App is reset before a test that needs it, even after other test
+	 * navigated to other screen.
+	 */
+	@StartState(AppState.RESET)
+	@Test(description = "testResetApp", invocationCount = 2)
+	public void testResetApp() {
+		assertHomePageWithoutText();
+	}
+
+	/**
+	 * Test that the data of the App is removed before a test that needs it, even after
+	 * other test sent a text to the input.
+	 */
+	@StartState(AppState.NO_DATA)
+	@Test(description = "testAppWithoutData", invocationCount = 2)
+	public void testAppWithoutData() {
+		assertHomePageWithoutText();
+	}
+
+	/**
+	 * Method to check that the sessions were reused, one per fake device.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void checkSessionsReused() {
+		assertTrue(USED.size() <= AppiumServerHandler.getAppiumServers().size(),
+				"The tests used " + USED.size() + " sessions, more than the servers");
+	}
+
+	/**
+	 * Method to check that the App starts on the Home Page, without the text sent by
+	 * other test.
+	 */
+	private void assertHomePageWithoutText() {
+		AppiumDriver<MobileElement> driver = useDriver();
+		try {
+			AndroidHomePage androidHomePage = new AndroidHomePage(driver);
+
+			assertTrue(androidHomePage.waitForReadyPageByID(), "The App is not on the Home Page");
+			assertEquals(androidHomePage.getValueOfElementAttributeByID(AndroidHomeConst.BODY_INPUT_TEXTBOX, "text"), "",
+					"The App keeps the text of other test");
+		} finally {
+			IN_USE.remove(driver);
+		}
+	}
+
+	/**
+	 * Method to get the session of the test, checking that other test is not using it.
+	 */
+	private AppiumDriver<MobileElement> useDriver() {
+		AppiumDriver<MobileElement> driver = getDriver();
+		assertTrue(IN_USE.add(driver), "The session is used by other test at the same time");
+		USED.add(driver);
+		return driver;
+	}
+}
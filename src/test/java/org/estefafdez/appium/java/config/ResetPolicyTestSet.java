@@ -0,0 +1,123 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import io.appium.java_client.remote.MobilePlatform;
+
+/**
+ * <p>
+ * Tests of the {@link ResetPolicy} chosen for each state of the App, and of the
+ * fallback when the sessions do not support a policy. The policies are not
+ * measured, so their estimated times are used.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class ResetPolicyTestSet {
+
+	@AfterMethod(alwaysRun = true)
+	public void clearUnsupported() {
+		ResetPolicy.clearUnsupported();
+	}
+
+	/**
+	 * Test that the cheapest policy that guarantees each state is chosen.
+	 */
+	@Test(description = "testCheapestFor")
+	public void testCheapestFor() {
+		assertEquals(ResetPolicy.cheapestFor(AppState.ANY, MobilePlatform.ANDROID), ResetPolicy.NONE);
+		assertEquals(ResetPolicy.cheapestFor(AppState.RELAUNCHED, MobilePlatform.ANDROID), ResetPolicy.TERMINATE_ACTIVATE);
+		assertEquals(ResetPolicy.cheapestFor(AppState.NO_DATA, MobilePlatform.ANDROID), ResetPolicy.CLEAR_APP_DATA);
+		assertEquals(ResetPolicy.cheapestFor(AppState.RESET, MobilePlatform.ANDROID), ResetPolicy.RESET_APP);
+	}
+
+	/**
+	 * Test that the policies only supported on Android are not chosen on iOS.
+	 */
+	@Test(description = "testCheapestForIos")
+	public void testCheapestForIos() {
+		assertEquals(ResetPolicy.cheapestFor(AppState.RELAUNCHED, MobilePlatform.IOS), ResetPolicy.TERMINATE_ACTIVATE);
+		assertEquals(ResetPolicy.cheapestFor(AppState.NO_DATA, MobilePlatform.IOS), ResetPolicy.RESET_APP,
+				"The data of the App is cleared on iOS");
+	}
+
+	/**
+	 * Test that the policies not supported by the sessions fall back to the next one,
+	 * and that the reset of the App is never discarded.
+	 */
+	@Test(description = "testMarkUnsupported")
+	public void testMarkUnsupported() {
+		ResetPolicy.CLEAR_APP_DATA.markUnsupported();
+		ResetPolicy.RESET_APP.markUnsupported();
+
+		assertTrue(ResetPolicy.CLEAR_APP_DATA.isUnsupported());
+		assertFalse(ResetPolicy.RESET_APP.isUnsupported(), "The last resort is discarded");
+		assertEquals(ResetPolicy.cheapestFor(AppState.NO_DATA, MobilePlatform.ANDROID), ResetPolicy.RESET_APP,
+				"The policy not supported is chosen");
+
+		ResetPolicy.TERMINATE_ACTIVATE.markUnsupported();
+		assertEquals(ResetPolicy.cheapestFor(AppState.RELAUNCHED, MobilePlatform.ANDROID), ResetPolicy.RESET_APP);
+
+		ResetPolicy.clearUnsupported();
+		assertEquals(ResetPolicy.cheapestFor(AppState.NO_DATA, MobilePlatform.ANDROID), ResetPolicy.CLEAR_APP_DATA,
+				"The policy is not chosen again");
+	}
+
+	/**
+	 * Test the errors of the sessions considered a command not supported, instead of a
+	 * session broken.
+	 */
+	@Test(description = "testIsUnsupportedCommand")
+	public void testIsUnsupportedCommand() {
+		assertTrue(ResetPolicy.isUnsupportedCommand(new UnsupportedCommandException("clearApp")));
+		assertTrue(ResetPolicy.isUnsupportedCommand(new WebDriverException("Unknown mobile command \"clearApp\"")));
+		assertTrue(ResetPolicy.isUnsupportedCommand(new WebDriverException("Method is not implemented")));
+		assertTrue(ResetPolicy.isUnsupportedCommand(new WebDriverException("The command is NOT SUPPORTED")));
+		assertFalse(ResetPolicy.isUnsupportedCommand(new WebDriverException("A session is either terminated or not started")));
+		assertFalse(ResetPolicy.isUnsupportedCommand(new WebDriverException((String) null)));
+	}
+
+	/**
+	 * Test the policies read from the configuration.
+	 */
+	@Test(description = "testFromValue")
+	public void testFromValue() {
+		assertEquals(ResetPolicy.fromValue(" terminate_activate "), ResetPolicy.TERMINATE_ACTIVATE);
+		assertEquals(ResetPolicy.fromValue("${resetPolicy}"), ResetPolicy.RESET_APP);
+		assertEquals(ResetPolicy.fromValue("REINSTALL"), ResetPolicy.RESET_APP);
+		assertEquals(ResetPolicy.fromValue(null), ResetPolicy.RESET_APP);
+	}
+}
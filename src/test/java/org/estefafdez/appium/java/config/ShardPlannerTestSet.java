@@ -0,0 +1,179 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.estefafdez.appium.java.config.ShardPlanner.Shard;
+import org.estefafdez.appium.java.utils.ArtifactWriter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link ShardPlanner}: the longest tests go first to the shard with
+ * less load, and the tests without history get the average duration.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class ShardPlannerTestSet {
+
+	/** Class of the tests planned. */
+	private static final String CLASS = "org.estefafdez.appium.java.AndroidHomeTestSet";
+
+	/** File of the history of each test. */
+	private Path file;
+
+	/** History of the durations of each test. */
+	private DurationHistory history;
+
+	@BeforeMethod
+	public void createHistory() throws IOException {
+		file = Files.createTempFile("shard-planner", ".tsv");
+		Files.delete(file);
+		history = new DurationHistory(file);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteHistory() throws IOException {
+		ArtifactWriter.flush();
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Test that the tests are balanced between the shards, the longest first.
+	 */
+	@Test(description = "testBalancedShards")
+	public void testBalancedShards() {
+		List<String> tests = new ArrayList<>();
+		for (int millis = 1; millis <= 8; millis++) {
+			tests.add(test(millis));
+			history.record(test(millis), millis * 1000L);
+		}
+
+		List<Shard> plan = ShardPlanner.plan(tests, history, 3);
+
+		assertEquals(plan.size(), 3);
+		/** 8+3+2 | 7+4+1 | 6+5 */
+		assertEquals(loads(plan), Arrays.asList(13000L, 12000L, 11000L), "The shards are not balanced");
+		assertEquals(plan.get(0).getTests().get(CLASS), Arrays.asList("test8", "test3", "test2"),
+				"The longest tests are not planned first");
+		assertEachTestOnce(plan, tests);
+	}
+
+	/**
+	 * Test that the tests without history are planned with the average of the others.
+	 */
+	@Test(description = "testTestsWithoutHistory")
+	public void testTestsWithoutHistory() {
+		history.record(test(1), 100);
+		history.record(test(3), 300);
+
+		Map<String, Long> estimates = ShardPlanner.estimate(Arrays.asList(test(1), test(2), test(3)), history);
+
+		assertEquals(estimates.get(test(2)), Long.valueOf(200), "The test without history is not the average");
+		assertEquals(new ArrayList<>(estimates.keySet()), Arrays.asList(test(3), test(2), test(1)),
+				"The estimates are not sorted from the longest");
+	}
+
+	/**
+	 * Test that the tests are split by number when there is not any history.
+	 */
+	@Test(description = "testEmptyHistory")
+	public void testEmptyHistory() {
+		List<String> tests = Arrays.asList(test(1), test(2), test(3), test(4));
+
+		List<Shard> plan = ShardPlanner.plan(tests, history, 2);
+
+		assertEquals(loads(plan), Arrays.asList(2L, 2L), "The tests are not split by number");
+		assertEachTestOnce(plan, tests);
+	}
+
+	/**
+	 * Test that the shards without tests are empty, and their suite is still valid.
+	 */
+	@Test(description = "testMoreShardsThanTests")
+	public void testMoreShardsThanTests() {
+		List<Shard> plan = ShardPlanner.plan(Collections.singletonList(test(1)), history, 3);
+
+		assertEquals(loads(plan), Arrays.asList(1L, 0L, 0L));
+		assertTrue(plan.get(0).toSuite(2).contains("<class name=\"" + CLASS + "\">"), "The suite has not the class");
+		assertTrue(plan.get(0).toSuite(2).contains("<include name=\"test1\" />"), "The suite has not the test");
+		assertTrue(plan.get(0).toSuite(2).contains("thread-count=\"2\""), "The suite has not the thread-count");
+		assertTrue(plan.get(2).getTests().isEmpty(), "The last shard has tests");
+	}
+
+	/**
+	 * Test that at least one shard is needed.
+	 */
+	@Test(description = "testNoShards", expectedExceptions = IllegalArgumentException.class)
+	public void testNoShards() {
+		ShardPlanner.plan(Collections.singletonList(test(1)), history, 0);
+	}
+
+	/**
+	 * Method to check that every test is on one shard only.
+	 */
+	private static void assertEachTestOnce(List<Shard> plan, List<String> tests) {
+		List<String> planned = new ArrayList<>();
+		for (Shard shard : plan) {
+			for (Map.Entry<String, List<String>> type : shard.getTests().entrySet()) {
+				for (String method : type.getValue()) {
+					planned.add(type.getKey() + "#" + method);
+				}
+			}
+		}
+		Collections.sort(planned);
+		List<String> expected = new ArrayList<>(tests);
+		Collections.sort(expected);
+		assertEquals(planned, expected, "Each test is not planned once");
+	}
+
+	private static List<Long> loads(List<Shard> plan) {
+		List<Long> loads = new ArrayList<>();
+		for (Shard shard : plan) {
+			loads.add(shard.getLoad());
+		}
+		return loads;
+	}
+
+	private static String test(int number) {
+		return CLASS + "#test" + number;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the trace of the {@link StartupProfiler}: the phases written, and
+ * forgotten once written so the next suite of the JVM does not write them again.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class StartupProfilerTestSet {
+
+	/** Folder of the traces. */
+	private Path folder;
+
+	@BeforeMethod
+	public void createFolder() throws IOException {
+		folder = Files.createTempDirectory("startup-profiler");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteFolder() throws IOException {
+		Files.deleteIfExists(folder.resolve("first.json"));
+		Files.deleteIfExists(folder.resolve("second.json"));
+		Files.deleteIfExists(folder);
+	}
+
+	/**
+	 * Test that each trace has only the phases finished after the previous one.
+	 */
+	@Test(description = "testDumpForgetsSpans")
+	public void testDumpForgetsSpans() throws IOException, InterruptedException {
+		StartupProfiler.time("testFirstSuite", () -> Thread.sleep(1));
+		StartupProfiler.dump(folder.resolve("first.json"));
+		StartupProfiler.time("testSecondSuite", () -> Thread.sleep(1));
+		StartupProfiler.dump(folder.resolve("second.json"));
+
+		String first = read("first.json");
+		String second = read("second.json");
+		assertTrue(first.contains("\"testFirstSuite\""), "The phase is not written: " + first);
+		assertTrue(second.contains("\"testSecondSuite\""), "The phase is not written: " + second);
+		assertFalse(second.contains("\"testFirstSuite\""), "The phase of the previous suite is written again: " + second);
+	}
+
+	/**
+	 * Method to read a trace of the folder.
+	 */
+	private String read(String name) throws IOException {
+		return new String(Files.readAllBytes(folder.resolve(name)), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link TestCoordinator} handing out the tests to several
+ * {@link TestWorker} JVMs, each one with its own Fake Appium Servers and sessions.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class TestCoordinatorTestSet {
+
+	/** Class of the tests handed out to the workers. */
+	private static final String CLASS = ParallelSessionTestSet.class.getName();
+
+	/** Test that does not exist, so no worker can run it. */
+	private static final String MISSING_TEST = CLASS + "#testMissing";
+
+	/** Seconds to wait for the workers to run every test. */
+	private static final long TIMEOUT = 120;
+
+	/** Folder of the results and the logs of the workers. */
+	private Path folder;
+
+	@BeforeMethod
+	public void createFolder() throws IOException {
+		folder = Files.createTempDirectory("test-coordinator");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteFolder() throws IOException {
+		try (Stream<Path> files = Files.walk(folder)) {
+			List<Path> paths = new ArrayList<>();
+			files.forEach(paths::add);
+			for (int i = paths.size() - 1; i >= 0; i--) {
+				Files.deleteIfExists(paths.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Test that two worker JVMs run every test of the queue, including the one of a
+	 * worker lost before its result, and that the test no worker can run fails.
+	 */
+	@Test(description = "testWorkers")
+	public void testWorkers() throws IOException, InterruptedException {
+		List<String> tests = Arrays.asList(CLASS + "#testHomePage", CLASS + "#testSnapshot",
+				CLASS + "#testAppWithoutData", CLASS + "#testResetApp", MISSING_TEST);
+		List<Process> workers = new ArrayList<>();
+
+		try (TestCoordinator coordinator = new TestCoordinator(tests, 0, folder)) {
+			coordinator.start();
+			String lostTest = loseWorker(coordinator.getPort());
+			assertEquals(lostTest, tests.get(0), "The first test of the queue is not handed out first");
+
+			workers.add(TestCoordinator.launchWorker("worker-1", coordinator.getPort(), folder));
+			workers.add(TestCoordinator.launchWorker("worker-2", coordinator.getPort(), folder));
+			assertTrue(coordinator.await(TIMEOUT, TimeUnit.SECONDS),
+					"The workers did not finish, " + coordinator.getPending() + " tests without result" + logs());
+
+			for (Process worker : workers) {
+				assertTrue(worker.waitFor(30, TimeUnit.SECONDS), "The worker did not end after the last test");
+				assertEquals(worker.exitValue(), 0, "The worker did not end healthy" + logs());
+			}
+
+			Map<String, String> results = coordinator.getResults();
+			assertEquals(results.size(), tests.size(), "Every test has not a result");
+			for (String test : tests) {
+				assertEquals(results.get(test), test.equals(MISSING_TEST) ? TestCoordinator.FAILURE : "SUCCESS",
+						"The result of " + test + " is not valid" + logs());
+			}
+			assertFalse(coordinator.writeResults(), "The run with a failure passed");
+		} finally {
+			for (Process worker : workers) {
+				worker.destroyForcibly();
+			}
+		}
+
+		List<String> lines = Files.readAllLines(folder.resolve("results.tsv"), StandardCharsets.UTF_8);
+		assertEquals(lines.size(), tests.size() + 1, "The results file has not a line per test");
+		for (String line : lines.subList(1, lines.size())) {
+			assertTrue(line.split("\t")[3].matches("worker-[12]"), "The test did not run on a worker JVM: " + line);
+		}
+	}
+
+	/**
+	 * Method to connect a worker that takes a test and disconnects before its result.
+	 *
+	 * @return the test taken by the worker
+	 */
+	private static String loseWorker(int port) throws IOException {
+		try (Socket socket = new Socket("127.0.0.1", port);
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(
+						new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			writer.println(TestCoordinator.HELLO + " worker-lost");
+			writer.println(TestCoordinator.NEXT);
+			String answer = reader.readLine();
+			assertTrue(answer != null && answer.startsWith(TestCoordinator.TEST + " "), "No test for the worker: " + answer);
+			return answer.substring(TestCoordinator.TEST.length() + 1);
+		}
+	}
+
+	/**
+	 * Method to get the Log of the workers, to explain their failures.
+	 */
+	private String logs() throws IOException {
+		StringBuilder logs = new StringBuilder();
+		try (Stream<Path> files = Files.list(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				if (file.toString().endsWith(".log")) {
+					logs.append('\n').append(file.getFileName()).append(":\n")
+							.append(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return logs.toString();
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link TestIndex} written by the {@link TestIndexProcessor} and of
+ * the tests taken from it for the TestNG suite of a run.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class TestIndexTestSet {
+
+	/** Test of the Android suite. */
+	private static final String ANDROID_TEST = "org.estefafdez.appium.java.AndroidHomeTestSet#testAndroidExample";
+
+	/** Test of the iOS suite. */
+	private static final String IOS_TEST = "org.estefafdez.appium.java.IosHomeTestSet#testIosExample";
+
+	/** Suite of the test. */
+	private Path suite;
+
+	@BeforeMethod
+	public void createSuite() throws IOException {
+		suite = Files.createTempFile("test-index", ".xml");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteSuite() throws IOException {
+		Files.deleteIfExists(suite);
+	}
+
+	/**
+	 * Test that the index has the tests of the project, and not the tests of the
+	 * framework itself.
+	 */
+	@Test(description = "testIndexWithoutFrameworkTests")
+	public void testIndexWithoutFrameworkTests() throws IOException {
+		List<String> tests = TestIndex.getTests();
+
+		assertTrue(tests.contains(ANDROID_TEST), "The index does not have the tests of the project: " + tests);
+		assertTrue(tests.contains(IOS_TEST), "The index does not have the tests of the project: " + tests);
+		for (String test : tests) {
+			assertFalse(test.startsWith(TestSetConfig.class.getPackage().getName() + '.'),
+					"The index has a test of the framework: " + test);
+		}
+	}
+
+	/**
+	 * Test that only the tests of the suite of a platform are taken from the index.
+	 */
+	@Test(description = "testSuiteOfPlatform")
+	public void testSuiteOfPlatform() throws IOException {
+		assertEquals(TestIndex.getTests("src/test/resources/suites/android_suite.xml"), Arrays.asList(ANDROID_TEST));
+		assertEquals(TestIndex.getTests("src/test/resources/suites/ios_suite.xml"), Arrays.asList(IOS_TEST));
+	}
+
+	/**
+	 * Test that the methods included and excluded by the suite are taken into account.
+	 */
+	@Test(description = "testFilter")
+	public void testFilter() throws IOException {
+		Files.write(suite, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<!DOCTYPE suite SYSTEM \"http://testng.org/testng-1.0.dtd\" >\n"
+				+ "<suite name=\"filterSuite\">\n"
+				+ "\t<test name=\"FilterTest\">\n"
+				+ "\t\t<classes>\n"
+				+ "\t\t\t<class name=\"a.FirstTestSet\" />\n"
+				+ "\t\t\t<class name=\"a.SecondTestSet\">\n"
+				+ "\t\t\t\t<methods>\n"
+				+ "\t\t\t\t\t<include name=\"testLogin.*\" />\n"
+				+ "\t\t\t\t\t<exclude name=\"testLoginSlow\" />\n"
+				+ "\t\t\t\t</methods>\n"
+				+ "\t\t\t</class>\n"
+				+ "\t\t</classes>\n"
+				+ "\t</test>\n"
+				+ "</suite>\n").getBytes(StandardCharsets.UTF_8));
+		List<String> tests = Arrays.asList("a.FirstTestSet#testOne", "a.FirstTestSet#testTwo", "a.SecondTestSet#testLogin",
+				"a.SecondTestSet#testLoginSlow", "a.SecondTestSet#testLogout", "a.ThirdTestSet#testOne");
+
+		assertEquals(TestIndex.filter(tests, suite.toString()), Arrays.asList("a.FirstTestSet#testOne",
+				"a.FirstTestSet#testTwo", "a.SecondTestSet#testLogin"));
+	}
+}
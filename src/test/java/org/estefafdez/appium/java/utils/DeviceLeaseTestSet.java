@@ -0,0 +1,135 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.estefafdez.appium.java.config.CommandMetrics;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link DeviceLease} of the devices. The lock file of a device
+ * leased by the JVM can not be locked again by it, so a second lease of the same
+ * JVM takes the path of a device leased by other JVM.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class DeviceLeaseTestSet {
+
+	/** Devices of the test. */
+	private static final List<String> UDIDS = Arrays.asList("device-lease-test-1", "device-lease-test-2");
+
+	/** Port of the server of the first device. */
+	private static final int BASE_PORT = 4800;
+
+	/** Devices leased by the test. */
+	private final List<DeviceLease> leased = new ArrayList<>();
+
+	@AfterMethod(alwaysRun = true)
+	public void releaseDevices() {
+		for (DeviceLease device : leased) {
+			device.release();
+		}
+		leased.clear();
+	}
+
+	/**
+	 * Test that the devices leased are not leased again until they are released, and
+	 * that each one keeps the slot of its position.
+	 */
+	@Test(description = "testAcquire")
+	public void testAcquire() throws CustomErrorException {
+		DeviceLease first = acquire(1, 0).get(0);
+		assertEquals(first.getUdid(), UDIDS.get(0));
+		assertEquals(first.getSlot(), 0);
+
+		DeviceLease second = acquire(2, 0).get(0);
+		assertEquals(second.getUdid(), UDIDS.get(1), "The device leased is leased again");
+		assertEquals(second.getSlot(), 1, "The device does not keep its position");
+
+		first.release();
+		assertEquals(acquire(2, 0).get(0).getUdid(), UDIDS.get(0), "The device released is not leased again");
+	}
+
+	/**
+	 * Test that the lease fails after the timeout when every device is leased.
+	 */
+	@Test(description = "testEveryDeviceLeased")
+	public void testEveryDeviceLeased() throws CustomErrorException {
+		assertEquals(acquire(2, 0).size(), 2);
+		long start = System.nanoTime();
+		try {
+			acquire(2, 1);
+			fail("A device leased is leased again");
+		} catch (CustomErrorException ex) {
+			assertTrue(System.nanoTime() - start >= 1_000_000_000L, "The lease did not wait for the timeout");
+		}
+	}
+
+	/**
+	 * Test that the time waited for the devices is written apart from the commands.
+	 */
+	@Test(description = "testWaitMetric")
+	public void testWaitMetric() throws CustomErrorException, IOException {
+		acquire(1, 0);
+		Path file = Files.createTempFile("device-lease", ".json");
+		try {
+			CommandMetrics.dump(file);
+			String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+			String waits = json.substring(json.indexOf("\"waits\""), json.indexOf("\"selectors\""));
+
+			assertTrue(waits.contains("\"" + DeviceLease.METRIC + "\""), "The wait for the devices is not written: " + json);
+			assertFalse(json.substring(0, json.indexOf("\"waits\"")).contains(DeviceLease.METRIC),
+					"The wait for the devices is written as a command: " + json);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Method to lease the devices of the test, keeping them to be released.
+	 */
+	private List<DeviceLease> acquire(int max, long timeout) throws CustomErrorException {
+		List<DeviceLease> devices = DeviceLease.acquire(UDIDS, max, BASE_PORT, timeout);
+		leased.addAll(devices);
+		return devices;
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link LatencyHistogram}: the percentiles keep the error of the
+ * buckets and the counters are exact while several threads record.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class LatencyHistogramTestSet {
+
+	/** Maximum error of a percentile, one bucket of the eight of each power of two. */
+	private static final double MAX_ERROR = 0.125;
+
+	/**
+	 * Test that an empty histogram answers zero.
+	 */
+	@Test(description = "testEmptyHistogram")
+	public void testEmptyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getMean(), 0);
+		assertEquals(histogram.getMax(), 0);
+		assertEquals(histogram.getPercentile(99), 0);
+	}
+
+	/**
+	 * Test the percentiles of the latencies from 1 to 1000 ms.
+	 */
+	@Test(description = "testPercentiles")
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1000; millis >= 1; millis--) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+
+		assertEquals(histogram.getCount(), 1000);
+		assertEquals(histogram.getMean(), 500500);
+		assertEquals(histogram.getMax(), 1000000);
+		assertPercentile(histogram, 50, 500000);
+		assertPercentile(histogram, 90, 900000);
+		assertPercentile(histogram, 99, 990000);
+		assertEquals(histogram.getPercentile(100), 1000000, "The p100 is not the maximum");
+	}
+
+	/**
+	 * Test that the small latencies have their own bucket and the percentile never
+	 * goes over the maximum.
+	 */
+	@Test(description = "testSmallLatencies")
+	public void testSmallLatencies() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(5));
+		histogram.record(-1);
+
+		assertEquals(histogram.getPercentile(1), 0, "The negative latency is not recorded as 0");
+		assertEquals(histogram.getPercentile(50), 3);
+		assertEquals(histogram.getPercentile(99), 5);
+	}
+
+	/**
+	 * Test that adding a histogram keeps the counters and the percentiles of both.
+	 */
+	@Test(description = "testAdd")
+	public void testAdd() {
+		LatencyHistogram fast = new LatencyHistogram();
+		LatencyHistogram slow = new LatencyHistogram();
+		for (int i = 0; i < 90; i++) {
+			fast.record(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		for (int i = 0; i < 10; i++) {
+			slow.record(TimeUnit.MILLISECONDS.toNanos(200));
+		}
+
+		LatencyHistogram total = new LatencyHistogram();
+		total.add(fast);
+		total.add(slow);
+
+		assertEquals(total.getCount(), 100);
+		assertEquals(total.getMax(), 200000);
+		assertEquals(total.getMean(), 29000);
+		assertPercentile(total, 90, 10000);
+		assertPercentile(total, 95, 200000);
+	}
+
+	/**
+	 * Test that the counters are exact when several threads record at the same time.
+	 */
+	@Test(description = "testConcurrentRecords")
+	public void testConcurrentRecords() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final long latency = TimeUnit.MILLISECONDS.toNanos(i + 1);
+			Thread thread = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					histogram.record(latency);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(histogram.getCount(), 40000);
+		assertEquals(histogram.getMax(), 4000);
+		assertEquals(histogram.getMean(), 2500);
+	}
+
+	/**
+	 * Method to check a percentile, it can only be over the exact value by the error
+	 * of its bucket.
+	 */
+	private static void assertPercentile(LatencyHistogram histogram, double percentile, long expected) {
+		long value = histogram.getPercentile(percentile);
+		assertTrue(value >= expected && value <= expected * (1 + MAX_ERROR),
+				"The p" + percentile + " " + value + " is not close to " + expected);
+	}
+}
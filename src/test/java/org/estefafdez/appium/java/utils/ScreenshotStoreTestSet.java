@@ -0,0 +1,173 @@
+/**
+ * The GNU GENERAL PUBLIC LICENSE (GPLv3)
+ *  
+ * Copyright (C) 2018  Francisco José Fernández González, Estefanía Fernández Muñoz
+ *  
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.estefafdez.appium.java.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * <p>
+ * Tests of the {@link ScreenshotStore}: the screenshots stored once by their
+ * content, the screenshots removed by size and by age, and the index cleaned when
+ * the store is opened again.
+ * </p>
+ *
+ * @author Francisco José Fernández González<br>
+ * <a href="mailto:ffgonzalez1989@gmail.com">ffgonzalez1989@gmail.com</a><br>
+ * <a href="https://github.com/FJFGonzalez">https://github.com/FJFGonzalez</a><br>
+ * <br><br>
+ * @author Estefanía Fernández Muñoz<br>
+ * <a href="mailto:estefafdez@gmail.com">estefafdez@gmail.com</a><br>
+ * <a href="https://github.com/estefafdez">https://github.com/estefafdez</a><br>
+ *
+ */
+public class ScreenshotStoreTestSet {
+
+	/** Maximum bytes that hold two screenshots of the test, not three. */
+	private static final long MAX_BYTES = 25;
+
+	/** Maximum age of the screenshots, one day. */
+	private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+	/** Root folder of the store. */
+	private Path root;
+
+	@BeforeMethod
+	public void createFolder() throws IOException {
+		root = Files.createTempDirectory("screenshot-store");
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void deleteFolder() throws IOException {
+		ArtifactWriter.flush();
+		try (Stream<Path> files = Files.walk(root)) {
+			List<Path> paths = new ArrayList<>();
+			files.forEach(paths::add);
+			for (int i = paths.size() - 1; i >= 0; i--) {
+				Files.deleteIfExists(paths.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Test that the same screenshot of two tests is stored once, and the index has a
+	 * line per test.
+	 */
+	@Test(description = "testDeduplication")
+	public void testDeduplication() throws CustomErrorException, IOException {
+		ScreenshotStore store = new ScreenshotStore(root, MAX_BYTES, MAX_AGE);
+
+		Path first = store.store("AndroidTest.testOne", "failure", png('a'));
+		Path second = store.store("AndroidTest.testTwo", "failure", png('a'));
+		Path other = store.store("AndroidTest.testTwo", "step", png('b'));
+		ArtifactWriter.flush();
+
+		assertEquals(second, first, "The same screenshot is stored twice");
+		assertFalse(other.equals(first), "Two screenshots are stored on the same file");
+		assertTrue(Files.exists(first) && Files.exists(other), "The screenshots are not written");
+		assertEquals(countBlobs(), 2);
+		List<String> index = readIndex();
+		assertEquals(index.size(), 3, "The index has not a line per screenshot stored: " + index);
+		assertEquals(index.stream().map(line -> line.split("\t")[3]).distinct().count(), 2,
+				"The index has not the same screenshot for both tests: " + index);
+	}
+
+	/**
+	 * Test that the screenshots used less recently are removed when the store is too
+	 * big, even if they were stored before other one.
+	 */
+	@Test(description = "testEvictLeastRecentlyUsed")
+	public void testEvictLeastRecentlyUsed() throws CustomErrorException {
+		ScreenshotStore store = new ScreenshotStore(root, MAX_BYTES, MAX_AGE);
+
+		Path first = store.store("AndroidTest.testOne", "failure", png('a'));
+		Path second = store.store("AndroidTest.testTwo", "failure", png('b'));
+		ArtifactWriter.flush();
+		store.store("AndroidTest.testThree", "failure", png('a'));
+		Path third = store.store("AndroidTest.testFour", "failure", png('c'));
+		ArtifactWriter.flush();
+
+		assertFalse(Files.exists(second), "The screenshot used less recently is not removed");
+		assertTrue(Files.exists(first), "The screenshot used again is removed");
+		assertTrue(Files.exists(third), "The last screenshot is removed");
+	}
+
+	/**
+	 * Test that the screenshots not used during the maximum age are removed when the
+	 * store is opened, and their lines of the index too.
+	 */
+	@Test(description = "testEvictExpired")
+	public void testEvictExpired() throws CustomErrorException, IOException {
+		ScreenshotStore store = new ScreenshotStore(root, MAX_BYTES, MAX_AGE);
+		Path expired = store.store("AndroidTest.testOne", "failure", png('a'));
+		Path recent = store.store("AndroidTest.testTwo", "failure", png('b'));
+		ArtifactWriter.flush();
+		Files.setLastModifiedTime(expired, FileTime.fromMillis(System.currentTimeMillis() - 2 * MAX_AGE));
+
+		new ScreenshotStore(root, MAX_BYTES, MAX_AGE);
+
+		assertFalse(Files.exists(expired), "The expired screenshot is not removed");
+		assertTrue(Files.exists(recent), "The recent screenshot is removed");
+		List<String> index = readIndex();
+		assertEquals(index.size(), 1, "The index is not cleaned: " + index);
+		assertTrue(index.get(0).contains("\tAndroidTest.testTwo\t"), "The line of the recent screenshot is removed");
+	}
+
+	/**
+	 * Method to build a screenshot of ten bytes.
+	 */
+	private static byte[] png(char content) {
+		byte[] png = new byte[10];
+		Arrays.fill(png, (byte) content);
+		return png;
+	}
+
+	/**
+	 * Method to count the screenshots written on the store.
+	 */
+	private long countBlobs() throws IOException {
+		try (Stream<Path> files = Files.walk(root.resolve("blobs"))) {
+			return files.filter(file -> file.toString().endsWith(".png")).count();
+		}
+	}
+
+	/**
+	 * Method to read the lines of the index.
+	 */
+	private List<String> readIndex() throws IOException {
+		return Files.readAllLines(root.resolve("index.tsv"), StandardCharsets.UTF_8);
+	}
+}